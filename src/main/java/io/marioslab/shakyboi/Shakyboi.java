@@ -1,18 +1,56 @@
 package io.marioslab.shakyboi;
 
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.classfile.ClassFileReader;
 import io.marioslab.shakyboi.graph.ClassDependencyGraph;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphDiff;
 import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphSnapshot;
+import io.marioslab.shakyboi.graph.ClassHierarchy;
+import io.marioslab.shakyboi.graph.ClassLoadOrder;
+import io.marioslab.shakyboi.graph.ClassSummary;
+import io.marioslab.shakyboi.graph.ClassSummaryCache;
+import io.marioslab.shakyboi.graph.ClasspathUsage;
+import io.marioslab.shakyboi.graph.ClosureValidator;
+import io.marioslab.shakyboi.graph.ComponentGraphGenerator;
+import io.marioslab.shakyboi.graph.DuplicateClasses;
+import io.marioslab.shakyboi.graph.ExternalMemoryTraversal;
+import io.marioslab.shakyboi.graph.NativeImageConfigGenerator;
+import io.marioslab.shakyboi.graph.RapidTypeAnalysis;
+import io.marioslab.shakyboi.graph.ResourceShaker;
+import io.marioslab.shakyboi.lookup.BundleLookup;
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.DirectoryLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
 import io.marioslab.shakyboi.lookup.Lookup;
+import io.marioslab.shakyboi.util.ClassBundleWriter;
+import io.marioslab.shakyboi.util.DirectoryWriter;
 import io.marioslab.shakyboi.util.JarFileWriter;
+import io.marioslab.shakyboi.util.MappedStringSet;
+import io.marioslab.shakyboi.util.OutputWriter;
 import io.marioslab.shakyboi.util.Pattern;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import com.sun.management.GarbageCollectionNotificationInfo;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
 
 /**
  * Call {@link #shake(Settings)} with {@link Settings} to class tree shake one or more class files.
@@ -25,62 +63,850 @@ public class Shakyboi {
      * Applies class tree shaking to the app classes given as a {@link Lookup} in the {@link Settings}. Generates
      * an output <code>.jar</code> file containing all reachable classes from the app lookup, as well as any files
      * found in the app lookup. Optionally generates a HTML and/or JSON report file. See {@link Settings}.
+     * <p>
+     * If {@link Settings#rootSets} are given, all classes are parsed once for the union of the root sets, and one
+     * output <code>.jar</code> file is written per root set, containing only the classes reachable from that set.
      *
      * @param settings the {@link Settings} specifying input and output parameters for the class tree shaking.
      * @return {@link Statistics} generated during class tree shaking.
      * @throws IOException in case a file couldn't be read from a lookup.
      */
     public static Statistics shake(Settings settings) throws IOException {
-        // expand root classes
+        var heapUsageMonitor = new HeapUsageMonitor();
+        try {
+            var statistics = settings.externalMemory != null ? shakeExternalMemory(settings) : shakeInMemory(settings);
+            statistics.peakHeapUsage = heapUsageMonitor.getPeakHeapUsage();
+            statistics.peakLiveHeapUsage = heapUsageMonitor.peakLiveHeapUsage;
+            return statistics;
+        } finally {
+            heapUsageMonitor.dispose();
+        }
+    }
+
+    /**
+     * Shakes the app classes with a {@link ClassDependencyGraph} kept on the heap. The phases are pipelined: resources are written to the
+     * output(s) on a separate thread while the graph is generated, as they don't depend on it unless {@link Settings#shakeResources} is
+     * set, and the reports are written while the output(s) are finalized.
+     */
+    private static Statistics shakeInMemory(Settings settings) throws IOException {
+        var pipeline = Executors.newFixedThreadPool(2, runnable -> {
+            var thread = new Thread(runnable, "Shakyboi pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        var outputs = new ArrayList<Output>();
+        try {
+            return shakeInMemory(settings, pipeline, outputs);
+        } finally {
+            pipeline.shutdownNow();
+            try {
+                pipeline.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                // Ignored.
+            }
+            // Writers are only left open if shaking failed, in which case the exception is more interesting than errors closing them.
+            for (var output : outputs) {
+                if (output.writer == null) continue;
+                try {
+                    output.writer.close();
+                } catch (IOException | RuntimeException e) {
+                    // Ignored.
+                }
+            }
+        }
+    }
+
+    /**
+     * An output <code>.jar</code> file or directory, see {@link Settings#rootSets} and {@link Settings#outputPerApp}.
+     */
+    private static class Output {
+        final File file;
+        /** The root set whose classes are written to this output, or null **/
+        final String rootSetName;
+        /** The app source whose classes and resources are written to this output, or null **/
+        final Lookup source;
+        /** The writer, or null once closed **/
+        OutputWriter writer;
+
+        Output(File file, String rootSetName, Lookup source) {
+            this.file = file;
+            this.rootSetName = rootSetName;
+            this.source = source;
+        }
+    }
+
+    private static Statistics shakeInMemory(Settings settings, ExecutorService pipeline, List<Output> outputs) throws IOException {
+        var shake = new InMemoryShake(settings, pipeline, outputs);
+        shake.listInputs();
+        shake.openOutputs();
+        shake.expandRootClasses();
+        shake.generateGraph();
+        shake.writeOutputs();
+        shake.startReports();
+        shake.finalizeOutputs();
+        shake.validateOutputs();
+        return shake.getStatistics();
+    }
+
+    /**
+     * The state of a shake with a {@link ClassDependencyGraph} kept on the heap, passed from one phase to the next. The phases are
+     * called in order by {@link #shakeInMemory(Settings, ExecutorService, List)}.
+     */
+    private static class InMemoryShake {
+        final Settings settings;
+        final ExecutorService pipeline;
+        final List<Output> outputs;
+        final List<String> warnings = new ArrayList<>();
+        final long timeStart = System.nanoTime();
+
+        List<Lookup> appLookups;
+        boolean computeClasspathUsage;
+        /** The app source of each file, or null if neither needed for the outputs nor the class path usage **/
+        Map<String, Lookup> sources;
+        List<String> inputClassesAndFiles;
+        List<String> inputClasses;
+        List<String> inputFiles;
+        final Map<Lookup, List<String>> filesPerSource = new HashMap<>();
+
+        final long[] resourcesInterval = new long[2];
+        Future<?> resourcesTask;
+        Future<DuplicateClasses> duplicatesTask;
+        Set<String> rootClassNames;
+        final List<Set<String>> rootSetClassNames = new ArrayList<>();
+        long timeRootClassExpansion;
+
+        ClassSummaryCache summaryCache;
+        ClassDependencyGraph classDependencyGraph;
+        List<ClassDependencyGraph.ClassNode> reachableAppClasses;
+        List<String> requiredModules;
+        ClasspathUsage classpathUsage;
+        DuplicateClasses duplicateClasses;
+        List<String> rootSetNames;
+        final Map<String, List<String>> rootSetsByClass = new HashMap<>();
+        long timeClassDependencyGraph;
+        long timeGraphEnd;
+
+        final Set<String> keptResources = new HashSet<>();
+        long timeWriteJar;
+        final long[] reportInterval = new long[2];
+        Future<ClassDependencyGraphDiff> reportTask;
+        long timeFinalizeStart;
+        long timeFinalizeEnd;
+        final Map<String, ClosureValidator.DanglingReference> danglingReferences = new TreeMap<>();
+        long timeValidate;
+
+        InMemoryShake(Settings settings, ExecutorService pipeline, List<Output> outputs) {
+            this.settings = settings;
+            this.pipeline = pipeline;
+            this.outputs = outputs;
+        }
+
+        /** Lists the app lookup and checks the settings. **/
+        void listInputs() throws IOException {
+            // With one output per app source, or for the class path usage, the source of each file is needed as well. It is derived while
+            // listing the app lookup, and files listed by multiple sources are only listed once, for the first source. The class path
+            // usage is only computed for reports, or if there are multiple app sources to compare.
+            appLookups = settings.appLookup instanceof CombinedLookup ? ((CombinedLookup) settings.appLookup).getLeafLookups() : List.of(settings.appLookup);
+            computeClasspathUsage = settings.htmlReport != null || settings.jsonReport != null || appLookups.size() > 1;
+            sources = (settings.output != null && settings.outputPerApp) || computeClasspathUsage ? getSources(settings.appLookup) : null;
+            inputClassesAndFiles = sources != null ? new ArrayList<String>(sources.keySet()) : settings.appLookup.list();
+            inputClasses = inputClassesAndFiles.stream().filter(f -> f.endsWith(".class")).collect(Collectors.toList());
+            inputFiles = inputClassesAndFiles.stream().filter(f -> !f.endsWith(".class")).collect(Collectors.toList());
+
+            if (settings.outputPerApp && !settings.rootSets.isEmpty())
+                throw new IOException("Root sets are not supported with one output per app source.");
+            for (var rootSetName : settings.rootSets.keySet())
+                if (!isValidRootSetName(rootSetName))
+                    throw new IOException("Invalid root set name '" + rootSetName + "', only letters, digits, '.', '_' and '-' are allowed.");
+            if (settings.bundleOutput && (settings.outputPerApp || settings.explodedOutput))
+                throw new IOException("Class bundles are not supported with one output per app source or exploded output.");
+            if (settings.outputPerApp && (settings.startupOrder || settings.classLoadLog != null))
+                warnings.add("Startup order is not supported with one output per app source, entries are written in the order of their source.");
+        }
+
+        /**
+         * Opens the output(s) and starts writing the resources, unless they are shaken against the reachable classes. With one output
+         * per app source, files listed by multiple sources are only written to the output of the first source.
+         */
+        void openOutputs() throws IOException {
+            if (settings.output != null) {
+                if (settings.outputPerApp) {
+                    for (var entry : sources.entrySet())
+                        if (!entry.getKey().endsWith(".class")) filesPerSource.computeIfAbsent(entry.getValue(), source -> new ArrayList<>()).add(entry.getKey());
+                    for (var entry : getAppOutputs(settings.appLookup, settings.output, settings.explodedOutput).entrySet())
+                        outputs.add(new Output(entry.getValue(), null, entry.getKey()));
+                } else if (settings.rootSets.isEmpty()) {
+                    outputs.add(new Output(settings.output, null, null));
+                } else {
+                    for (var rootSetName : settings.rootSets.keySet())
+                        outputs.add(new Output(getRootSetOutput(settings.output, rootSetName, settings.explodedOutput), rootSetName, null));
+                }
+                for (var output : outputs) {
+                    output.writer = createOutputWriter(settings, output.file);
+                    // Identical entries result in byte-identical .jar files, so unchanged sources can be cached, e.g. in container image layers.
+                    if (settings.outputPerApp && output.writer instanceof JarFileWriter)
+                        ((JarFileWriter) output.writer).setModificationTime(LocalDateTime.of(1980, 1, 1, 0, 0));
+                }
+            }
+            if (!outputs.isEmpty() && !settings.shakeResources) {
+                resourcesTask = pipeline.submit(() -> {
+                    resourcesInterval[0] = System.nanoTime();
+                    for (var output : outputs)
+                        writeResources(settings, output.writer, getFiles(output));
+                    resourcesInterval[1] = System.nanoTime();
+                    return null;
+                });
+            }
+            // The duplicate scan only depends on the app sources, and runs concurrently with graph generation.
+            duplicatesTask = settings.detectDuplicateClasses ? pipeline.submit(() -> DuplicateClasses.scan(settings.appLookup)) : null;
+        }
+
+        /** Expands the root class patterns of the settings and root sets to class names. **/
+        void expandRootClasses() throws IOException {
+            rootClassNames = new LinkedHashSet<String>(Shakyboi.expandRootClasses(settings.rootClasses, inputClasses));
+            for (var rootSet : settings.rootSets.entrySet()) {
+                // Root classes given via settings.rootClasses are shared by all root sets.
+                var expandedRootClassNames = Shakyboi.expandRootClasses(rootSet.getValue(), inputClasses);
+                if (expandedRootClassNames.size() == 0)
+                    throw new IOException("No root classes found in app lookup for root set " + rootSet.getKey() + ".");
+                var rootSetRootClassNames = new LinkedHashSet<String>(rootClassNames);
+                rootSetRootClassNames.addAll(expandedRootClassNames);
+                rootSetClassNames.add(rootSetRootClassNames);
+            }
+            rootSetClassNames.forEach(rootClassNames::addAll);
+            if (rootClassNames.size() == 0) throw new IOException("No root classes found in app lookup.");
+            // Includes listing the app lookup and opening the outputs.
+            timeRootClassExpansion = System.nanoTime() - timeStart;
+        }
+
+        /**
+         * Generates the class dependency graph and gathers all reachable app classes. If multiple root sets are given, the graph is
+         * generated once for the union of all root sets, and the reachable classes of each root set are determined by propagating
+         * root set bits through the condensed graph.
+         */
+        void generateGraph() throws IOException {
+            long start = System.nanoTime();
+            if (settings.lowMemory && settings.rapidTypeAnalysis)
+                warnings.add("Low-memory mode is not supported by rapid type analysis, all class files are kept in memory.");
+            if (settings.summaryCache != null && settings.rapidTypeAnalysis)
+                warnings.add("The summary cache is not supported by rapid type analysis, all classes are parsed.");
+            Map<String, ClassSummary> summaries = null;
+            if (settings.summaryCache != null && !settings.rapidTypeAnalysis) {
+                summaryCache = new ClassSummaryCache(settings.summaryCache);
+                summaries = summaryCache.getSummaries(settings.appLookup);
+            }
+            classDependencyGraph = settings.rapidTypeAnalysis ?
+                    RapidTypeAnalysis.generate(settings.appLookup, settings.bootstrapLookup, warnings, rootClassNames.toArray(new String[0])) :
+                    ClassDependencyGraphGenerator.generate(settings.appLookup,
+                            settings.bootstrapLookup,
+                            warnings,
+                            settings.lowMemory,
+                            summaries,
+                            rootClassNames.toArray(new String[0]));
+            reachableAppClasses = classDependencyGraph.reachableClasses.values().stream().filter(cl -> cl.isAppClass).collect(Collectors.toList());
+            requiredModules = getRequiredModules(settings.bootstrapLookup, classDependencyGraph.reachableClasses.values().stream().filter(cl -> !cl.isAppClass).map(cl -> cl.name).collect(Collectors.toList()), warnings);
+            if (settings.jlinkModules != null) writeJlinkModules(settings.jlinkModules, requiredModules);
+            classpathUsage = computeClasspathUsage ? ClasspathUsage.compute(appLookups, sources, classDependencyGraph) : null;
+            duplicateClasses = duplicatesTask != null ? await(duplicatesTask) : null;
+            if (duplicateClasses != null) {
+                for (var duplicate : duplicateClasses.getConflicting()) {
+                    if (!classDependencyGraph.reachableClasses.containsKey(duplicate.name)) continue;
+                    warnings.add("Reachable class " + duplicate.name.replace('/', '.') + " has conflicting copies in " +
+                            duplicate.sources.stream().map(ClasspathUsage::getSourceName).collect(Collectors.joining(", ")) + ", using the first one.");
+                }
+            }
+            rootSetNames = new ArrayList<String>(settings.rootSets.keySet());
+            if (rootSetNames.size() > 0) {
+                var componentGraph = ComponentGraphGenerator.generate(classDependencyGraph);
+                var reachingRootSets = componentGraph.getReachingRootSets(rootSetClassNames);
+                for (var clazz : reachableAppClasses) {
+                    var bits = reachingRootSets[componentGraph.getComponent(clazz.name).index];
+                    rootSetsByClass.put(clazz.name, bits.stream().mapToObj(rootSetNames::get).collect(Collectors.toList()));
+                }
+            }
+            timeGraphEnd = System.nanoTime();
+            timeClassDependencyGraph = timeGraphEnd - start;
+        }
+
+        /** Adds the classes, and the resources if they are shaken, to the output <code>.jar</code> file(s) or directories. **/
+        void writeOutputs() throws IOException {
+            timeWriteJar = System.nanoTime();
+            if (outputs.isEmpty()) return;
+            if (settings.outputPerApp) {
+                // Sort the classes in the order of their source, so an output only changes if its source or the set of its reachable classes changes.
+                var listIndices = new HashMap<String, Integer>();
+                for (var file : inputClassesAndFiles)
+                    listIndices.putIfAbsent(file, listIndices.size());
+                reachableAppClasses = reachableAppClasses.stream().sorted(Comparator.comparingInt(cl -> listIndices.get(cl.name + ".class"))).collect(Collectors.toList());
+            } else if (settings.startupOrder || settings.classLoadLog != null || settings.bundleOutput) {
+                var loadedClassNames = settings.classLoadLog != null ? ClassLoadOrder.readClassLoadLog(settings.classLoadLog) : null;
+                reachableAppClasses = ClassLoadOrder.sort(reachableAppClasses, loadedClassNames);
+            }
+            if (resourcesTask != null) {
+                await(resourcesTask);
+                keptResources.addAll(inputFiles);
+            }
+            for (var output : outputs) {
+                var classes = reachableAppClasses;
+                if (output.rootSetName != null)
+                    classes = classes.stream().filter(cl -> rootSetsByClass.get(cl.name).contains(output.rootSetName)).collect(Collectors.toList());
+                // Resources of one app source may be referenced by classes of any app source.
+                if (resourcesTask == null) keptResources.addAll(writeResources(settings, output.writer, shakeResources(settings, getFiles(output), classes)));
+                if (output.source != null)
+                    classes = classes.stream().filter(cl -> sources.get(cl.name + ".class") == output.source).collect(Collectors.toList());
+                writeClasses(settings, output.writer, classes);
+            }
+        }
+
+        /** Starts writing the requested reports, while the outputs are finalized. **/
+        void startReports() throws IOException {
+            var resources = settings.output != null ? inputFiles.stream().filter(keptResources::contains).collect(Collectors.toList()) :
+                    settings.shakeResources ? shakeResources(settings, inputFiles, reachableAppClasses) : inputFiles;
+            reportTask = pipeline.submit(() -> {
+                reportInterval[0] = System.nanoTime();
+                ClassDependencyGraphDiff diff = null;
+                if (settings.diffAgainst != null)
+                    diff = ClassDependencyGraphDiff.diff(ClassDependencyGraphSnapshot.read(settings.diffAgainst), ClassDependencyGraphSnapshot.fromGraph(classDependencyGraph), true);
+                if (settings.htmlReport != null) generateHtmlReport(settings, inputClasses, classDependencyGraph, rootSetsByClass, classpathUsage, duplicateClasses, diff);
+                if (settings.jsonReport != null) generateJsonReport(settings, inputClasses, classDependencyGraph, rootSetsByClass, classpathUsage, duplicateClasses, diff);
+                if (settings.graphSnapshot != null) ClassDependencyGraphSnapshot.fromGraph(classDependencyGraph).write(settings.graphSnapshot);
+                if (settings.nativeImageConfig != null) writeNativeImageConfig(settings, classDependencyGraph, rootClassNames, resources);
+                reportInterval[1] = System.nanoTime();
+                return diff;
+            });
+        }
+
+        /** Finalizes the output(s), i.e. waits for the compression of all entries and writes the central directories. **/
+        void finalizeOutputs() throws IOException {
+            timeFinalizeStart = System.nanoTime();
+            for (var output : outputs) {
+                var writer = output.writer;
+                output.writer = null;
+                writer.close();
+            }
+            if (settings.cdsClassList != null || settings.cdsArchive != null) writeCdsClassListAndArchive(settings, classDependencyGraph, warnings);
+            timeFinalizeEnd = System.nanoTime();
+            timeWriteJar = timeFinalizeEnd - timeWriteJar;
+        }
+
+        /**
+         * Validates the written output(s) while the report(s) are written. Root set outputs are deployed on their own and validated
+         * separately, outputs per app source are validated together.
+         */
+        void validateOutputs() throws IOException {
+            timeValidate = System.nanoTime();
+            if (settings.validateOutput) {
+                if (outputs.isEmpty()) warnings.add("Output validation requires an output, skipping validation.");
+                var outputLookups = outputs.stream().map(output -> getOutputLookup(settings, output.file)).collect(Collectors.toList());
+                var validatedLookups = settings.rootSets.isEmpty() && !outputLookups.isEmpty() ? List.<Lookup>of(new CombinedLookup(outputLookups.toArray(new Lookup[0]))) : outputLookups;
+                try {
+                    for (var lookup : validatedLookups) {
+                        for (var reference : ClosureValidator.validate(lookup, settings.bootstrapLookup, Runtime.getRuntime().availableProcessors()))
+                            danglingReferences.putIfAbsent(reference.toString(), reference);
+                    }
+                } finally {
+                    outputLookups.forEach(Lookup::close);
+                }
+            }
+            timeValidate = System.nanoTime() - timeValidate;
+        }
+
+        /** Waits for the reports and gathers the statistics, including the answers to the queries of the settings. **/
+        Statistics getStatistics() throws IOException {
+            var diff = await(reportTask);
+            var statistics = new Statistics(inputClasses.size(), reachableAppClasses.size(), warnings, timeRootClassExpansion / 1e9f, timeClassDependencyGraph / 1e9f, timeWriteJar / 1e9f, (reportInterval[1] - reportInterval[0]) / 1e9f);
+            statistics.diff = diff;
+            statistics.requiredModules.addAll(requiredModules);
+            statistics.classpathUsage = classpathUsage;
+            statistics.duplicateClasses = duplicateClasses;
+            statistics.danglingReferences.addAll(danglingReferences.values());
+            statistics.timeValidate = timeValidate / 1e9f;
+            statistics.totalResources = inputFiles.size();
+            if (settings.output != null) statistics.removedResources = inputFiles.size() - keptResources.size();
+            if (resourcesTask != null) {
+                statistics.timeWriteResources = (resourcesInterval[1] - resourcesInterval[0]) / 1e9f;
+                statistics.timeWriteResourcesOverlap = getOverlap(resourcesInterval[0], resourcesInterval[1], timeStart, timeGraphEnd) / 1e9f;
+            }
+            statistics.timeWriteReportOverlap = getOverlap(reportInterval[0], reportInterval[1], timeFinalizeStart, timeFinalizeEnd) / 1e9f;
+            statistics.timeTotal = (System.nanoTime() - timeStart) / 1e9f;
+            if (summaryCache != null) {
+                statistics.summaryCacheHits = summaryCache.hits;
+                statistics.summaryCacheMisses = summaryCache.misses;
+            }
+            for (var className : settings.whyClasses) {
+                var path = classDependencyGraph.getShortestPath(className);
+                statistics.whyPaths.put(className, path != null ? path.stream().map(c -> c.name).collect(Collectors.toList()) : null);
+            }
+            if (settings.implementationsOf.size() > 0) {
+                var classFiles = new ArrayList<ClassFile>();
+                for (var clazz : classDependencyGraph.reachableClasses.values())
+                    classFiles.add(getClassFile(settings, clazz));
+                var classHierarchy = new ClassHierarchy(classFiles, settings.bootstrapLookup);
+                for (var className : settings.implementationsOf) {
+                    statistics.implementations.put(className, classHierarchy.getImplementations(className).stream()
+                            .filter(classDependencyGraph.reachableClasses::containsKey).sorted().collect(Collectors.toList()));
+                }
+            }
+            for (var rootSetName : rootSetNames)
+                statistics.reachableClassesPerRootSet.put(rootSetName, (int) rootSetsByClass.values().stream().filter(s -> s.contains(rootSetName)).count());
+            return statistics;
+        }
+
+        /** Returns the resources to write to the given output, i.e. all of them, or those of the output's app source. **/
+        private List<String> getFiles(Output output) {
+            return output.source == null ? inputFiles : filesPerSource.getOrDefault(output.source, List.of());
+        }
+    }
+
+    /**
+     * Returns the app source each file of the app lookup is found in, in the order the files are listed.
+     */
+    private static Map<String, Lookup> getSources(Lookup appLookup) {
+        if (appLookup instanceof CombinedLookup) return ((CombinedLookup) appLookup).getSources();
+        var sources = new LinkedHashMap<String, Lookup>();
+        for (var file : appLookup.list())
+            sources.putIfAbsent(file, appLookup);
+        return sources;
+    }
+
+    /**
+     * Shakes the app classes with an {@link ExternalMemoryTraversal}. No class dependency graph is kept on the heap. Reachable app
+     * classes are written to the output and reports while they are traversed. Features that need the full graph are not supported.
+     * <p>
+     * The names of the app files are listed one app source at a time and stored in {@link MappedStringSet} instances, so at most
+     * the listing of a single source is on the heap. Removed classes are reported in class path order instead of sorted.
+     */
+    private static Statistics shakeExternalMemory(Settings settings) throws IOException {
+        var unsupportedOptions = getUnsupportedExternalMemoryOptions(settings);
+        if (!unsupportedOptions.isEmpty())
+            throw new IOException(String.join(", ", unsupportedOptions) + " can not be used with external memory traversal.");
+        var warnings = new ArrayList<String>();
+
+        try (var inputClasses = new MappedStringSet(settings.externalMemory, 64 * 1024);
+             var inputFiles = new MappedStringSet(settings.externalMemory, 1024);
+             var rootClassNames = new MappedStringSet(settings.externalMemory, 1024)) {
+            return shakeExternalMemory(settings, inputClasses, inputFiles, rootClassNames, warnings);
+        }
+    }
+
+    private static Statistics shakeExternalMemory(Settings settings, MappedStringSet inputClasses, MappedStringSet inputFiles, MappedStringSet rootClassNames, List<String> warnings) throws IOException {
+        // Files listed by multiple app sources are only added once, like they are only found once by the app lookup.
         long timeRootClassExpansion = System.nanoTime();
-        var rootClassNames = new ArrayList<String>();
-        var inputClassesAndFiles = settings.appLookup.list();
-        var inputClasses = inputClassesAndFiles.stream().filter(f -> f.endsWith(".class")).collect(Collectors.toList());
-        var inputFiles = inputClassesAndFiles.stream().filter(f -> !f.endsWith(".class")).collect(Collectors.toList());
-        for (var file : inputClasses) {
-            for (var rootPattern : settings.rootClasses) {
-                if (rootPattern.matchesPath(file)) {
-                    rootClassNames.add(file.replace(".class", ""));
-                    break;
+        var lookups = settings.appLookup instanceof CombinedLookup ? ((CombinedLookup) settings.appLookup).getLeafLookups() : List.of(settings.appLookup);
+        for (var lookup : lookups) {
+            for (var file : lookup.list()) {
+                if (!file.endsWith(".class")) {
+                    inputFiles.add(file, 0);
+                } else if (inputClasses.add(file, 0) && isRootClass(settings.rootClasses, file)) {
+                    rootClassNames.add(file.substring(0, file.length() - ".class".length()), 0);
                 }
             }
         }
         if (rootClassNames.size() == 0) throw new IOException("No root classes found in app lookup.");
         timeRootClassExpansion = System.nanoTime() - timeRootClassExpansion;
 
-        // Generate the class dependency graph and gather all reachable app classes.
+        // Traverse the classes, streaming reachable app classes to the output .jar file and reports.
         long timeClassDependencyGraph = System.nanoTime();
-        var warnings = new ArrayList<String>();
-        var classDependencyGraph = ClassDependencyGraphGenerator.generate(settings.appLookup,
-                settings.bootstrapLookup,
-                warnings,
-                rootClassNames.toArray(new String[0]));
-        var reachableAppClasses = classDependencyGraph.reachableClasses.values().stream().filter(cl -> cl.isAppClass).collect(Collectors.toList());
-        timeClassDependencyGraph = System.nanoTime() - timeClassDependencyGraph;
-
-        // Write output .jar file
-        long timeWriteJar = System.nanoTime();
-        if (settings.output != null) {
-            try (var writer = new JarFileWriter(settings.output)) {
+        var reportWriters = new ArrayList<Writer>();
+        String htmlTemplateEnd = null;
+        int[] reachableAppClasses = {0};
+        // The required modules are determined by package, so one bootstrap class per package is kept.
+        var bootstrapClassNames = new HashMap<String, String>();
+        try (var traversal = new ExternalMemoryTraversal(settings.externalMemory, settings.externalMemoryBatchSize);
+             var writer = settings.output != null ? createOutputWriter(settings, settings.output) : null) {
+            if (writer != null) {
                 for (var file : inputFiles)
-                    writer.addFile(file, settings.appLookup.findResource(file));
+                    if (!copyFile(settings.appLookup, writer, file)) writer.addFile(file, settings.appLookup.findResource(file));
+            }
+            if (settings.jsonReport != null) {
+                reportWriters.add(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(settings.jsonReport), StandardCharsets.UTF_8)));
+                reportWriters.get(reportWriters.size() - 1).write("{");
+            }
+            if (settings.htmlReport != null) {
+                var template = new String(Shakyboi.class.getResourceAsStream("/htmlreport.html").readAllBytes(), StandardCharsets.UTF_8);
+                var dataIndex = template.indexOf("%data%");
+                reportWriters.add(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(settings.htmlReport), StandardCharsets.UTF_8)));
+                reportWriters.get(reportWriters.size() - 1).write(template.substring(0, dataIndex));
+                htmlTemplateEnd = template.substring(dataIndex + "%data%".length());
+            }
+            writeReports(reportWriters, "\"reachableClasses\": [\n");
+
+            traversal.traverse(settings.appLookup, settings.bootstrapLookup, warnings, (className, isAppClass, bytes, reachedFrom, depth, dependsOn) -> {
+                if (!isAppClass) {
+                    bootstrapClassNames.putIfAbsent(className.substring(0, Math.max(0, className.lastIndexOf('/'))), className);
+                    return;
+                }
+                if (writer != null) writer.addFile(className + ".class", bytes);
+                if (!reportWriters.isEmpty()) {
+                    // Classes referencing a class are only known after the traversal, and are not reported.
+                    var json = new StringBuilder();
+                    if (reachableAppClasses[0] > 0) json.append(",\n");
+                    json.append("{ \"name\": \"").append(className.replace('/', '.')).append("\", \"isAppClass\": true, \"isRootClass\": ").append(reachedFrom == null);
+                    json.append(", \"reachedFrom\": ").append(reachedFrom != null ? "\"" + reachedFrom.replace('/', '.') + "\"" : "null").append(", \"dependsOn\": [");
+                    json.append(dependsOn.stream().filter(traversal::isAppClass).sorted().map(c -> "\"" + c.replace('/', '.') + "\"").collect(Collectors.joining(", ")));
+                    json.append("], \"referencedBy\": [] }");
+                    writeReports(reportWriters, json.toString());
+                }
+                reachableAppClasses[0]++;
+            }, rootClassNames);
+            timeClassDependencyGraph = System.nanoTime() - timeClassDependencyGraph;
 
-                for (var clazz : reachableAppClasses)
-                    writer.addFile(clazz.classFile.getName() + ".class", clazz.classFile.originalData);
+            writeReports(reportWriters, "\n], \"removedClasses\": [\n");
+            boolean isFirstRemovedClass = true;
+            for (var file : inputClasses) {
+                var className = file.substring(0, file.length() - ".class".length());
+                if (traversal.isReachable(className)) continue;
+                writeReports(reportWriters, (isFirstRemovedClass ? "\"" : ",\n\"") + className.replace('/', '.') + "\"");
+                isFirstRemovedClass = false;
             }
+            if (!isFirstRemovedClass) writeReports(reportWriters, "\n");
+            writeReports(reportWriters, "], \"cycles\": [], \"rootSets\": [], \"appSources\": [], \"minimalClasspath\": [], \"duplicateClasses\": [], \"diff\": null");
+            if (settings.jsonReport != null) reportWriters.get(0).write("}");
+            if (settings.htmlReport != null) reportWriters.get(reportWriters.size() - 1).write(htmlTemplateEnd);
+            if (traversal.getSpilledClasses() > 0)
+                warnings.add("Spilled " + traversal.getSpilledClasses() + " queued classes to disk.");
+        } finally {
+            for (var reportWriter : reportWriters)
+                reportWriter.close();
+        }
+        var requiredModules = getRequiredModules(settings.bootstrapLookup, bootstrapClassNames.values(), warnings);
+        if (settings.jlinkModules != null) writeJlinkModules(settings.jlinkModules, requiredModules);
+        var statistics = new Statistics(inputClasses.size(), reachableAppClasses[0], warnings, timeRootClassExpansion / 1e9f, timeClassDependencyGraph / 1e9f, 0, 0);
+        statistics.requiredModules.addAll(requiredModules);
+        return statistics;
+    }
+
+    /**
+     * Returns the command line options set in the given settings that can not be used with {@link Settings#externalMemory}. They
+     * either need the full class dependency graph, or keep all classes or files on the heap, e.g. class bundles.
+     *
+     * @param settings the settings
+     * @return the unsupported options, empty if there are none
+     */
+    public static List<String> getUnsupportedExternalMemoryOptions(Settings settings) {
+        var options = new ArrayList<String>();
+        if (!settings.rootSets.isEmpty()) options.add("--root-set");
+        if (settings.rapidTypeAnalysis) options.add("--rta");
+        if (settings.graphSnapshot != null) options.add("--graph-snapshot");
+        if (settings.diffAgainst != null) options.add("--diff-against");
+        if (!settings.whyClasses.isEmpty()) options.add("--why");
+        if (!settings.implementationsOf.isEmpty()) options.add("--implementations");
+        if (settings.lowMemory) options.add("--low-memory");
+        if (settings.summaryCache != null) options.add("--summary-cache");
+        if (settings.shakeResources) options.add("--shake-resources");
+        if (settings.outputPerApp) options.add("--output-per-app");
+        if (settings.bundleOutput) options.add("--bundle");
+        if (settings.classLoadLog != null) options.add("--class-load-log");
+        if (settings.nativeImageConfig != null) options.add("--native-image-config");
+        if (settings.cdsClassList != null) options.add("--cds-classlist");
+        if (settings.cdsArchive != null) options.add("--cds-archive");
+        if (settings.detectDuplicateClasses) options.add("--duplicates");
+        if (settings.validateOutput) options.add("--validate");
+        return options;
+    }
+
+    private static void writeReports(List<Writer> writers, String text) throws IOException {
+        for (var writer : writers)
+            writer.write(text);
+    }
+
+    /**
+     * Returns the output <code>.jar</code> file or directory for each app source if {@link Settings#outputPerApp} is set. App sources are the
+     * {@link CombinedLookup#getLeafLookups()} of the app lookup. Outputs are named after their source, e.g. <code>lib/guava.jar</code> becomes
+     * <code>guava.jar</code> and the directory <code>build/classes</code> becomes <code>classes.jar</code> in the output directory.
+     *
+     * @param appLookup       the app lookup given in the {@link Settings}
+     * @param outputDirectory the output directory given in the {@link Settings}
+     * @param exploded        whether the outputs are directories, see {@link Settings#explodedOutput}
+     * @return the output of each app source, in search order
+     */
+    public static Map<Lookup, File> getAppOutputs(Lookup appLookup, File outputDirectory, boolean exploded) {
+        var lookups = appLookup instanceof CombinedLookup ? ((CombinedLookup) appLookup).getLeafLookups() : List.of(appLookup);
+        var outputs = new LinkedHashMap<Lookup, File>();
+        var names = new HashSet<String>();
+        for (var lookup : lookups) {
+            String name;
+            if (lookup instanceof JarLookup) name = ((JarLookup) lookup).getFile().getName().replaceAll("\\.jar$", "");
+            else if (lookup instanceof DirectoryLookup) name = ((DirectoryLookup) lookup).getDirectory().getAbsoluteFile().toPath().normalize().toFile().getName();
+            else name = "app";
+            if (name.isEmpty()) name = "app";
+            var uniqueName = name;
+            for (int i = 2; !names.add(uniqueName); i++)
+                uniqueName = name + "-" + i;
+            outputs.put(lookup, new File(outputDirectory, exploded ? uniqueName : uniqueName + ".jar"));
         }
-        timeWriteJar = System.nanoTime() - timeWriteJar;
+        return outputs;
+    }
 
-        // Create report if requested
-        long timeReport = System.nanoTime();
-        if (settings.htmlReport != null) generateHtmlReport(settings, inputClasses, classDependencyGraph);
-        if (settings.jsonReport != null) generateJsonReport(settings, inputClasses, classDependencyGraph);
-        timeReport = System.nanoTime() - timeReport;
+    /**
+     * Returns the output <code>.jar</code> file for the given root set. The root set name is appended to the
+     * name of the output file, e.g. <code>app.jar</code> becomes <code>app-service.jar</code>.
+     *
+     * @param output      the output file given in the {@link Settings}
+     * @param rootSetName the name of the root set
+     * @return the output file of the root set
+     */
+    public static File getRootSetOutput(File output, String rootSetName) {
+        return getRootSetOutput(output, rootSetName, false);
+    }
 
-        return new Statistics(inputClasses.size(), reachableAppClasses.size(), warnings, timeRootClassExpansion / 1e9f, timeClassDependencyGraph / 1e9f, timeWriteJar / 1e9f, timeReport / 1e9f);
+    /**
+     * Returns the output <code>.jar</code> file or directory for the given root set. For directories, the root set name is appended
+     * to the name of the directory, e.g. <code>classes</code> becomes <code>classes-service</code>.
+     *
+     * @param output      the output file or directory given in the {@link Settings}
+     * @param rootSetName the name of the root set
+     * @param exploded    whether the output is a directory, see {@link Settings#explodedOutput}
+     * @return the output file or directory of the root set
+     * @throws IllegalArgumentException if the root set name is not valid, see {@link #isValidRootSetName(String)}
+     */
+    public static File getRootSetOutput(File output, String rootSetName, boolean exploded) {
+        if (!isValidRootSetName(rootSetName)) throw new IllegalArgumentException("Invalid root set name '" + rootSetName + "'.");
+        if (exploded) return new File(output.getAbsoluteFile().getParentFile(), output.getName() + "-" + rootSetName);
+        var name = output.getName();
+        var extensionIndex = name.lastIndexOf('.');
+        var baseName = extensionIndex > 0 ? name.substring(0, extensionIndex) : name;
+        var extension = extensionIndex > 0 ? name.substring(extensionIndex) : ".jar";
+        return new File(output.getAbsoluteFile().getParentFile(), baseName + "-" + rootSetName + extension);
     }
 
-    private static String generateJson(List<String> inputClasses, ClassDependencyGraph classDependencyGraph) {
+    /**
+     * Returns whether the given root set name is valid. Root set names are used in the names of output files and in reports, so
+     * they may only consist of letters, digits, '.', '_' and '-'.
+     *
+     * @param rootSetName the name of the root set
+     * @return whether the name is valid
+     */
+    public static boolean isValidRootSetName(String rootSetName) {
+        return rootSetName.matches("[A-Za-z0-9._-]+");
+    }
+
+    private static List<String> expandRootClasses(List<Pattern> rootPatterns, List<String> inputClasses) {
+        var rootClassNames = new ArrayList<String>();
+        for (var file : inputClasses) {
+            if (isRootClass(rootPatterns, file)) rootClassNames.add(file.replace(".class", ""));
+        }
+        return rootClassNames;
+    }
+
+    private static boolean isRootClass(List<Pattern> rootPatterns, String file) {
+        for (var rootPattern : rootPatterns) {
+            if (rootPattern.matchesPath(file)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a {@link Lookup} reading the given written output.
+     */
+    private static Lookup getOutputLookup(Settings settings, File output) {
+        if (settings.bundleOutput) return new BundleLookup(output);
+        if (settings.explodedOutput) return new DirectoryLookup(output);
+        return new JarLookup(output);
+    }
+
+    private static OutputWriter createOutputWriter(Settings settings, File output) {
+        if (settings.bundleOutput) return new ClassBundleWriter(output);
+        if (settings.explodedOutput) return new DirectoryWriter(output, settings.writerThreads, settings.hardLinks, settings.externalMemory);
+        return new JarFileWriter(output, settings.compressionLevel, settings.writerThreads, settings.storedOutput, settings.externalMemory);
+    }
+
+    /**
+     * Returns the resources referenced by the given classes, see {@link ResourceShaker} and {@link Settings#shakeResources}.
+     */
+    private static List<String> shakeResources(Settings settings, List<String> inputFiles, List<ClassDependencyGraph.ClassNode> classes) throws IOException {
+        var resourceShaker = new ResourceShaker(inputFiles);
+        for (var clazz : classes)
+            resourceShaker.addReferences(getClassFile(settings, clazz));
+        return resourceShaker.getKeptResources(settings.keepResources);
+    }
+
+    /**
+     * Writes the given resources to the output. Returns the written resources.
+     */
+    private static List<String> writeResources(Settings settings, OutputWriter writer, List<String> files) throws IOException {
+        for (var file : files)
+            if (!copyFile(settings.appLookup, writer, file)) writer.addFile(file, settings.appLookup.findResource(file));
+        return files;
+    }
+
+    private static void writeClasses(Settings settings, OutputWriter writer, List<ClassDependencyGraph.ClassNode> classes) throws IOException {
+        for (var clazz : classes)
+            if (clazz.modifiedData != null || !copyFile(settings.appLookup, writer, clazz.name + ".class"))
+                writer.addFile(clazz.name + ".class", getClassBytes(settings, clazz));
+    }
+
+    /**
+     * Waits for a task of the pipeline and returns its result, rethrowing its exception.
+     */
+    private static <T> T await(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while waiting for pipeline task", e);
+        }
+    }
+
+    /**
+     * Returns the time in nanoseconds the two intervals overlap.
+     */
+    private static long getOverlap(long start1, long end1, long start2, long end2) {
+        return Math.max(0, Math.min(end1, end2) - Math.max(start1, start2));
+    }
+
+    /**
+     * Writes all reachable app and bootstrap classes to the {@link Settings#cdsClassList} in their expected load order, with supertypes
+     * before subtypes. If a {@link Settings#cdsArchive} is given, the JVM running Shakyboi is invoked with <code>-Xshare:dump</code>
+     * to create the AppCDS archive from the class list and the output <code>.jar</code> file.
+     */
+    private static void writeCdsClassListAndArchive(Settings settings, ClassDependencyGraph classDependencyGraph, List<String> warnings) throws IOException {
+        var loadedClassNames = settings.classLoadLog != null ? ClassLoadOrder.readClassLoadLog(settings.classLoadLog) : null;
+        var classes = ClassLoadOrder.sort(classDependencyGraph.reachableClasses.values(), loadedClassNames);
+        var supertypes = new HashMap<String, List<String>>();
+        for (var clazz : classes) {
+            var classFile = getClassFile(settings, clazz);
+            var names = new ArrayList<String>();
+            if (classFile.superClass != 0) names.add(classFile.getSuperClassName());
+            for (int index : classFile.interfaces)
+                names.add(((ClassFile.ClassInfoEntry) classFile.constantPool.get(index)).getName());
+            supertypes.put(clazz.name, names);
+        }
+        classes = ClassLoadOrder.sortSupertypesFirst(classes, clazz -> supertypes.get(clazz.name));
+
+        var classList = settings.cdsClassList;
+        if (classList == null) {
+            classList = File.createTempFile("shakyboi", ".classlist");
+            classList.deleteOnExit();
+        }
+        try (var writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(classList), StandardCharsets.UTF_8))) {
+            for (var clazz : classes) {
+                // module-info classes can't be loaded, and package-info classes are never loaded eagerly.
+                if (clazz.name.endsWith("module-info") || clazz.name.endsWith("package-info")) continue;
+                writer.write(clazz.name);
+                writer.write('\n');
+            }
+        }
+
+        if (settings.cdsArchive == null) return;
+        if (settings.output == null || settings.explodedOutput || !settings.rootSets.isEmpty() || settings.outputPerApp || settings.bundleOutput) {
+            warnings.add("A CDS archive can only be created for a single output .jar file, skipping the archive.");
+            return;
+        }
+        var java = new File(System.getProperty("java.home"), "bin/java").getAbsolutePath();
+        var process = new ProcessBuilder(java, "-Xshare:dump",
+                "-XX:SharedClassListFile=" + classList.getAbsolutePath(),
+                "-XX:SharedArchiveFile=" + settings.cdsArchive.getAbsolutePath(),
+                "-cp", settings.output.getAbsolutePath())
+                .redirectErrorStream(true).start();
+        var processOutput = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            if (process.waitFor() != 0) throw new IOException("Couldn't create CDS archive " + settings.cdsArchive.getAbsolutePath() + ":\n" + processOutput);
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while creating CDS archive " + settings.cdsArchive.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Writes the GraalVM <code>native-image</code> configuration for the root classes and kept resources to the {@link Settings#nativeImageConfig}
+     * directory, see {@link NativeImageConfigGenerator}.
+     */
+    private static void writeNativeImageConfig(Settings settings, ClassDependencyGraph classDependencyGraph, Collection<String> rootClassNames, List<String> resources) throws IOException {
+        var buildTimeInitialized = NativeImageConfigGenerator.getBuildTimeInitializedClasses(classDependencyGraph.reachableClasses.values(), clazz -> {
+            try {
+                return getClassFile(settings, clazz);
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't read class " + clazz.name.replace('/', '.'), e);
+            }
+        });
+        NativeImageConfigGenerator.write(settings.nativeImageConfig, rootClassNames, resources, buildTimeInitialized);
+    }
+
+    /**
+     * Returns the names of the JDK modules containing the given bootstrap classes, sorted, as determined by
+     * {@link Lookup#findModule(String)}. <code>java.base</code> is always included, as every app requires it. Returns an empty
+     * list and adds a warning if the bootstrap lookup has no module information, e.g. because it is a <code>.jar</code> file.
+     * <p>
+     * Modules only used via reflection or service loading, e.g. <code>jdk.charsets</code> or <code>jdk.crypto.ec</code>, are not
+     * included, and have to be added to the <code>jlink</code> command line manually.
+     *
+     * @param bootstrapLookup     the {@link Lookup} the bootstrap classes were found in
+     * @param bootstrapClassNames the internal names of the reachable bootstrap classes
+     * @param warnings            the list to add warnings to
+     * @return the module names
+     */
+    public static List<String> getRequiredModules(Lookup bootstrapLookup, Collection<String> bootstrapClassNames, List<String> warnings) {
+        var modules = new TreeSet<String>();
+        for (var className : bootstrapClassNames) {
+            var module = bootstrapLookup.findModule(className);
+            if (module != null) modules.add(module);
+        }
+        if (modules.isEmpty()) {
+            if (!bootstrapClassNames.isEmpty())
+                warnings.add("The bootstrap lookup has no module information, can't determine the required JDK modules.");
+            return new ArrayList<>();
+        }
+        modules.add("java.base");
+        return new ArrayList<>(modules);
+    }
+
+    /**
+     * Writes the comma separated module names to the file, to be passed to <code>jlink --add-modules</code>.
+     */
+    private static void writeJlinkModules(File file, List<String> modules) throws IOException {
+        try {
+            Files.writeString(file.toPath(), String.join(",", modules) + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IOException("Couldn't write jlink module list " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Copies an unmodified file without reading it into memory. The compressed data of files from <code>.jar</code> files is copied
+     * as is to output <code>.jar</code> files, and files from directories are copied or linked to output directories. Returns false if
+     * the file has to be added via {@link OutputWriter#addFile(String, byte[])} instead.
+     */
+    private static boolean copyFile(Lookup lookup, OutputWriter writer, String name) {
+        var source = lookup instanceof CombinedLookup ? ((CombinedLookup) lookup).findLookup(name) : lookup;
+        if (writer instanceof DirectoryWriter) {
+            if (!(source instanceof DirectoryLookup)) return false;
+            ((DirectoryWriter) writer).copyFile(name, ((DirectoryLookup) source).getFile(name));
+            return true;
+        }
+        if (!(source instanceof JarLookup) || !(writer instanceof JarFileWriter)) return false;
+        var jarWriter = (JarFileWriter) writer;
+        var jarLookup = (JarLookup) source;
+        var entry = jarLookup.getEntry(name);
+        if (entry == null || !entry.isCopyable()) return false;
+        // Deflated entries have to be inflated to be stored.
+        if (jarWriter.isStored() && entry.method != ZipEntry.STORED) return false;
+        jarWriter.copyFile(name, jarLookup.getChannel(), entry);
+        return true;
+    }
+
+    /**
+     * Returns the bytes to output for the given class. Classes generated in low-memory mode no longer hold their bytes, which are
+     * then read from the lookup again.
+     */
+    private static byte[] getClassBytes(Settings settings, ClassDependencyGraph.ClassNode clazz) throws IOException {
+        if (clazz.modifiedData != null) return clazz.modifiedData;
+        if (clazz.classFile != null) return clazz.classFile.originalData;
+        var bytes = clazz.isAppClass ? settings.appLookup.findClass(clazz.name) : settings.bootstrapLookup.findClass(clazz.name);
+        if (bytes == null) throw new IOException("Couldn't find class " + clazz.name.replace('/', '.') + " in lookup.");
+        return bytes;
+    }
+
+    private static ClassFile getClassFile(Settings settings, ClassDependencyGraph.ClassNode clazz) throws IOException {
+        if (clazz.classFile != null) return clazz.classFile;
+        return ClassFileReader.readClassFile(clazz.name, getClassBytes(settings, clazz));
+    }
+
+    private static String generateJson(List<String> inputClasses, ClassDependencyGraph classDependencyGraph, Map<String, List<String>> rootSetsByClass, ClasspathUsage classpathUsage, DuplicateClasses duplicateClasses, ClassDependencyGraphDiff diff) {
         var reachableJson = ClassDependencyGraphGenerator.generateJSON(classDependencyGraph, true);
         var removedClasses = inputClasses.stream()
                 .map(s -> s.replace(".class", ""))
@@ -93,18 +919,50 @@ public class Shakyboi {
             else removedJson.append("\n");
         }
         removedJson.append("]\n");
-        return "\"reachableClasses\": " + reachableJson + ", \"removedClasses\": " + removedJson;
+
+        // Report dependency cycles between app classes, based on the strongly connected components of the graph.
+        var cyclesJson = new StringBuilder();
+        cyclesJson.append("[\n");
+        var cycles = ComponentGraphGenerator.generate(classDependencyGraph).getCycles().stream()
+                .map(c -> c.classes.stream().filter(cl -> cl.isAppClass).map(cl -> cl.name.replace('/', '.')).sorted().collect(Collectors.toList()))
+                .filter(c -> c.size() > 1).collect(Collectors.toList());
+        for (int i = 0; i < cycles.size(); i++) {
+            cyclesJson.append(cycles.get(i).stream().map(c -> "\"" + c + "\"").collect(Collectors.joining(", ", "[", "]")));
+            if (i < cycles.size() - 1) cyclesJson.append(",\n");
+            else cyclesJson.append("\n");
+        }
+        cyclesJson.append("]\n");
+
+        // Report which root sets keep each class, if multiple root sets were given.
+        var rootSetsJson = new StringBuilder();
+        rootSetsJson.append("[\n");
+        var rootSetClasses = rootSetsByClass.keySet().stream().sorted().collect(Collectors.toList());
+        for (int i = 0; i < rootSetClasses.size(); i++) {
+            var className = rootSetClasses.get(i);
+            rootSetsJson.append("{ \"name\": \"").append(className.replace('/', '.')).append("\", \"rootSets\": ");
+            rootSetsJson.append(rootSetsByClass.get(className).stream().map(r -> "\"" + escape(r) + "\"").collect(Collectors.joining(", ", "[", "]"))).append(" }");
+            if (i < rootSetClasses.size() - 1) rootSetsJson.append(",\n");
+            else rootSetsJson.append("\n");
+        }
+        rootSetsJson.append("]\n");
+        var diffJson = diff != null ? ClassDependencyGraphDiff.generateJSON(diff) : "null";
+        return "\"reachableClasses\": " + reachableJson + ", \"removedClasses\": " + removedJson + ", \"cycles\": " + cyclesJson + ", \"rootSets\": " + rootSetsJson + ", " + classpathUsage.generateJSON() +
+                ", \"duplicateClasses\": " + (duplicateClasses != null ? duplicateClasses.generateJSON(classDependencyGraph) : "[]") + ", \"diff\": " + diffJson;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
-    private static void generateJsonReport(Settings settings, List<String> inputClasses, ClassDependencyGraph classDependencyGraph) throws IOException {
-        String json = generateJson(inputClasses, classDependencyGraph);
+    private static void generateJsonReport(Settings settings, List<String> inputClasses, ClassDependencyGraph classDependencyGraph, Map<String, List<String>> rootSetsByClass, ClasspathUsage classpathUsage, DuplicateClasses duplicateClasses, ClassDependencyGraphDiff diff) throws IOException {
+        String json = generateJson(inputClasses, classDependencyGraph, rootSetsByClass, classpathUsage, duplicateClasses, diff);
         try (FileWriter writer = new FileWriter(settings.jsonReport)) {
             writer.write("{" + json + "}");
         }
     }
 
-    private static void generateHtmlReport(Settings settings, List<String> inputClasses, ClassDependencyGraph classDependencyGraph) throws IOException {
-        var json = generateJson(inputClasses, classDependencyGraph);
+    private static void generateHtmlReport(Settings settings, List<String> inputClasses, ClassDependencyGraph classDependencyGraph, Map<String, List<String>> rootSetsByClass, ClasspathUsage classpathUsage, DuplicateClasses duplicateClasses, ClassDependencyGraphDiff diff) throws IOException {
+        var json = generateJson(inputClasses, classDependencyGraph, rootSetsByClass, classpathUsage, duplicateClasses, diff);
         var template = new String(Shakyboi.class.getResourceAsStream("/htmlreport.html").readAllBytes(), StandardCharsets.UTF_8);
         template = template.replace("%data%", json);
         try (FileWriter out = new FileWriter(settings.htmlReport)) {
@@ -112,6 +970,59 @@ public class Shakyboi {
         }
     }
 
+    /**
+     * Tracks the heap usage during {@link #shake(Settings)}. The peak usage of the heap memory pools is reset on construction. The
+     * live heap usage is the heap usage right after a garbage collection, as reported by garbage collection notifications.
+     */
+    private static class HeapUsageMonitor implements NotificationListener {
+        private final List<NotificationEmitter> emitters = new ArrayList<>();
+        private final Set<String> heapPoolNames = new HashSet<>();
+        volatile long peakLiveHeapUsage;
+
+        HeapUsageMonitor() {
+            for (var memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (memoryPool.getType() != MemoryType.HEAP) continue;
+                memoryPool.resetPeakUsage();
+                heapPoolNames.add(memoryPool.getName());
+            }
+            for (var garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (!(garbageCollector instanceof NotificationEmitter)) continue;
+                var emitter = (NotificationEmitter) garbageCollector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+            var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long liveHeapUsage = 0;
+            for (var entry : info.getGcInfo().getMemoryUsageAfterGc().entrySet())
+                if (heapPoolNames.contains(entry.getKey())) liveHeapUsage += entry.getValue().getUsed();
+            synchronized (this) {
+                peakLiveHeapUsage = Math.max(peakLiveHeapUsage, liveHeapUsage);
+            }
+        }
+
+        long getPeakHeapUsage() {
+            long peakHeapUsage = 0;
+            for (var memoryPool : ManagementFactory.getMemoryPoolMXBeans())
+                if (memoryPool.getType() == MemoryType.HEAP) peakHeapUsage += memoryPool.getPeakUsage().getUsed();
+            return peakHeapUsage;
+        }
+
+        void dispose() {
+            for (var emitter : emitters) {
+                try {
+                    emitter.removeNotificationListener(this);
+                } catch (ListenerNotFoundException e) {
+                    // Already removed, nothing to do.
+                }
+            }
+        }
+    }
+
     /**
      * Statistics generated by {@link #shake(Settings)}.
      */
@@ -122,14 +1033,55 @@ public class Shakyboi {
         public final int reachableClasses;
         /** Warning messages generated by {@link #shake(Settings)} */
         public final List<String> warnings;
-        /** Time in seconds to generate the class dependency graph */
+        /** Time in seconds to expand the root class patterns */
         public final float timeRootClassExpansion;
         /** Time in seconds to generate the class dependency graph */
         public final float timeClassDependencyGraph;
-        /** Time in seconds to write the output .jar file */
+        /** Time in seconds to add the classes to the output .jar file(s) and finalize them */
         public final float timeWriteJar;
-        /** Time in seconds to write the report(s) */
+        /** Time in seconds to write the report(s) and graph snapshot, concurrently with the finalization of the output(s) */
         public final float timeWriteReport;
+        /** Time in seconds to write the resources, concurrently with root class expansion and graph generation. 0 if resources are shaken. */
+        public float timeWriteResources;
+        /** Time in seconds of {@link #timeWriteResources} that overlapped with root class expansion and graph generation */
+        public float timeWriteResourcesOverlap;
+        /** Time in seconds of {@link #timeWriteReport} that overlapped with the finalization of the output(s) */
+        public float timeWriteReportOverlap;
+        /** Wall-clock time in seconds of all phases */
+        public float timeTotal;
+        /** Shortest path from a root class for each class in {@link Settings#whyClasses}, null if the class is not reachable */
+        public final Map<String, List<String>> whyPaths = new LinkedHashMap<>();
+        /** Kept non-abstract implementations of each class in {@link Settings#implementationsOf} */
+        public final Map<String, List<String>> implementations = new LinkedHashMap<>();
+        /** Difference of the app classes to the graph snapshot given in {@link Settings#diffAgainst}, null if none was given */
+        public ClassDependencyGraphDiff diff;
+        /** Number of <code>.jar</code> files whose class summaries were found in the {@link Settings#summaryCache} */
+        public int summaryCacheHits;
+        /** Number of <code>.jar</code> files whose class summaries had to be computed and were written to the {@link Settings#summaryCache} */
+        public int summaryCacheMisses;
+        /** Peak heap usage in bytes during {@link #shake(Settings)}, summed over all heap memory pools */
+        public long peakHeapUsage;
+        /** Peak heap usage in bytes right after a garbage collection during {@link #shake(Settings)}, 0 if no garbage collection happened */
+        public long peakLiveHeapUsage;
+        /** Total number of app resources, i.e. non-class files */
+        public int totalResources;
+        /** Number of app resources not written to any output, see {@link Settings#shakeResources} */
+        public int removedResources;
+        /**
+         * Names of the JDK modules containing the reachable bootstrap classes, sorted, see {@link #getRequiredModules(Lookup, Collection, List)}.
+         * Empty if the {@link Settings#bootstrapLookup} has no module information.
+         */
+        public final List<String> requiredModules = new ArrayList<>();
+        /** The reachable and removed app classes of each app source, and the minimal class path. Only computed if a report is written or there are multiple app sources, otherwise null. Null for external memory traversals. */
+        public ClasspathUsage classpathUsage;
+        /** The classes contained in multiple app sources, if {@link Settings#detectDuplicateClasses} is set, otherwise null */
+        public DuplicateClasses duplicateClasses;
+        /** References of kept classes to classes missing from the output and bootstrap lookup, if {@link Settings#validateOutput} is set */
+        public final List<ClosureValidator.DanglingReference> danglingReferences = new ArrayList<>();
+        /** Time in seconds to validate the output(s), concurrently with writing the report(s) */
+        public float timeValidate;
+        /** Number of reachable app classes for each root set in {@link Settings#rootSets} */
+        public final Map<String, Integer> reachableClassesPerRootSet = new LinkedHashMap<>();
 
         public Statistics(int totalClasses, int reachableClasses, List<String> warnings, float timeRootClassExpansion, float timeClassDependencyGraph, float timeWriteJar, float timeWriteReport) {
             this.totalClasses = totalClasses;
@@ -159,6 +1111,131 @@ public class Shakyboi {
         public final File htmlReport;
         /** Optionel JSON report file, may be null **/
         public final File jsonReport;
+        /** Optional file to write a binary {@link ClassDependencyGraphSnapshot} of the class dependency graph to, may be null **/
+        public File graphSnapshot;
+        /**
+         * Optional {@link ClassDependencyGraphSnapshot} file of a previous run, e.g. of the last release. If given, the added and removed
+         * app classes and dependencies are reported in {@link Statistics#diff} and the reports. May be null.
+         **/
+        public File diffAgainst;
+        /** Classes to report the shortest path from a root class for in {@link Statistics#whyPaths}, given as internal names **/
+        public final List<String> whyClasses = new ArrayList<>();
+        /** Classes or interfaces to report the kept implementations of in {@link Statistics#implementations}, given as internal names **/
+        public final List<String> implementationsOf = new ArrayList<>();
+        /**
+         * Optional named root sets, each given as a list of {@link io.marioslab.shakyboi.util.Pattern} instances. If given, one output
+         * <code>.jar</code> file per root set is written, see {@link #getRootSetOutput(File, String)}. The {@link #rootClasses} are
+         * shared by all root sets. Names must be valid, see {@link #isValidRootSetName(String)}.
+         **/
+        public final Map<String, List<Pattern>> rootSets = new LinkedHashMap<>();
+        /**
+         * Whether to use {@link RapidTypeAnalysis} instead of {@link ClassDependencyGraphGenerator}. Only keeps classes used by reachable
+         * methods, and removes unreachable methods from kept classes.
+         **/
+        public boolean rapidTypeAnalysis;
+        /**
+         * Whether to drop the parsed class files and their bytes as soon as the dependencies of a class have been collected. Class bytes are
+         * read from the {@link #appLookup} again when writing the output. Reduces peak heap usage for large inputs. Not supported by
+         * {@link #rapidTypeAnalysis}.
+         **/
+        public boolean lowMemory;
+        /**
+         * Optional directory of a {@link ClassSummaryCache}, which can be shared by multiple projects and runs. App classes from <code>.jar</code>
+         * files found in the cache are not parsed, and only read if they are written to the output. May be null. Not supported by
+         * {@link #rapidTypeAnalysis}.
+         **/
+        public File summaryCache;
+        /**
+         * Optional directory to store the files of an {@link ExternalMemoryTraversal} in. If given, the app classes are traversed without
+         * keeping a class dependency graph on the heap, and results are streamed to the output and reports. Settings needing the full
+         * graph are not supported in this mode, see {@link Shakyboi#getUnsupportedExternalMemoryOptions(Settings)}. May be null.
+         **/
+        public File externalMemory;
+        /**
+         * The maximum number of queued classes the {@link ExternalMemoryTraversal} keeps on the heap, see {@link #externalMemory}.
+         * Lower values reduce heap usage, at the cost of spilling more of the queue to disk.
+         **/
+        public int externalMemoryBatchSize = ExternalMemoryTraversal.DEFAULT_BATCH_SIZE;
+        /**
+         * Whether to write the classes of the output <code>.jar</code> files in their expected load order, see {@link ClassLoadOrder},
+         * so class loading during startup reads the file sequentially.
+         **/
+        public boolean startupOrder;
+        /**
+         * Optional <code>-Xlog:class+load</code> log of a trial run. If given, classes are written in the order they were loaded in
+         * the log, followed by all other classes in the order given by {@link #startupOrder}. May be null.
+         **/
+        public File classLoadLog;
+        /**
+         * Optional file to write an AppCDS class list to, to be passed to <code>-XX:SharedClassListFile</code>. Lists all reachable app
+         * and bootstrap classes in their expected load order. May be null.
+         **/
+        public File cdsClassList;
+        /**
+         * Optional file to write an AppCDS archive to, created by running <code>-Xshare:dump</code> with the class list and the output
+         * <code>.jar</code> file on the JVM running Shakyboi. Pass it to the app via <code>-XX:SharedArchiveFile</code>. May be null.
+         **/
+        public File cdsArchive;
+        /** The compression level of the output <code>.jar</code> files, from 0-9, or {@link Deflater#DEFAULT_COMPRESSION} **/
+        public int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        /**
+         * Whether to only keep resources, i.e. non-class files, referenced by <code>CONSTANT_String</code> entries of the kept
+         * classes, see {@link ResourceShaker}. Resources in <code>META-INF/</code> are always kept.
+         **/
+        public boolean shakeResources;
+        /** Patterns of resources to keep if {@link #shakeResources} is set, even if they are not referenced **/
+        public final List<Pattern> keepResources = new ArrayList<>();
+        /**
+         * The directory to write a GraalVM <code>native-image</code> configuration for the root classes and kept resources to, see
+         * {@link NativeImageConfigGenerator}. Optional.
+         **/
+        public File nativeImageConfig;
+        /**
+         * The file to write the comma separated names of the JDK modules required by the reachable classes to, to be passed to
+         * <code>jlink --add-modules</code>, see {@link Statistics#requiredModules}. Optional.
+         **/
+        public File jlinkModules;
+        /**
+         * Whether to scan the app sources for classes contained in multiple sources, see {@link DuplicateClasses}. Only the first
+         * copy of a class is written to the output. Reachable classes with conflicting copies are reported as warnings.
+         **/
+        public boolean detectDuplicateClasses;
+        /**
+         * Whether to validate the written output(s) after shaking, i.e. check that all classes referenced by kept classes can be found
+         * in the output(s) or the {@link #bootstrapLookup}, see {@link ClosureValidator}. Missing classes are reported in
+         * {@link Statistics#danglingReferences}.
+         **/
+        public boolean validateOutput;
+        /**
+         * Whether to write the output as a class bundle instead of a <code>.jar</code> file, to be loaded by a
+         * {@link io.marioslab.shakyboi.runtime.BundleClassLoader}, see {@link ClassBundleWriter}. Classes are written in their
+         * expected load order, see {@link #startupOrder}. Not supported with {@link #outputPerApp} or {@link #explodedOutput}.
+         **/
+        public boolean bundleOutput;
+        /**
+         * Whether to write one output per app source, i.e. per {@link CombinedLookup#getLeafLookups()} of the {@link #appLookup}, to the
+         * {@link #output} directory, see {@link Shakyboi#getAppOutputs(Lookup, File, boolean)}. Each output contains the reachable classes
+         * and resources of its source in the order of the source. Entries of output <code>.jar</code> files have a fixed modification time,
+         * so outputs of unchanged sources with unchanged reachable classes are byte-identical across runs. Not supported with {@link #rootSets}.
+         **/
+        public boolean outputPerApp;
+        /**
+         * Whether to write the output to a directory tree instead of a <code>.jar</code> file, see {@link DirectoryWriter}. If true,
+         * {@link #output} is a directory. Options specific to <code>.jar</code> files, like {@link #storedOutput}, are ignored.
+         **/
+        public boolean explodedOutput;
+        /**
+         * Whether to hard link unmodified files of app directories into the output directory, instead of copying them, if
+         * {@link #explodedOutput} is true. Linked files share their content with the app files.
+         **/
+        public boolean hardLinks;
+        /**
+         * Whether to store the entries of the output <code>.jar</code> files uncompressed, with their data aligned to page boundaries,
+         * see {@link JarFileWriter#JarFileWriter(File, int, int, boolean)}. Trades file size for no inflate cost when loading classes.
+         **/
+        public boolean storedOutput;
+        /** The number of threads compressing the entries of the output <code>.jar</code> files **/
+        public int writerThreads = Runtime.getRuntime().availableProcessors();
 
         /**
          * Creates a new settings instance to be passed to {@link #shake(Settings)}.
@@ -1,11 +1,17 @@
 package io.marioslab.shakyboi;
 
+import io.marioslab.shakyboi.graph.ClasspathUsage;
+import io.marioslab.shakyboi.graph.ExternalMemoryTraversal;
 import io.marioslab.shakyboi.lookup.*;
 import io.marioslab.shakyboi.util.Pattern;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 /**
  * Command line driver for Shakyboi.
@@ -14,23 +20,129 @@ public class ShakyboiCLI {
     public static void main(String[] args) throws IOException {
         var settings = parseArgs(args);
         long start = System.nanoTime();
-        Shakyboi.Statistics stats = new Shakyboi().shake(settings);
+        Shakyboi.Statistics stats;
+        try {
+            stats = new Shakyboi().shake(settings);
+        } finally {
+            settings.appLookup.close();
+            settings.bootstrapLookup.close();
+        }
         var took = (System.nanoTime() - start) / 1e9;
         stats.warnings.forEach(s -> System.err.println("WARNING: " + s));
         System.out.println("Root class expansion:    " + stats.timeRootClassExpansion + " secs");
-        System.out.println("Class dependency graph:  " + stats.timeRootClassExpansion + " secs");
+        System.out.println("Class dependency graph:  " + stats.timeClassDependencyGraph + " secs");
+        if (stats.timeWriteResources > 0)
+            System.out.println("Write resources:         " + stats.timeWriteResources + " secs (" + stats.timeWriteResourcesOverlap + " secs overlapped)");
         System.out.println("Write jar:               " + stats.timeWriteJar + " secs");
-        System.out.println("Write report:            " + stats.timeWriteReport + " secs");
+        System.out.println("Write report:            " + stats.timeWriteReport + " secs (" + stats.timeWriteReportOverlap + " secs overlapped)");
+        if (settings.validateOutput)
+            System.out.println("Validate output:         " + stats.timeValidate + " secs");
         System.out.println("Took:                    " + took + " secs");
+        System.out.println("Peak heap usage:         " + stats.peakHeapUsage / (1024 * 1024) + " MB");
+        System.out.println("Peak live heap usage:    " + stats.peakLiveHeapUsage / (1024 * 1024) + " MB");
+        if (settings.summaryCache != null)
+            System.out.println("Summary cache:           " + stats.summaryCacheHits + " hits, " + stats.summaryCacheMisses + " misses");
 
-        if (settings.output != null) System.out.println("Output:                  " + settings.output.getAbsolutePath());
+        if (settings.output != null) {
+            if (settings.outputPerApp) {
+                for (var output : Shakyboi.getAppOutputs(settings.appLookup, settings.output, settings.explodedOutput).values())
+                    System.out.println("Output:                  " + output.getAbsolutePath());
+            } else if (settings.rootSets.isEmpty()) {
+                System.out.println("Output:                  " + settings.output.getAbsolutePath());
+            } else {
+                for (var rootSetName : settings.rootSets.keySet())
+                    System.out.println("Output:                  " + Shakyboi.getRootSetOutput(settings.output, rootSetName, settings.explodedOutput).getAbsolutePath());
+            }
+        }
         if (settings.htmlReport != null)
             System.out.println("HTML report:             " + settings.htmlReport.getAbsolutePath());
         if (settings.jsonReport != null)
             System.out.println("JSON report:             " + settings.jsonReport.getAbsolutePath());
+        if (settings.graphSnapshot != null)
+            System.out.println("Graph snapshot:          " + settings.graphSnapshot.getAbsolutePath());
+        if (settings.cdsClassList != null)
+            System.out.println("CDS class list:          " + settings.cdsClassList.getAbsolutePath());
+        if (settings.cdsArchive != null)
+            System.out.println("CDS archive:             " + settings.cdsArchive.getAbsolutePath());
+        if (settings.nativeImageConfig != null)
+            System.out.println("native-image config:     " + settings.nativeImageConfig.getAbsolutePath());
+        if (settings.jlinkModules != null)
+            System.out.println("jlink modules:           " + settings.jlinkModules.getAbsolutePath());
         System.out.println("Total app classes:       " + stats.totalClasses);
         System.out.println("Reachable app classes:   " + stats.reachableClasses);
         System.out.println("Reduction:               " + (int) ((1 - ((float) stats.reachableClasses / stats.totalClasses)) * 100) + "%");
+        if (settings.shakeResources) {
+            System.out.println("Total app resources:     " + stats.totalResources);
+            System.out.println("Removed app resources:   " + stats.removedResources);
+        }
+        for (var entry : stats.reachableClassesPerRootSet.entrySet())
+            System.out.println("Reachable app classes (" + entry.getKey() + "): " + entry.getValue());
+        if (!stats.requiredModules.isEmpty()) {
+            var modules = String.join(",", stats.requiredModules);
+            System.out.println("JDK modules:             " + modules);
+            System.out.println("jlink command:           jlink --add-modules " + modules + " --strip-debug --no-header-files --no-man-pages --output runtime");
+        }
+
+        if (stats.classpathUsage != null && stats.classpathUsage.sources.size() > 1) {
+            System.out.println();
+            System.out.println("App sources:");
+            for (var source : stats.classpathUsage.sources) {
+                System.out.println("   " + source.getName() + ": " + source.reachableClasses + "/" + source.totalClasses + " classes, " +
+                        source.reachableBytes + "/" + source.totalBytes + " bytes kept" + (source.reachableClasses == 0 ? ", unused" : ""));
+            }
+            var classpath = stats.classpathUsage.getMinimalClasspath();
+            System.out.println("Minimal class path (" + classpath.size() + " of " + stats.classpathUsage.sources.size() + " sources):");
+            System.out.println("   " + classpath.stream().map(ClasspathUsage.Source::getName).collect(Collectors.joining(File.pathSeparator)));
+        }
+
+        if (stats.duplicateClasses != null) {
+            var conflicting = stats.duplicateClasses.getConflicting();
+            System.out.println();
+            System.out.println("Duplicate classes:       " + stats.duplicateClasses.duplicates.size() + " (" + conflicting.size() + " conflicting, " +
+                    stats.duplicateClasses.getShadowedBytes() + " bytes shadowed)");
+            for (var duplicate : conflicting) {
+                System.out.println("   " + duplicate.name.replace('/', '.') + ": " +
+                        duplicate.sources.stream().map(ClasspathUsage::getSourceName).collect(Collectors.joining(", ")));
+            }
+        }
+
+        if (stats.diff != null) {
+            System.out.println();
+            System.out.println("Changes since " + settings.diffAgainst.getAbsolutePath() + ":");
+            System.out.println("   Added app classes:    " + stats.diff.addedClasses.size());
+            System.out.println("   Removed app classes:  " + stats.diff.removedClasses.size());
+            System.out.println("   Added dependencies:   " + stats.diff.addedEdges.size());
+            System.out.println("   Removed dependencies: " + stats.diff.removedEdges.size());
+            for (var delta : stats.diff.packages)
+                System.out.println("   " + (delta.name.isEmpty() ? "<default>" : delta.name.replace('/', '.')) + ": " + (delta.getDeltaBytes() >= 0 ? "+" : "") + delta.getDeltaBytes() + " bytes");
+        }
+
+        for (var entry : stats.implementations.entrySet()) {
+            System.out.println();
+            System.out.println("Kept implementations of " + entry.getKey().replace('/', '.') + " (" + entry.getValue().size() + "):");
+            for (var className : entry.getValue())
+                System.out.println("   " + className.replace('/', '.'));
+        }
+
+        for (var entry : stats.whyPaths.entrySet()) {
+            System.out.println();
+            var path = entry.getValue();
+            if (path == null) {
+                System.out.println("Why " + entry.getKey().replace('/', '.') + ": not reachable");
+                continue;
+            }
+            System.out.println("Why " + entry.getKey().replace('/', '.') + ":");
+            for (int i = 0; i < path.size(); i++)
+                System.out.println((i == 0 ? "   " : "   -> ") + path.get(i).replace('/', '.'));
+        }
+
+        if (settings.validateOutput) {
+            System.out.println();
+            System.out.println("Dangling references:     " + stats.danglingReferences.size());
+            for (var reference : stats.danglingReferences)
+                System.out.println("   " + reference);
+            if (!stats.danglingReferences.isEmpty()) error("Output validation failed, " + stats.danglingReferences.size() + " referenced classes are missing.");
+        }
     }
 
     static void printHelp() {
@@ -46,12 +158,114 @@ public class ShakyboiCLI {
         System.out.println("                                 You can specify multiple classes by using multiple --root.");
         System.out.println("                                 options.");
         System.out.println();
+        System.out.println("   --root-set <name>=<pattern>   A root class name (pattern) belonging to the named root set, e.g.\n" +
+                "                                 billing=my.billing.Main. One output .jar file is written per\n" +
+                "                                 root set, named after the output file, e.g. app-billing.jar.\n" +
+                "                                 Classes given via --root are shared by all root sets. Names\n" +
+                "                                 may only contain letters, digits, '.', '_' and '-'.");
+        System.out.println();
         System.out.println("   --output <jar-file>           The name of the output .jar file. Performs a dry-run if omitted.");
         System.out.println();
+        System.out.println("   --output-dir <dir>            (Optional) An empty directory to write the output files to instead\n" +
+                "                                 of a .jar file, e.g. to run from an exploded classes directory.");
+        System.out.println();
+        System.out.println("   --output-per-app <dir>        (Optional) A directory to write one output .jar file per --app to\n" +
+                "                                 instead of --output, named after the app .jar file or directory.\n" +
+                "                                 Unchanged apps result in byte-identical output .jar files.");
+        System.out.println();
+        System.out.println("   --hard-links                  (Optional) Hard link unmodified files of app directories into the\n" +
+                "                                 output directory instead of copying them, if on the same file system.");
+        System.out.println();
+        System.out.println("   --bundle                      (Optional) Write the output as an indexed class bundle instead of\n" +
+                "                                 a .jar file, with classes in load order. Run it with\n" +
+                "                                 io.marioslab.shakyboi.runtime.BundleClassLoader.");
+        System.out.println();
+        System.out.println("   --startup-order               (Optional) Write classes in their expected load order, i.e. by their\n" +
+                "                                 distance from the root classes, so startup reads the output .jar\n" +
+                "                                 file sequentially.");
+        System.out.println();
+        System.out.println("   --class-load-log <file>       (Optional) A -Xlog:class+load log of a trial run. Classes are\n" +
+                "                                 written in the logged load order first. Implies --startup-order.");
+        System.out.println();
+        System.out.println("   --cds-classlist <file>        (Optional) The name of the file to write an AppCDS class list of\n" +
+                "                                 all reachable app and JDK classes to, in expected load order. Pass\n" +
+                "                                 it to -Xshare:dump via -XX:SharedClassListFile.");
+        System.out.println();
+        System.out.println("   --cds-archive <file>          (Optional) The name of the AppCDS archive to create from the class\n" +
+                "                                 list and the output .jar file with -Xshare:dump. Pass it to the app\n" +
+                "                                 via -XX:SharedArchiveFile. Requires --output.");
+        System.out.println();
+        System.out.println("   --validate                    (Optional) Re-read the written output in parallel and check that\n" +
+                "                                 all classes referenced by kept classes can be found in the output\n" +
+                "                                 or bootstrap lookup. Exits with an error if a class is missing.");
+        System.out.println();
+        System.out.println("   --duplicates                  (Optional) Report classes contained in multiple --app sources, and\n" +
+                "                                 whether their copies are identical, based on the CRC-32 and size\n" +
+                "                                 in the central directory of .jar files.");
+        System.out.println();
+        System.out.println("   --shake-resources             (Optional) Only keep resources whose path, or a prefix of it, is a\n" +
+                "                                 string constant of a kept class. Resources in META-INF/ are kept.");
+        System.out.println();
+        System.out.println("   --keep-resource <pattern>     (Optional) A resource path (pattern) to keep with --shake-resources,\n" +
+                "                                 e.g. assets/**. You can specify multiple --keep-resource options.");
+        System.out.println();
+        System.out.println("   --native-image-config <dir>   (Optional) The directory to write a GraalVM native-image\n" +
+                "                                 configuration to: reflection configuration for the root classes,\n" +
+                "                                 resource configuration for the kept resources, and build time\n" +
+                "                                 initialization of classes with constant static initializers.");
+        System.out.println();
+        System.out.println("   --jlink-modules <file>        (Optional) The file to write the comma separated names of the JDK\n" +
+                "                                 modules required by the reachable classes to, for jlink\n" +
+                "                                 --add-modules. Requires --bootstrap jrt.");
+        System.out.println();
+        System.out.println("   --compression-level <0-9>     (Optional) The compression level of the output .jar file. Defaults\n" +
+                "                                 to the zlib default of 6.");
+        System.out.println();
+        System.out.println("   --stored                      (Optional) Store the entries of the output .jar file uncompressed,\n" +
+                "                                 with their data aligned to page boundaries. Larger, but classes\n" +
+                "                                 are loaded without inflating them.");
+        System.out.println();
+        System.out.println("   --threads <count>             (Optional) The number of threads compressing the entries of the\n" +
+                "                                 output .jar file. Defaults to the number of processors.");
+        System.out.println();
+        System.out.println("   --rta                         (Optional) Use rapid type analysis to only keep classes used by\n" +
+                "                                 reachable methods. Unreachable methods are removed from kept classes.");
+        System.out.println();
+        System.out.println("   --low-memory                  (Optional) Drop class files from memory once their dependencies are\n" +
+                "                                 collected, and re-read them when writing the output. Reduces peak\n" +
+                "                                 heap usage for large inputs.");
+        System.out.println();
+        System.out.println("   --summary-cache <dir>         (Optional) A directory to cache the dependencies of the classes in\n" +
+                "                                 app .jar files in, keyed by the .jar file content. Can be shared by\n" +
+                "                                 multiple projects and runs.");
+        System.out.println();
+        System.out.println("   --external-memory <dir>       (Optional) A directory to store the set of visited classes and the\n" +
+                "                                 queue of classes to process in, instead of the heap. For inputs\n" +
+                "                                 with millions of classes. Options needing the whole class\n" +
+                "                                 dependency graph on the heap, like --rta, --why or --bundle, are\n" +
+                "                                 not supported.");
+        System.out.println();
+        System.out.println("   --batch-size <count>          (Optional) The maximum number of queued classes kept on the heap\n" +
+                "                                 with --external-memory, the rest is spilled to disk. Defaults to\n" +
+                "                                 " + ExternalMemoryTraversal.DEFAULT_BATCH_SIZE + ".");
+        System.out.println();
         System.out.println("   --html-report <html-file>     (Optional) The name of the .html file to write the report to.\n" +
                 "                                 You can view it locally in a browser.");
         System.out.println();
         System.out.println("   --json-report <json-file>     (Optional) The name of the .json file to write the report to.");
+        System.out.println();
+        System.out.println("   --graph-snapshot <file>       (Optional) The name of the file to write a binary snapshot of the\n" +
+                "                                 class dependency graph to. It can be memory-mapped by other tools.");
+        System.out.println();
+        System.out.println("   --diff-against <file>         (Optional) A graph snapshot of a previous run. Reports the added and\n" +
+                "                                 removed app classes and dependencies, and the size change per package.");
+        System.out.println();
+        System.out.println("   --why <class-name>            (Optional) Prints the shortest chain of classes from a root class\n" +
+                "                                 to the given class, e.g. my.package.Foo. You can specify multiple\n" +
+                "                                 classes by using multiple --why options.");
+        System.out.println();
+        System.out.println("   --implementations <class-name> (Optional) Prints the kept implementations of the given class\n" +
+                "                                 or interface, e.g. my.package.Service.");
     }
 
     static void error(String message) {
@@ -71,9 +285,73 @@ public class ShakyboiCLI {
         File output = null;
         File htmlReport = null;
         File jsonReport = null;
+        File graphSnapshot = null;
+        File diffAgainst = null;
+        File summaryCache = null;
+        File externalMemory = null;
+        var batchSize = ExternalMemoryTraversal.DEFAULT_BATCH_SIZE;
+        var compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        var writerThreads = Runtime.getRuntime().availableProcessors();
+        var whyClasses = new ArrayList<String>();
+        var implementationsOf = new ArrayList<String>();
+        var rootSets = new LinkedHashMap<String, List<Pattern>>();
+        var keepResources = new ArrayList<Pattern>();
+
+        var rapidTypeAnalysis = false;
+        var lowMemory = false;
+        var startupOrder = false;
+        var storedOutput = false;
+        var explodedOutput = false;
+        var hardLinks = false;
+        var shakeResources = false;
+        var detectDuplicateClasses = false;
+        var validateOutput = false;
+        var outputPerApp = false;
+        var bundleOutput = false;
+        File classLoadLog = null;
+        File cdsClassList = null;
+        File cdsArchive = null;
+        File nativeImageConfig = null;
+        File jlinkModules = null;
 
         for (int i = 0; i < args.length; i++) {
             var arg = args[i];
+            if ("--rta".equals(arg)) {
+                rapidTypeAnalysis = true;
+                continue;
+            }
+            if ("--low-memory".equals(arg)) {
+                lowMemory = true;
+                continue;
+            }
+            if ("--startup-order".equals(arg)) {
+                startupOrder = true;
+                continue;
+            }
+            if ("--stored".equals(arg)) {
+                storedOutput = true;
+                continue;
+            }
+            if ("--hard-links".equals(arg)) {
+                hardLinks = true;
+                continue;
+            }
+            if ("--bundle".equals(arg)) {
+                bundleOutput = true;
+                continue;
+            }
+            if ("--shake-resources".equals(arg)) {
+                shakeResources = true;
+                continue;
+            }
+            if ("--duplicates".equals(arg)) {
+                detectDuplicateClasses = true;
+                continue;
+            }
+            if ("--validate".equals(arg)) {
+                validateOutput = true;
+                continue;
+            }
             if (i == args.length - 1) error("Missing value for argument:" + arg);
             if ("--app".equals(arg)) {
                 var file = new File(args[++i]);
@@ -92,6 +370,17 @@ public class ShakyboiCLI {
                 var className = args[++i];
                 className = className.replace(".", "/") + ".class";
                 rootClasses.add(new Pattern(className));
+            } else if ("--root-set".equals(arg)) {
+                var value = args[++i];
+                var separatorIndex = value.indexOf('=');
+                if (separatorIndex <= 0) error("Expected <name>=<class-name-pattern> for --root-set, got " + value);
+                var rootSetName = value.substring(0, separatorIndex);
+                if (!Shakyboi.isValidRootSetName(rootSetName))
+                    error("Invalid root set name '" + rootSetName + "', only letters, digits, '.', '_' and '-' are allowed.");
+                var className = value.substring(separatorIndex + 1).replace(".", "/") + ".class";
+                rootSets.computeIfAbsent(rootSetName, k -> new ArrayList<>()).add(new Pattern(className));
+            } else if ("--keep-resource".equals(arg)) {
+                keepResources.add(new Pattern(args[++i]));
             } else if ("--output".equals(arg)) {
                 output = new File(args[++i]);
                 var parent = output.getAbsoluteFile().getParentFile();
@@ -101,6 +390,41 @@ public class ShakyboiCLI {
                     if (!parent.mkdirs())
                         error("Couldn't create parent directory of output file " + output.getAbsolutePath());
                 }
+            } else if ("--class-load-log".equals(arg)) {
+                classLoadLog = new File(args[++i]);
+                if (!classLoadLog.isFile()) error("Class load log " + classLoadLog.getAbsolutePath() + " does not exist");
+            } else if ("--native-image-config".equals(arg)) {
+                nativeImageConfig = new File(args[++i]);
+                if (nativeImageConfig.isFile()) error("native-image configuration directory " + nativeImageConfig.getAbsolutePath() + " is a file");
+            } else if ("--jlink-modules".equals(arg)) {
+                jlinkModules = new File(args[++i]);
+                if (jlinkModules.isDirectory()) error("jlink module list file " + jlinkModules.getAbsolutePath() + " is a directory");
+            } else if ("--cds-classlist".equals(arg)) {
+                cdsClassList = new File(args[++i]);
+                if (cdsClassList.isDirectory()) error("CDS class list file " + cdsClassList.getAbsolutePath() + " is a directory");
+            } else if ("--cds-archive".equals(arg)) {
+                cdsArchive = new File(args[++i]);
+                if (cdsArchive.isDirectory()) error("CDS archive file " + cdsArchive.getAbsolutePath() + " is a directory");
+            } else if ("--compression-level".equals(arg)) {
+                compressionLevel = parseInt(arg, args[++i]);
+                if (compressionLevel < 0 || compressionLevel > 9) error("Compression level must be between 0 and 9, got " + compressionLevel);
+            } else if ("--threads".equals(arg)) {
+                writerThreads = parseInt(arg, args[++i]);
+                if (writerThreads < 1) error("Number of threads must be at least 1, got " + writerThreads);
+            } else if ("--output-per-app".equals(arg)) {
+                output = new File(args[++i]);
+                if (output.isFile()) error("Output directory " + output.getAbsolutePath() + " is a file");
+                if (!output.exists() && !output.mkdirs()) error("Couldn't create output directory " + output.getAbsolutePath());
+                outputPerApp = true;
+            } else if ("--output-dir".equals(arg)) {
+                output = new File(args[++i]);
+                explodedOutput = true;
+                if (output.exists() && !output.isDirectory())
+                    error("Output directory " + output.getAbsolutePath() + " is a file");
+                // Stale files from previous runs would defeat the shaking.
+                var files = output.list();
+                if (files != null && files.length > 0)
+                    error("Output directory " + output.getAbsolutePath() + " is not empty");
             } else if ("--html-report".equals(arg)) {
                 htmlReport = new File(args[++i]);
                 var parent = htmlReport.getAbsoluteFile().getParentFile();
@@ -119,6 +443,35 @@ public class ShakyboiCLI {
                     if (!parent.mkdirs())
                         error("Couldn't create parent directory of output file " + jsonReport.getAbsolutePath());
                 }
+            } else if ("--graph-snapshot".equals(arg)) {
+                graphSnapshot = new File(args[++i]);
+                var parent = graphSnapshot.getAbsoluteFile().getParentFile();
+                if (graphSnapshot.exists() && graphSnapshot.isDirectory())
+                    error("Graph snapshot file " + graphSnapshot.getAbsolutePath() + " is a directory");
+                if (!parent.exists()) {
+                    if (!parent.mkdirs())
+                        error("Couldn't create parent directory of output file " + graphSnapshot.getAbsolutePath());
+                }
+            } else if ("--diff-against".equals(arg)) {
+                diffAgainst = new File(args[++i]);
+                if (!diffAgainst.isFile()) error("Graph snapshot file " + diffAgainst.getAbsolutePath() + " does not exist");
+            } else if ("--summary-cache".equals(arg)) {
+                summaryCache = new File(args[++i]);
+                if (summaryCache.exists() && !summaryCache.isDirectory())
+                    error("Summary cache " + summaryCache.getAbsolutePath() + " is not a directory");
+            } else if ("--external-memory".equals(arg)) {
+                externalMemory = new File(args[++i]);
+                if (externalMemory.exists() && !externalMemory.isDirectory())
+                    error("External memory directory " + externalMemory.getAbsolutePath() + " is not a directory");
+                if (!externalMemory.exists() && !externalMemory.mkdirs())
+                    error("Couldn't create external memory directory " + externalMemory.getAbsolutePath());
+            } else if ("--batch-size".equals(arg)) {
+                batchSize = parseInt(arg, args[++i]);
+                if (batchSize < 1) error("Batch size must be at least 1, got " + batchSize);
+            } else if ("--why".equals(arg)) {
+                whyClasses.add(args[++i].replace('.', '/'));
+            } else if ("--implementations".equals(arg)) {
+                implementationsOf.add(args[++i].replace('.', '/'));
             } else {
                 error("Unknown argument: " + arg, true);
             }
@@ -129,14 +482,58 @@ public class ShakyboiCLI {
             System.err.println("WARNING: No bootstrap classes specified, defaulting to JRT image.");
             bootstrapLookups.add(new JrtImageLookup());
         }
-        if (rootClasses.size() == 0) error("No root classes given.", true);
+        if (rootClasses.size() == 0 && rootSets.size() == 0) error("No root classes given.", true);
         if (output == null) System.err.println("WARNING: No output file specified, performing dry run.");
+        if (cdsArchive != null && output == null) error("--cds-archive requires --output.");
+        if (outputPerApp && rootSets.size() > 0) error("--output-per-app can not be used with --root-set.");
+        if (bundleOutput && (outputPerApp || explodedOutput || cdsArchive != null)) error("--bundle can not be used with --output-per-app, --output-dir or --cds-archive.");
 
-        return new Shakyboi.Settings(new CombinedLookup(appLookups.toArray(new Lookup[appLookups.size()])),
+        var settings = new Shakyboi.Settings(new CombinedLookup(appLookups.toArray(new Lookup[appLookups.size()])),
                 new CombinedLookup(bootstrapLookups.toArray(new Lookup[bootstrapLookups.size()])),
                 rootClasses,
                 output,
                 htmlReport,
                 jsonReport);
+        settings.graphSnapshot = graphSnapshot;
+        settings.diffAgainst = diffAgainst;
+        settings.whyClasses.addAll(whyClasses);
+        settings.implementationsOf.addAll(implementationsOf);
+        settings.rootSets.putAll(rootSets);
+        settings.rapidTypeAnalysis = rapidTypeAnalysis;
+        settings.lowMemory = lowMemory;
+        settings.summaryCache = summaryCache;
+        settings.externalMemory = externalMemory;
+        settings.externalMemoryBatchSize = batchSize;
+        settings.startupOrder = startupOrder;
+        settings.classLoadLog = classLoadLog;
+        settings.cdsClassList = cdsClassList;
+        settings.cdsArchive = cdsArchive;
+        settings.nativeImageConfig = nativeImageConfig;
+        settings.jlinkModules = jlinkModules;
+        settings.compressionLevel = compressionLevel;
+        settings.storedOutput = storedOutput;
+        settings.explodedOutput = explodedOutput;
+        settings.hardLinks = hardLinks;
+        settings.shakeResources = shakeResources;
+        settings.detectDuplicateClasses = detectDuplicateClasses;
+        settings.validateOutput = validateOutput;
+        settings.outputPerApp = outputPerApp;
+        settings.bundleOutput = bundleOutput;
+        settings.keepResources.addAll(keepResources);
+        settings.writerThreads = writerThreads;
+        if (externalMemory != null) {
+            var unsupportedOptions = Shakyboi.getUnsupportedExternalMemoryOptions(settings);
+            if (!unsupportedOptions.isEmpty()) error(String.join(", ", unsupportedOptions) + " can not be used with --external-memory.");
+        }
+        return settings;
+    }
+
+    private static int parseInt(String arg, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            error("Expected a number for " + arg + ", got " + value);
+            return 0;
+        }
     }
 }
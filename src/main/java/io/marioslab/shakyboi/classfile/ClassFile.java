@@ -1,5 +1,7 @@
 package io.marioslab.shakyboi.classfile;
 
+import io.marioslab.shakyboi.util.ByteArrayInput;
+
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -68,6 +70,8 @@ public class ClassFile {
     // Attributes
     public static final String ATTR_CONSTANTVALUE = "ConstantValue";
     public static final String ATTR_CODE = "Code";
+    public static final String ATTR_STACKMAPTABLE = "StackMapTable";
+    public static final String ATTR_BOOTSTRAPMETHODS = "BootstrapMethods";
     public final List<ConstantPoolEntry> constantPool = new ArrayList<>();
     public final List<Integer> interfaces = new ArrayList<>();
     public final List<MemberInfo> fields = new ArrayList<>();
@@ -109,6 +113,23 @@ public class ClassFile {
         return (accessFlags & flag) != 0;
     }
 
+    /**
+     * Decodes the BootstrapMethods attribute of this class. Attributes are read as plain {@link AttributeInfo} instances and only
+     * decoded on request, so analyses not needing them don't pay for it.
+     *
+     * @return the decoded BootstrapMethods attribute, or null
+     */
+    public BootstrapMethodsAttribute getBootstrapMethodsAttribute() throws IOException {
+        var attribute = findAttribute(attributes, ATTR_BOOTSTRAPMETHODS);
+        return attribute != null ? new BootstrapMethodsAttribute(attribute) : null;
+    }
+
+    AttributeInfo findAttribute(List<AttributeInfo> attributes, String name) {
+        for (var attribute : attributes)
+            if (name.equals(attribute.getName())) return attribute;
+        return null;
+    }
+
     public String toString() {
         return sourceFile;
     }
@@ -376,6 +397,16 @@ public class ClassFile {
             return clazz.getUtf8String(descriptorIndex);
         }
 
+        /**
+         * Decodes the Code attribute of this method. The decoded attribute is not kept, so callers should hold on to it while needed.
+         *
+         * @return the decoded Code attribute, or null for abstract and native methods
+         */
+        public CodeAttribute getCodeAttribute() throws IOException {
+            var attribute = clazz.findAttribute(attributes, ATTR_CODE);
+            return attribute != null ? new CodeAttribute(attribute) : null;
+        }
+
         public String toString() {
             return getName() + getDescriptor();
         }
@@ -392,6 +423,13 @@ public class ClassFile {
             this.info = info.readNBytes(length);
         }
 
+        /** Decodes an attribute read as a plain {@link AttributeInfo}, sharing its info bytes. **/
+        protected AttributeInfo(AttributeInfo attribute) {
+            this.clz = attribute.clz;
+            this.nameIndex = attribute.nameIndex;
+            this.info = attribute.info;
+        }
+
         public String getName() {
             return clz.getUtf8String(nameIndex);
         }
@@ -410,16 +448,116 @@ public class ClassFile {
     }
 
     public static class CodeAttribute extends AttributeInfo {
+        public final List<ExceptionTableEntry> exceptionTable = new ArrayList<>();
+        public final List<AttributeInfo> attributes = new ArrayList<>();
+        public int maxStack;
+        public int maxLocals;
+        public byte[] code;
+
         public CodeAttribute(ClassFile clz, int nameIndex, int length, DataInputStream info) throws IOException {
             super(clz, nameIndex, length, info);
-            // TODO
+            decode();
+        }
+
+        public CodeAttribute(AttributeInfo attribute) throws IOException {
+            super(attribute);
+            decode();
+        }
+
+        private void decode() throws IOException {
+            var in = new DataInputStream(new ByteArrayInput(this.info));
+            maxStack = in.readUnsignedShort();
+            maxLocals = in.readUnsignedShort();
+            code = in.readNBytes(in.readInt());
+            int exceptionTableLength = in.readUnsignedShort();
+            for (int i = 0; i < exceptionTableLength; i++)
+                exceptionTable.add(new ExceptionTableEntry(in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort()));
+            ClassFileReader.readAttributes(in, clz, attributes);
+        }
+
+        /**
+         * @return the decoded StackMapTable attribute of this code, or null
+         */
+        public StackMapTableAttribute getStackMapTableAttribute() throws IOException {
+            var attribute = clz.findAttribute(attributes, ATTR_STACKMAPTABLE);
+            return attribute != null ? new StackMapTableAttribute(attribute) : null;
+        }
+    }
+
+    public static class ExceptionTableEntry {
+        public int startPc;
+        public int endPc;
+        public int handlerPc;
+        public int catchType;
+
+        public ExceptionTableEntry(int startPc, int endPc, int handlerPc, int catchType) {
+            this.startPc = startPc;
+            this.endPc = endPc;
+            this.handlerPc = handlerPc;
+            this.catchType = catchType;
         }
     }
 
     public static class StackMapTableAttribute extends AttributeInfo {
+        /** The constant pool indices of the class info entries referenced by the verification types of all frames */
+        public final List<Integer> classIndices = new ArrayList<>();
+
         public StackMapTableAttribute(ClassFile clz, int nameIndex, int length, DataInputStream info) throws IOException {
             super(clz, nameIndex, length, info);
-            // TODO
+            decode();
+        }
+
+        public StackMapTableAttribute(AttributeInfo attribute) throws IOException {
+            super(attribute);
+            decode();
+        }
+
+        private void decode() throws IOException {
+            var in = new DataInputStream(new ByteArrayInput(this.info));
+            int numberOfEntries = in.readUnsignedShort();
+            for (int i = 0; i < numberOfEntries; i++) {
+                int frameType = in.readUnsignedByte();
+                if (frameType < 64) {
+                    // same_frame
+                } else if (frameType < 128) {
+                    // same_locals_1_stack_item_frame
+                    readVerificationType(in);
+                } else if (frameType == 247) {
+                    // same_locals_1_stack_item_frame_extended
+                    in.readUnsignedShort();
+                    readVerificationType(in);
+                } else if (frameType >= 248 && frameType <= 251) {
+                    // chop_frame, same_frame_extended
+                    in.readUnsignedShort();
+                } else if (frameType >= 252 && frameType <= 254) {
+                    // append_frame
+                    in.readUnsignedShort();
+                    for (int j = 0; j < frameType - 251; j++)
+                        readVerificationType(in);
+                } else if (frameType == 255) {
+                    // full_frame
+                    in.readUnsignedShort();
+                    int numberOfLocals = in.readUnsignedShort();
+                    for (int j = 0; j < numberOfLocals; j++)
+                        readVerificationType(in);
+                    int numberOfStackItems = in.readUnsignedShort();
+                    for (int j = 0; j < numberOfStackItems; j++)
+                        readVerificationType(in);
+                } else {
+                    throw new IOException("Unknown stack map frame type: " + frameType);
+                }
+            }
+        }
+
+        private void readVerificationType(DataInputStream in) throws IOException {
+            int tag = in.readUnsignedByte();
+            if (tag == 7) {
+                // Object_variable_info
+                classIndices.add(in.readUnsignedShort());
+            } else if (tag == 8) {
+                // Uninitialized_variable_info
+                in.readUnsignedShort();
+            }
         }
     }
 
@@ -549,9 +687,38 @@ public class ClassFile {
     }
 
     public static class BootstrapMethodsAttribute extends AttributeInfo {
+        public final List<BootstrapMethod> bootstrapMethods = new ArrayList<>();
+
         public BootstrapMethodsAttribute(ClassFile clz, int nameIndex, int length, DataInputStream info) throws IOException {
             super(clz, nameIndex, length, info);
-            // TODO
+            decode();
+        }
+
+        public BootstrapMethodsAttribute(AttributeInfo attribute) throws IOException {
+            super(attribute);
+            decode();
+        }
+
+        private void decode() throws IOException {
+            var in = new DataInputStream(new ByteArrayInput(this.info));
+            int numBootstrapMethods = in.readUnsignedShort();
+            for (int i = 0; i < numBootstrapMethods; i++) {
+                int methodRefIndex = in.readUnsignedShort();
+                int[] arguments = new int[in.readUnsignedShort()];
+                for (int j = 0; j < arguments.length; j++)
+                    arguments[j] = in.readUnsignedShort();
+                bootstrapMethods.add(new BootstrapMethod(methodRefIndex, arguments));
+            }
+        }
+    }
+
+    public static class BootstrapMethod {
+        public int methodRefIndex;
+        public int[] arguments;
+
+        public BootstrapMethod(int methodRefIndex, int[] arguments) {
+            this.methodRefIndex = methodRefIndex;
+            this.arguments = arguments;
         }
     }
 
@@ -30,13 +30,51 @@ public class ClassDependencyGraph {
         this.reachableClasses = reachableClasses;
     }
 
+    /**
+     * Returns the shortest chain of classes from a root class to the given class, as recorded in the
+     * breadth-first traversal tree of {@link ClassDependencyGraphGenerator}. Runs in time proportional to the
+     * length of the path.
+     *
+     * @param className the internal name of the class, e.g. "java/lang/Object"
+     * @return the path starting with a root class and ending with the given class, or null if the class is not reachable
+     */
+    public List<ClassNode> getShortestPath(String className) {
+        var classNode = reachableClasses.get(className);
+        if (classNode == null) return null;
+        var path = new ArrayList<ClassNode>(classNode.depth + 1);
+        for (; classNode != null; classNode = classNode.reachedFrom)
+            path.add(classNode);
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Returns the predecessor of every reachable class in the breadth-first traversal tree, keyed by class name.
+     * Root classes map to null. The map can be stored and queried repeatedly without traversing the graph again.
+     *
+     * @return the map from class name to the name of the class it was first reached from
+     */
+    public Map<String, String> getPredecessors() {
+        var predecessors = new HashMap<String, String>(reachableClasses.size());
+        for (var classNode : reachableClasses.values())
+            predecessors.put(classNode.name, classNode.reachedFrom != null ? classNode.reachedFrom.name : null);
+        return predecessors;
+    }
+
     /**
      * A node in the class dependency graph, storing incoming and outgoing dependencies for
      * simple graph traversal. The lists storing the dependencies are mutable.
      */
     public static class ClassNode {
-        /** The {@link ClassFile} this node represents */
-        public final ClassFile classFile;
+        /**
+         * The {@link ClassFile} this node represents. Null if the graph was generated in low-memory mode, see
+         * {@link ClassDependencyGraphGenerator#generate(Lookup, Lookup, List, boolean, String...)}.
+         */
+        public ClassFile classFile;
+        /** The internal name of the class */
+        public final String name;
+        /** The size of the original <code>.class</code> file in bytes */
+        public final int size;
         /** Whether this class comes from the app class lookup or the bootstrap class lookup */
         public final boolean isAppClass;
         /** The list of classes this class depends on. Filled by  {@link ClassDependencyGraphGenerator#generate(Lookup, Lookup, List, String...)} */
@@ -47,9 +85,23 @@ public class ClassDependencyGraph {
         public boolean isRootClass;
         /** Whether this class has been processed by {@link ClassDependencyGraphGenerator#generate(Lookup, Lookup, List, String...)} **/
         public boolean isProcessed;
+        /** The class this class was first reached from during the breadth-first traversal, null for root classes **/
+        public ClassNode reachedFrom;
+        /** The length of the shortest path from a root class to this class, 0 for root classes **/
+        public int depth;
+        /** The <code>.class</code> file data to output if the class was rewritten, e.g. by {@link RapidTypeAnalysis}, null otherwise **/
+        public byte[] modifiedData;
 
         public ClassNode(ClassFile classFile, boolean isAppClass) {
             this.classFile = classFile;
+            this.name = classFile.getName();
+            this.size = classFile.originalData.length;
+            this.isAppClass = isAppClass;
+        }
+
+        public ClassNode(String name, int size, boolean isAppClass) {
+            this.name = name;
+            this.size = size;
             this.isAppClass = isAppClass;
         }
     }
@@ -0,0 +1,221 @@
+package io.marioslab.shakyboi.graph;
+
+import java.util.*;
+
+/**
+ * The difference between two class dependency graphs, e.g. of two releases of an app. Lists the classes and dependencies that
+ * were added or removed, and the change in <code>.class</code> file bytes per package.
+ * <p>
+ * Graphs are compared via their {@link ClassDependencyGraphSnapshot}, either persisted or created in memory via
+ * {@link ClassDependencyGraphSnapshot#fromGraph(ClassDependencyGraph)}. As the nodes of a snapshot and the dependencies of each
+ * node are sorted by name, {@link #diff(ClassDependencyGraphSnapshot, ClassDependencyGraphSnapshot, boolean)} is a single linear
+ * merge over both snapshots.
+ */
+public class ClassDependencyGraphDiff {
+    /** Internal names of the classes only contained in the new graph, sorted **/
+    public final List<String> addedClasses = new ArrayList<>();
+    /** Internal names of the classes only contained in the old graph, sorted **/
+    public final List<String> removedClasses = new ArrayList<>();
+    /** Dependencies only contained in the new graph, sorted by source and target class **/
+    public final List<Edge> addedEdges = new ArrayList<>();
+    /** Dependencies only contained in the old graph, sorted by source and target class **/
+    public final List<Edge> removedEdges = new ArrayList<>();
+    /** Packages whose classes changed, sorted by internal package name **/
+    public final List<PackageDelta> packages = new ArrayList<>();
+
+    /**
+     * Computes the difference between two graphs in time linear to the number of nodes and edges of both graphs.
+     *
+     * @param oldGraph       the snapshot of the old graph
+     * @param newGraph       the snapshot of the new graph
+     * @param onlyAppClasses whether to ignore bootstrap classes
+     * @return the difference
+     */
+    public static ClassDependencyGraphDiff diff(ClassDependencyGraphSnapshot oldGraph, ClassDependencyGraphSnapshot newGraph, boolean onlyAppClasses) {
+        var diff = new ClassDependencyGraphDiff();
+        var packages = new TreeMap<String, PackageDelta>();
+        int oldNode = 0, newNode = 0;
+        int numOldNodes = oldGraph.getNumNodes(), numNewNodes = newGraph.getNumNodes();
+        while (oldNode < numOldNodes || newNode < numNewNodes) {
+            int result = oldNode == numOldNodes ? 1 : newNode == numNewNodes ? -1 : oldGraph.compareNames(oldNode, newGraph, newNode);
+            if (result < 0) {
+                if (!onlyAppClasses || oldGraph.isAppClass(oldNode)) {
+                    var name = oldGraph.getName(oldNode);
+                    diff.removedClasses.add(name);
+                    var delta = getPackageDelta(packages, name);
+                    delta.removedClasses++;
+                    delta.oldBytes += oldGraph.getSize(oldNode);
+                    for (int i = 0; i < oldGraph.getNumDependencies(oldNode); i++)
+                        addEdge(diff.removedEdges, oldGraph, oldNode, oldGraph.getDependency(oldNode, i), onlyAppClasses);
+                }
+                oldNode++;
+            } else if (result > 0) {
+                if (!onlyAppClasses || newGraph.isAppClass(newNode)) {
+                    var name = newGraph.getName(newNode);
+                    diff.addedClasses.add(name);
+                    var delta = getPackageDelta(packages, name);
+                    delta.addedClasses++;
+                    delta.newBytes += newGraph.getSize(newNode);
+                    for (int i = 0; i < newGraph.getNumDependencies(newNode); i++)
+                        addEdge(diff.addedEdges, newGraph, newNode, newGraph.getDependency(newNode, i), onlyAppClasses);
+                }
+                newNode++;
+            } else {
+                if (!onlyAppClasses || oldGraph.isAppClass(oldNode) || newGraph.isAppClass(newNode)) {
+                    var delta = getPackageDelta(packages, newGraph.getName(newNode));
+                    delta.oldBytes += oldGraph.getSize(oldNode);
+                    delta.newBytes += newGraph.getSize(newNode);
+                    diffEdges(diff, oldGraph, oldNode, newGraph, newNode, onlyAppClasses);
+                }
+                oldNode++;
+                newNode++;
+            }
+        }
+        for (var delta : packages.values())
+            if (delta.addedClasses != 0 || delta.removedClasses != 0 || delta.oldBytes != delta.newBytes) diff.packages.add(delta);
+        return diff;
+    }
+
+    private static PackageDelta getPackageDelta(Map<String, PackageDelta> packages, String className) {
+        var separatorIndex = className.lastIndexOf('/');
+        var packageName = separatorIndex < 0 ? "" : className.substring(0, separatorIndex);
+        return packages.computeIfAbsent(packageName, PackageDelta::new);
+    }
+
+    private static void addEdge(List<Edge> edges, ClassDependencyGraphSnapshot graph, int from, int to, boolean onlyAppClasses) {
+        if (onlyAppClasses && !graph.isAppClass(to)) return;
+        edges.add(new Edge(graph.getName(from), graph.getName(to)));
+    }
+
+    /** Merges the sorted dependencies of a node contained in both graphs. **/
+    private static void diffEdges(ClassDependencyGraphDiff diff, ClassDependencyGraphSnapshot oldGraph, int oldNode, ClassDependencyGraphSnapshot newGraph, int newNode, boolean onlyAppClasses) {
+        int oldIndex = 0, newIndex = 0;
+        int numOldDependencies = oldGraph.getNumDependencies(oldNode), numNewDependencies = newGraph.getNumDependencies(newNode);
+        while (oldIndex < numOldDependencies || newIndex < numNewDependencies) {
+            int oldDependency = oldIndex < numOldDependencies ? oldGraph.getDependency(oldNode, oldIndex) : -1;
+            int newDependency = newIndex < numNewDependencies ? newGraph.getDependency(newNode, newIndex) : -1;
+            int result = oldDependency == -1 ? 1 : newDependency == -1 ? -1 : oldGraph.compareNames(oldDependency, newGraph, newDependency);
+            if (result < 0) {
+                addEdge(diff.removedEdges, oldGraph, oldNode, oldDependency, onlyAppClasses);
+                oldIndex++;
+            } else if (result > 0) {
+                addEdge(diff.addedEdges, newGraph, newNode, newDependency, onlyAppClasses);
+                newIndex++;
+            } else {
+                oldIndex++;
+                newIndex++;
+            }
+        }
+    }
+
+    /**
+     * Generates a JSON representation of the diff. Class and package names are given in their binary form, e.g. "java.lang.Object".
+     *
+     * @param diff the diff
+     * @return the JSON string
+     */
+    public static String generateJSON(ClassDependencyGraphDiff diff) {
+        var json = new StringBuilder();
+        json.append("{\n");
+        json.append("\"addedClasses\": ").append(generateJSONClasses(diff.addedClasses)).append(",\n");
+        json.append("\"removedClasses\": ").append(generateJSONClasses(diff.removedClasses)).append(",\n");
+        json.append("\"addedEdges\": ").append(generateJSONEdges(diff.addedEdges)).append(",\n");
+        json.append("\"removedEdges\": ").append(generateJSONEdges(diff.removedEdges)).append(",\n");
+        json.append("\"packages\": [\n");
+        for (int i = 0; i < diff.packages.size(); i++) {
+            var delta = diff.packages.get(i);
+            json.append("{ \"name\": \"").append(delta.name.replace('/', '.')).append("\", ");
+            json.append("\"addedClasses\": ").append(delta.addedClasses).append(", ");
+            json.append("\"removedClasses\": ").append(delta.removedClasses).append(", ");
+            json.append("\"oldBytes\": ").append(delta.oldBytes).append(", ");
+            json.append("\"newBytes\": ").append(delta.newBytes).append(", ");
+            json.append("\"deltaBytes\": ").append(delta.getDeltaBytes()).append(" }");
+            if (i < diff.packages.size() - 1) json.append(",\n");
+            else json.append("\n");
+        }
+        json.append("]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static String generateJSONClasses(List<String> classNames) {
+        var json = new StringBuilder();
+        json.append("[");
+        for (int i = 0; i < classNames.size(); i++) {
+            json.append("\n\"").append(classNames.get(i).replace('/', '.')).append('"');
+            if (i < classNames.size() - 1) json.append(",");
+        }
+        json.append("]");
+        return json.toString();
+    }
+
+    private static String generateJSONEdges(List<Edge> edges) {
+        var json = new StringBuilder();
+        json.append("[");
+        for (int i = 0; i < edges.size(); i++) {
+            var edge = edges.get(i);
+            json.append("\n{ \"from\": \"").append(edge.from.replace('/', '.')).append("\", \"to\": \"").append(edge.to.replace('/', '.')).append("\" }");
+            if (i < edges.size() - 1) json.append(",");
+        }
+        json.append("]");
+        return json.toString();
+    }
+
+    /**
+     * A dependency from one class to another.
+     */
+    public static class Edge {
+        /** The internal name of the class depending on {@link #to} **/
+        public final String from;
+        /** The internal name of the class {@link #from} depends on **/
+        public final String to;
+
+        public Edge(String from, String to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Edge)) return false;
+            var edge = (Edge) o;
+            return from.equals(edge.from) && to.equals(edge.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return from + " -> " + to;
+        }
+    }
+
+    /**
+     * The change of a package between the old and new graph.
+     */
+    public static class PackageDelta {
+        /** The internal name of the package, e.g. "java/lang", empty for the default package **/
+        public final String name;
+        /** Number of classes only contained in the new graph **/
+        public int addedClasses;
+        /** Number of classes only contained in the old graph **/
+        public int removedClasses;
+        /** Total size of the package's <code>.class</code> files in the old graph **/
+        public long oldBytes;
+        /** Total size of the package's <code>.class</code> files in the new graph **/
+        public long newBytes;
+
+        public PackageDelta(String name) {
+            this.name = name;
+        }
+
+        /** @return the change in bytes from the old to the new graph, positive if the package grew **/
+        public long getDeltaBytes() {
+            return newBytes - oldBytes;
+        }
+    }
+}
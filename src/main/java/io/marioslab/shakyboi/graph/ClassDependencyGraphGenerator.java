@@ -20,7 +20,8 @@ public class ClassDependencyGraphGenerator {
     /**
      * Generates a new {@link ClassDependencyGraph}. For each provided root class, the set of classes
      * it directly depends on is evaluated. The process is then repeated for the newly identified classes
-     * until no more new classes can be found.
+     * until no more new classes can be found. Classes are processed in breadth-first order, and the class
+     * each class was first reached from is recorded in {@link ClassDependencyGraph.ClassNode#reachedFrom}.
      *
      * @param appLookup       the {@link Lookup} to search for application classes, like root classes.
      * @param bootstrapLookup the {@link Lookup} to search for boot classes, e.g. java.lang.Object.
@@ -30,13 +31,50 @@ public class ClassDependencyGraphGenerator {
      * @throws IOException in case a class could not be looked up or parsed.
      */
     public static ClassDependencyGraph generate(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings, String... rootClassNames) throws IOException {
+        return generate(appLookup, bootstrapLookup, warnings, false, rootClassNames);
+    }
+
+    /**
+     * Generates a new {@link ClassDependencyGraph}, see {@link #generate(Lookup, Lookup, List, String...)}. In low-memory mode,
+     * a class is only parsed while its dependencies are collected, and {@link ClassDependencyGraph.ClassNode#classFile} is null
+     * afterwards, so the parsed classes and their bytes can be garbage collected. Only the class name, size, and dependencies are kept.
+     * This trades memory for time, as app classes are read twice from the app lookup, once when they are found and once when they are
+     * processed. The bytes of a class can be looked up again when needed, e.g. when writing the output <code>.jar</code> file.
+     *
+     * @param appLookup       the {@link Lookup} to search for application classes, like root classes.
+     * @param bootstrapLookup the {@link Lookup} to search for boot classes, e.g. java.lang.Object.
+     * @param lowMemory       whether to drop the class files after their dependencies have been collected
+     * @param rootClassNames  the names of root classes to start the search for all dependencies for, given as internal names.
+     * @return the {@link ClassDependencyGraph}
+     * @throws IOException in case a class could not be looked up or parsed.
+     */
+    public static ClassDependencyGraph generate(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings, boolean lowMemory, String... rootClassNames) throws IOException {
+        return generate(appLookup, bootstrapLookup, warnings, lowMemory, null, rootClassNames);
+    }
+
+    /**
+     * Generates a new {@link ClassDependencyGraph}, see {@link #generate(Lookup, Lookup, List, boolean, String...)}. App classes with
+     * a {@link ClassSummary}, e.g. from a {@link ClassSummaryCache}, are neither read nor parsed. Their dependencies are taken from the
+     * summary instead, and their {@link ClassDependencyGraph.ClassNode#classFile} is null. Their bytes are only read when they need to
+     * be written to the output.
+     *
+     * @param appLookup       the {@link Lookup} to search for application classes, like root classes.
+     * @param bootstrapLookup the {@link Lookup} to search for boot classes, e.g. java.lang.Object.
+     * @param lowMemory       whether to drop the class files after their dependencies have been collected
+     * @param summaries       the summaries of app classes keyed by internal class name, see {@link ClassSummaryCache#getSummaries(Lookup)}.
+     *                        Classes without a summary are parsed. May be null.
+     * @param rootClassNames  the names of root classes to start the search for all dependencies for, given as internal names.
+     * @return the {@link ClassDependencyGraph}
+     * @throws IOException in case a class could not be looked up or parsed.
+     */
+    public static ClassDependencyGraph generate(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings, boolean lowMemory, Map<String, ClassSummary> summaries, String... rootClassNames) throws IOException {
         var rootClasses = new ArrayList<ClassDependencyGraph.ClassNode>(); // the root classes nodes
         var reachableClasses = new HashMap<String, ClassDependencyGraph.ClassNode>(); // all reachable classes, processed and unprocessed
-        var classesToProcess = new ArrayList<ClassDependencyGraph.ClassNode>(); // classes that still need to be processed
+        var classesToProcess = new ArrayDeque<ClassDependencyGraph.ClassNode>(); // classes that still need to be processed, in breadth-first order
 
         // Lookup all root classes and add them to to the list of classes to be processed.
         for (String className : rootClassNames) {
-            var classNode = lookupClassNode(className, reachableClasses, bootstrapLookup, appLookup);
+            var classNode = lookupClassNode(className, reachableClasses, bootstrapLookup, appLookup, lowMemory, summaries);
             if (classNode == null)
                 throw new IOException("Couldn't find root class " + className.replace('/', '.') + " in either app or bootstrap lookup.");
             classNode.isRootClass = true;
@@ -46,7 +84,7 @@ public class ClassDependencyGraphGenerator {
 
         // Process classes until there no more classes to process.
         while (classesToProcess.size() > 0) {
-            var classNode = classesToProcess.remove(classesToProcess.size() - 1);
+            var classNode = classesToProcess.removeFirst();
 
             // If this class has already been processed, continue with the next class.
             if (classNode.isProcessed)
@@ -62,21 +100,32 @@ public class ClassDependencyGraphGenerator {
             // Collect the classes referenced by this class and add them to the list
             // of classes to be processed if they haven't been processed yet. Also
             // add the classes to this class' set of classes it depends on.
-            Set<String> collectedClassNames = collectClassNames(classNode);
+            var summary = summaries != null ? summaries.get(classNode.name) : null;
+            Collection<String> collectedClassNames;
+            if (summary != null) {
+                collectedClassNames = summary.referencedClassNames;
+            } else {
+                if (classNode.classFile == null) classNode.classFile = ClassFileReader.readClassFile(classNode.name, appLookup.findClass(classNode.name));
+                collectedClassNames = collectClassNames(classNode.classFile);
+                if (lowMemory) classNode.classFile = null;
+            }
             for (String className : collectedClassNames) {
-                var otherClassNode = lookupClassNode(className, reachableClasses, bootstrapLookup, appLookup);
+                var otherClassNode = lookupClassNode(className, reachableClasses, bootstrapLookup, appLookup, lowMemory, summaries);
                 if (otherClassNode == null) {
-                    warnings.add("Class " + classNode.classFile.getName().replace('/', '.') + " depends on " + className.replace('/', '.') + ", but " + className.replace('/', '.') + " could not be found in app or bootstrap lookup.");
+                    warnings.add("Class " + classNode.name.replace('/', '.') + " depends on " + className.replace('/', '.') + ", but " + className.replace('/', '.') + " could not be found in app or bootstrap lookup.");
                     continue;
                 }
                 // Don't depend on this class itself
-                if (otherClassNode.classFile.getName().equals(classNode.classFile.getName()))
+                if (otherClassNode.name.equals(classNode.name))
                     continue;
-                if (!otherClassNode.isProcessed) {
+                // Record the breadth-first tree edge the first time a class is reached.
+                if (!otherClassNode.isRootClass && otherClassNode.reachedFrom == null) {
+                    otherClassNode.reachedFrom = classNode;
+                    otherClassNode.depth = classNode.depth + 1;
                     classesToProcess.add(otherClassNode);
                 }
                 classNode.dependsOn.add(otherClassNode);
-                otherClassNode.referencedBy.add(classNode.classFile.getName());
+                otherClassNode.referencedBy.add(classNode.name);
             }
         }
         return new ClassDependencyGraph(rootClasses, reachableClasses);
@@ -94,17 +143,25 @@ public class ClassDependencyGraphGenerator {
      * @param knownClasses    the classes that have been loaded so far
      * @param bootstrapLookup the {@link Lookup} to lookup bootstrap classes in
      * @param appLookup       the {@link Lookup} to lookup app classes in
+     * @param lowMemory       whether to create the node without parsing the class
+     * @param summaries       the summaries of app classes, may be null. App classes with a summary are not read.
      * @return the found {@link ClassDependencyGraph.ClassNode} or null
      * @throws IOException in case the class could not read
      */
-    private static ClassDependencyGraph.ClassNode lookupClassNode(String className, Map<String, ClassDependencyGraph.ClassNode> knownClasses, Lookup bootstrapLookup, Lookup appLookup) throws IOException {
+    private static ClassDependencyGraph.ClassNode lookupClassNode(String className, Map<String, ClassDependencyGraph.ClassNode> knownClasses, Lookup bootstrapLookup, Lookup appLookup, boolean lowMemory, Map<String, ClassSummary> summaries) throws IOException {
         if (knownClasses.containsKey(className)) return knownClasses.get(className);
         var bytes = bootstrapLookup.findClass(className);
         var isAppClass = bytes == null;
+        var summary = isAppClass && summaries != null ? summaries.get(className) : null;
+        if (summary != null) {
+            var classNode = new ClassDependencyGraph.ClassNode(className, summary.size, true);
+            knownClasses.put(className, classNode);
+            return classNode;
+        }
         if (bytes == null) bytes = appLookup.findClass(className);
         if (bytes == null) return null;
-        var classFile = ClassFileReader.readClassFile(className, bytes);
-        var classNode = new ClassDependencyGraph.ClassNode(classFile, isAppClass);
+        var classNode = lowMemory ? new ClassDependencyGraph.ClassNode(className, bytes.length, isAppClass) :
+                new ClassDependencyGraph.ClassNode(ClassFileReader.readClassFile(className, bytes), isAppClass);
         knownClasses.put(className, classNode);
         return classNode;
     }
@@ -113,15 +170,14 @@ public class ClassDependencyGraphGenerator {
      * Collect all class names referenced in the given class. See <a href="https://marioslab.io/posts/shakyboi/shakyboi-part-2/">this blog post</a>
      * for details.
      *
-     * @param classNode the class to collect the class names from
+     * @param classFile the class to collect the class names from
      * @return the set of class names found in the class
      */
-    private static Set<String> collectClassNames(ClassDependencyGraph.ClassNode classNode) {
-        var className = classNode.classFile.getName();
+    static Set<String> collectClassNames(ClassFile classFile) {
         var collectedClassNames = new HashSet<String>();
 
         // Collect class names from the constant pool
-        var constantPool = classNode.classFile.constantPool;
+        var constantPool = classFile.constantPool;
         for (int i = 0; i < constantPool.size(); i++) {
             var entry = constantPool.get(i);
             if (entry == null)
@@ -155,7 +211,7 @@ public class ClassDependencyGraphGenerator {
         }
 
         // Collect class names from fields
-        var fields = classNode.classFile.fields;
+        var fields = classFile.fields;
         for (var field : fields) {
             var otherClassName = getClassFromFieldDescriptor(field.getDescriptor());
             if (otherClassName != null)
@@ -163,7 +219,7 @@ public class ClassDependencyGraphGenerator {
         }
 
         // Collect class names from methods
-        var methods = classNode.classFile.methods;
+        var methods = classFile.methods;
         for (var method : methods) {
             collectedClassNames.addAll(getClassesFromMethodDescriptor(method.getDescriptor()));
         }
@@ -237,7 +293,7 @@ public class ClassDependencyGraphGenerator {
 
                 for (var otherClass : classNode.dependsOn) {
                     if (onlyAppClasses && !otherClass.isAppClass) continue;
-                    out.println("\"" + className + "\" -> \"" + otherClass.classFile.getName() + "\";");
+                    out.println("\"" + className + "\" -> \"" + otherClass.name + "\";");
                 }
             }
             out.println("}");
@@ -250,10 +306,10 @@ public class ClassDependencyGraphGenerator {
      *
      * <code>
      * [
-     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
-     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
-     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
-     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
+     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "reachedFrom": "other.class.Name", "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
+     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "reachedFrom": "other.class.Name", "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
+     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "reachedFrom": "other.class.Name", "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
+     * { "name": "some.class.Name", "isAppClass": false, "isRootClass": true, "reachedFrom": "other.class.Name", "dependsOn": [ "other.class.Name.", "and.another.One" ], "referencedBy": [ "other.class.Name.", "and.another.One" ]},
      * ...
      * ]
      * </code>
@@ -273,12 +329,13 @@ public class ClassDependencyGraphGenerator {
                 var classNodeEntry = classNodeEntries.next();
                 var className = classNodeEntry.getKey();
                 var classNode = classNodeEntry.getValue();
-                out.print("{ \"name\": \"" + className.replace('/', '.') + "\", \"isAppClass\": " + classNode.isAppClass + ", \"isRootClass\": " + classNode.isRootClass + ", \"dependsOn\": [");
+                var reachedFrom = classNode.reachedFrom != null ? "\"" + classNode.reachedFrom.name.replace('/', '.') + "\"" : "null";
+                out.print("{ \"name\": \"" + className.replace('/', '.') + "\", \"isAppClass\": " + classNode.isAppClass + ", \"isRootClass\": " + classNode.isRootClass + ", \"reachedFrom\": " + reachedFrom + ", \"dependsOn\": [");
 
-                var dependsOn = classNode.dependsOn.stream().filter(c -> onlyAppClasses ? c.isAppClass : true).sorted((a, b) -> a.classFile.getName().compareTo(b.classFile.getName())).iterator();
+                var dependsOn = classNode.dependsOn.stream().filter(c -> onlyAppClasses ? c.isAppClass : true).sorted((a, b) -> a.name.compareTo(b.name)).iterator();
                 while (dependsOn.hasNext()) {
                     var otherClass = dependsOn.next();
-                    out.print("\"" + otherClass.classFile.getName().replace('/', '.') + (dependsOn.hasNext() ? "\", " : "\""));
+                    out.print("\"" + otherClass.name.replace('/', '.') + (dependsOn.hasNext() ? "\", " : "\""));
                 }
                 out.print("], \"referencedBy\": [");
                 var referencedBy = classNode.referencedBy.stream().sorted().iterator();
@@ -0,0 +1,323 @@
+package io.marioslab.shakyboi.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * A compact, immutable binary snapshot of a {@link ClassDependencyGraph}. The snapshot can be written to a file, and read back
+ * by memory-mapping the file, without deserializing it. All queries read directly from the underlying buffer.
+ * <p>
+ * Nodes are identified by their index. Nodes are sorted by the UTF-8 bytes of their class name, so a node can be found via
+ * binary search, and two snapshots can be compared with a linear merge, see {@link ClassDependencyGraphDiff}. The edges are
+ * stored in compressed sparse row format, with the dependencies of each node sorted by node index.
+ * <p>
+ * The format is big endian and laid out as follows. All int arrays are 4 byte aligned.
+ * <pre>
+ * int    magic, see {@link #MAGIC}
+ * int    version, see {@link #VERSION}
+ * int    numNodes
+ * int    numEdges
+ * int    numStringBytes
+ * int[]  nameOffsets[numNodes + 1]  offset of each name in the string data, plus the end offset
+ * int[]  sizes[numNodes]            size of each <code>.class</code> file in bytes
+ * int[]  reachedFrom[numNodes]      node each node was first reached from, -1 for root classes
+ * int[]  depths[numNodes]           length of the shortest path from a root class
+ * int[]  edgeOffsets[numNodes + 1]  offset of each node's dependencies in the edge targets, plus the end offset
+ * int[]  edgeTargets[numEdges]      dependencies of all nodes
+ * byte[] flags[numNodes]            see {@link #FLAG_ROOT_CLASS} and {@link #FLAG_APP_CLASS}
+ * byte[] stringData[numStringBytes] UTF-8 encoded internal class names
+ * </pre>
+ */
+public class ClassDependencyGraphSnapshot {
+    /** The magic number at the start of every snapshot, "SHKG" **/
+    public static final int MAGIC = 0x53484b47;
+    /** The version of the format, incremented on every incompatible change **/
+    public static final int VERSION = 1;
+    /** Flag set for root classes **/
+    public static final int FLAG_ROOT_CLASS = 1;
+    /** Flag set for app classes, as opposed to bootstrap classes **/
+    public static final int FLAG_APP_CLASS = 2;
+
+    private static final int HEADER_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int numNodes;
+    private final int numEdges;
+    private final int nameOffsetsStart;
+    private final int sizesStart;
+    private final int reachedFromStart;
+    private final int depthsStart;
+    private final int edgeOffsetsStart;
+    private final int edgeTargetsStart;
+    private final int flagsStart;
+    private final int stringDataStart;
+
+    /**
+     * Wraps a buffer containing a snapshot. The buffer's position and limit are ignored, the snapshot must start at index 0.
+     *
+     * @param buffer the buffer
+     * @throws IOException in case the buffer does not contain a valid snapshot
+     */
+    public ClassDependencyGraphSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a class dependency graph snapshot.");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported class dependency graph snapshot version " + buffer.getInt(4) + ", expected " + VERSION + ".");
+        numNodes = buffer.getInt(8);
+        numEdges = buffer.getInt(12);
+        int numStringBytes = buffer.getInt(16);
+        nameOffsetsStart = HEADER_SIZE;
+        sizesStart = nameOffsetsStart + (numNodes + 1) * 4;
+        reachedFromStart = sizesStart + numNodes * 4;
+        depthsStart = reachedFromStart + numNodes * 4;
+        edgeOffsetsStart = depthsStart + numNodes * 4;
+        edgeTargetsStart = edgeOffsetsStart + (numNodes + 1) * 4;
+        flagsStart = edgeTargetsStart + numEdges * 4;
+        stringDataStart = flagsStart + numNodes;
+        if ((long) stringDataStart + numStringBytes > buffer.capacity())
+            throw new IOException("Truncated class dependency graph snapshot.");
+    }
+
+    /**
+     * Creates an in-memory snapshot of the given graph.
+     *
+     * @param graph the graph
+     * @return the snapshot
+     */
+    public static ClassDependencyGraphSnapshot fromGraph(ClassDependencyGraph graph) {
+        // Sort the nodes by the UTF-8 bytes of their names and assign ids.
+        var classNodes = graph.reachableClasses.values().toArray(new ClassDependencyGraph.ClassNode[0]);
+        var names = new byte[classNodes.length][];
+        var indices = new Integer[classNodes.length];
+        for (int i = 0; i < classNodes.length; i++) {
+            names[i] = classNodes[i].name.getBytes(StandardCharsets.UTF_8);
+            indices[i] = i;
+        }
+        Arrays.sort(indices, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+        var ids = new IdentityHashMap<ClassDependencyGraph.ClassNode, Integer>(classNodes.length);
+        for (int i = 0; i < indices.length; i++)
+            ids.put(classNodes[indices[i]], i);
+
+        int numNodes = classNodes.length, numEdges = 0, numStringBytes = 0;
+        for (var classNode : classNodes)
+            numEdges += classNode.dependsOn.size();
+        for (var name : names)
+            numStringBytes += name.length;
+
+        int size = HEADER_SIZE + (numNodes + 1) * 4 + numNodes * 4 * 3 + (numNodes + 1) * 4 + numEdges * 4 + numNodes + numStringBytes;
+        var buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(numNodes).putInt(numEdges).putInt(numStringBytes);
+        int offset = 0;
+        for (var index : indices) {
+            buffer.putInt(offset);
+            offset += names[index].length;
+        }
+        buffer.putInt(offset);
+        for (var index : indices) {
+            var classNode = classNodes[index];
+            buffer.putInt(classNode.modifiedData != null ? classNode.modifiedData.length : classNode.size);
+        }
+        for (var index : indices) {
+            var reachedFrom = classNodes[index].reachedFrom;
+            buffer.putInt(reachedFrom != null ? ids.get(reachedFrom) : -1);
+        }
+        for (var index : indices)
+            buffer.putInt(classNodes[index].depth);
+        offset = 0;
+        for (var index : indices) {
+            buffer.putInt(offset);
+            offset += classNodes[index].dependsOn.size();
+        }
+        buffer.putInt(offset);
+        for (var index : indices) {
+            var dependsOn = classNodes[index].dependsOn;
+            var targets = new int[dependsOn.size()];
+            for (int i = 0; i < targets.length; i++)
+                targets[i] = ids.get(dependsOn.get(i));
+            Arrays.sort(targets);
+            for (int target : targets)
+                buffer.putInt(target);
+        }
+        for (var index : indices) {
+            var classNode = classNodes[index];
+            buffer.put((byte) ((classNode.isRootClass ? FLAG_ROOT_CLASS : 0) | (classNode.isAppClass ? FLAG_APP_CLASS : 0)));
+        }
+        for (var index : indices)
+            buffer.put(names[index]);
+
+        try {
+            return new ClassDependencyGraphSnapshot(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't create snapshot.", e);
+        }
+    }
+
+    /**
+     * Reads a snapshot by memory-mapping the given file. Only the header is read eagerly.
+     *
+     * @param file the file
+     * @return the snapshot
+     * @throws IOException in case the file could not be mapped or does not contain a valid snapshot
+     */
+    public static ClassDependencyGraphSnapshot read(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            return new ClassDependencyGraphSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the snapshot to the given file.
+     *
+     * @param file the file
+     * @throws IOException in case the file could not be written
+     */
+    public void write(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var data = buffer.duplicate().clear();
+            while (data.hasRemaining())
+                channel.write(data);
+        }
+    }
+
+    /** @return the number of nodes **/
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    /** @return the number of edges **/
+    public int getNumEdges() {
+        return numEdges;
+    }
+
+    /**
+     * @param node the node index
+     * @return the internal class name of the node
+     */
+    public String getName(int node) {
+        int start = buffer.getInt(nameOffsetsStart + node * 4), end = buffer.getInt(nameOffsetsStart + node * 4 + 4);
+        var bytes = new byte[end - start];
+        buffer.get(stringDataStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds a node by its class name via binary search.
+     *
+     * @param className the internal class name, e.g. "java/lang/Object"
+     * @return the node index, or -1 if the class is not part of the snapshot
+     */
+    public int findNode(String className) {
+        var name = className.getBytes(StandardCharsets.UTF_8);
+        int low = 0, high = numNodes - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int result = compareName(mid, name);
+            if (result < 0) low = mid + 1;
+            else if (result > 0) high = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the name of a node with the name of a node in another snapshot by their UTF-8 bytes, without decoding either name.
+     *
+     * @param node      the node index in this snapshot
+     * @param other     the other snapshot
+     * @param otherNode the node index in the other snapshot
+     * @return a negative number, zero, or a positive number if the name of the node is less than, equal to, or greater than the other name
+     */
+    public int compareNames(int node, ClassDependencyGraphSnapshot other, int otherNode) {
+        int start = buffer.getInt(nameOffsetsStart + node * 4), end = buffer.getInt(nameOffsetsStart + node * 4 + 4);
+        int otherStart = other.buffer.getInt(other.nameOffsetsStart + otherNode * 4), otherEnd = other.buffer.getInt(other.nameOffsetsStart + otherNode * 4 + 4);
+        int length = end - start, otherLength = otherEnd - otherStart;
+        for (int i = 0, n = Math.min(length, otherLength); i < n; i++) {
+            int a = buffer.get(stringDataStart + start + i) & 0xff, b = other.buffer.get(other.stringDataStart + otherStart + i) & 0xff;
+            if (a != b) return a - b;
+        }
+        return length - otherLength;
+    }
+
+    private int compareName(int node, byte[] name) {
+        int start = buffer.getInt(nameOffsetsStart + node * 4), end = buffer.getInt(nameOffsetsStart + node * 4 + 4);
+        int length = end - start;
+        for (int i = 0, n = Math.min(length, name.length); i < n; i++) {
+            int a = buffer.get(stringDataStart + start + i) & 0xff, b = name[i] & 0xff;
+            if (a != b) return a - b;
+        }
+        return length - name.length;
+    }
+
+    /**
+     * @param node the node index
+     * @return the flags of the node, see {@link #FLAG_ROOT_CLASS} and {@link #FLAG_APP_CLASS}
+     */
+    public int getFlags(int node) {
+        return buffer.get(flagsStart + node);
+    }
+
+    /**
+     * @param node the node index
+     * @return whether the node is a root class
+     */
+    public boolean isRootClass(int node) {
+        return (getFlags(node) & FLAG_ROOT_CLASS) != 0;
+    }
+
+    /**
+     * @param node the node index
+     * @return whether the node is an app class
+     */
+    public boolean isAppClass(int node) {
+        return (getFlags(node) & FLAG_APP_CLASS) != 0;
+    }
+
+    /**
+     * @param node the node index
+     * @return the size of the node's <code>.class</code> file in bytes
+     */
+    public int getSize(int node) {
+        return buffer.getInt(sizesStart + node * 4);
+    }
+
+    /**
+     * @param node the node index
+     * @return the index of the node this node was first reached from, -1 for root classes
+     */
+    public int getReachedFrom(int node) {
+        return buffer.getInt(reachedFromStart + node * 4);
+    }
+
+    /**
+     * @param node the node index
+     * @return the length of the shortest path from a root class to the node
+     */
+    public int getDepth(int node) {
+        return buffer.getInt(depthsStart + node * 4);
+    }
+
+    /**
+     * @param node the node index
+     * @return the number of nodes the node depends on
+     */
+    public int getNumDependencies(int node) {
+        return buffer.getInt(edgeOffsetsStart + node * 4 + 4) - buffer.getInt(edgeOffsetsStart + node * 4);
+    }
+
+    /**
+     * @param node  the node index
+     * @param index the index of the dependency, between 0 and {@link #getNumDependencies(int)}
+     * @return the index of the dependency node. Dependencies of a node are sorted by node index.
+     */
+    public int getDependency(int node, int index) {
+        return buffer.getInt(edgeTargetsStart + (buffer.getInt(edgeOffsetsStart + node * 4) + index) * 4);
+    }
+}
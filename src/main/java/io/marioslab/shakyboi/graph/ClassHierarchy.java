@@ -0,0 +1,270 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.lookup.Lookup;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * An index of the super class and interface relationships of a set of classes, supporting constant time
+ * subtype checks.
+ * <p>
+ * Super classes form a tree rooted at <code>java/lang/Object</code>. Each type is numbered in pre-order of a
+ * depth-first traversal of that tree, so all subclasses of a class occupy a contiguous interval of numbers.
+ * Each interface is given a dense interface id, and each type stores the bit set of the ids of all interfaces
+ * it implements, directly or indirectly. {@link #isSubtypeOf(String, String)} is thus either an interval check
+ * or a bit test.
+ * <p>
+ * The index is built once over a fixed set of classes and can not be extended. It answers queries about the shaken
+ * output, e.g. {@link io.marioslab.shakyboi.Shakyboi.Settings#implementationsOf}, and is built over the reachable classes
+ * only. {@link RapidTypeAnalysis} does not use it for dispatch, as the classes it analyzes are discovered during the
+ * analysis. It keeps the instantiated subtypes of each type incrementally instead.
+ */
+public class ClassHierarchy {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<ClassFile> classFiles = new ArrayList<>();
+    private final int[] superClasses;
+    private final int[][] interfaces;
+    private final int[][] directSubtypes;
+    private final int[] preOrder; // pre-order number of each type in the super class tree
+    private final int[] lastDescendant; // largest pre-order number of any subclass of each type
+    private final int[] typesInPreOrder;
+    private final int[] interfaceIds; // dense interface id of each interface, -1 for classes
+    private final BitSet[] implementedInterfaces;
+
+    /**
+     * Builds the hierarchy of the given classes. Super classes and interfaces not contained in the given classes are looked up in the
+     * <code>supertypeLookup</code>, e.g. the bootstrap lookup. Supertypes that can not be found are ignored.
+     *
+     * @param classFiles      the classes to build the hierarchy for
+     * @param supertypeLookup the {@link Lookup} to find missing supertypes in, may be null
+     * @throws IOException in case a supertype could not be read
+     */
+    public ClassHierarchy(Collection<ClassFile> classFiles, Lookup supertypeLookup) throws IOException {
+        // Assign ids to all types, including missing supertypes.
+        var typesToAdd = new ArrayDeque<ClassFile>(classFiles);
+        for (var classFile : classFiles)
+            addType(classFile);
+        while (typesToAdd.size() > 0) {
+            var classFile = typesToAdd.removeFirst();
+            for (var supertypeName : getSupertypeNames(classFile)) {
+                if (ids.containsKey(supertypeName) || supertypeLookup == null) continue;
+                var bytes = supertypeLookup.findClass(supertypeName);
+                if (bytes == null) continue;
+                var supertype = ClassFileReader.readClassFile(supertypeName, bytes);
+                addType(supertype);
+                typesToAdd.add(supertype);
+            }
+        }
+
+        // Resolve super class and interface links.
+        int numTypes = names.size();
+        superClasses = new int[numTypes];
+        interfaces = new int[numTypes][];
+        interfaceIds = new int[numTypes];
+        var subtypes = new ArrayList<List<Integer>>(numTypes);
+        int numInterfaces = 0;
+        for (int i = 0; i < numTypes; i++) {
+            subtypes.add(new ArrayList<>());
+            interfaceIds[i] = this.classFiles.get(i).hasAccessFlag(ClassFile.ACC_INTERFACE) ? numInterfaces++ : -1;
+        }
+        for (int i = 0; i < numTypes; i++) {
+            var classFile = this.classFiles.get(i);
+            superClasses[i] = classFile.superClass != 0 ? ids.getOrDefault(classFile.getSuperClassName(), -1) : -1;
+            if (superClasses[i] != -1) subtypes.get(superClasses[i]).add(i);
+            interfaces[i] = classFile.interfaces.stream()
+                    .map(index -> ids.getOrDefault(((ClassFile.ClassInfoEntry) classFile.constantPool.get(index)).getName(), -1))
+                    .filter(id -> id != -1).mapToInt(Integer::intValue).toArray();
+            for (int interfaceId : interfaces[i])
+                subtypes.get(interfaceId).add(i);
+        }
+        directSubtypes = new int[numTypes][];
+        for (int i = 0; i < numTypes; i++)
+            directSubtypes[i] = subtypes.get(i).stream().mapToInt(Integer::intValue).toArray();
+
+        // Number the super class tree in pre-order with an iterative depth-first traversal.
+        preOrder = new int[numTypes];
+        lastDescendant = new int[numTypes];
+        typesInPreOrder = new int[numTypes];
+        var stack = new int[numTypes];
+        var nextChild = new int[numTypes];
+        int nextNumber = 0;
+        for (int root = 0; root < numTypes; root++) {
+            if (superClasses[root] != -1) continue;
+            int top = 0;
+            stack[0] = root;
+            typesInPreOrder[nextNumber] = root;
+            preOrder[root] = nextNumber++;
+            while (top >= 0) {
+                int type = stack[top];
+                int child = -1;
+                while (nextChild[type] < directSubtypes[type].length) {
+                    int candidate = directSubtypes[type][nextChild[type]++];
+                    if (superClasses[candidate] == type) {
+                        child = candidate;
+                        break;
+                    }
+                }
+                if (child != -1) {
+                    typesInPreOrder[nextNumber] = child;
+                    preOrder[child] = nextNumber++;
+                    stack[++top] = child;
+                } else {
+                    lastDescendant[type] = nextNumber - 1;
+                    top--;
+                }
+            }
+        }
+
+        // Compute the implemented interfaces of each type, supertypes first.
+        implementedInterfaces = new BitSet[numTypes];
+        for (int i = 0; i < numTypes; i++)
+            computeImplementedInterfaces(i);
+    }
+
+    private void addType(ClassFile classFile) {
+        if (ids.containsKey(classFile.getName())) return;
+        ids.put(classFile.getName(), names.size());
+        names.add(classFile.getName());
+        classFiles.add(classFile);
+    }
+
+    private static List<String> getSupertypeNames(ClassFile classFile) {
+        var supertypeNames = new ArrayList<String>();
+        if (classFile.superClass != 0) supertypeNames.add(classFile.getSuperClassName());
+        for (int index : classFile.interfaces)
+            supertypeNames.add(((ClassFile.ClassInfoEntry) classFile.constantPool.get(index)).getName());
+        return supertypeNames;
+    }
+
+    private BitSet computeImplementedInterfaces(int type) {
+        if (implementedInterfaces[type] != null) return implementedInterfaces[type];
+        var bits = new BitSet();
+        if (interfaceIds[type] != -1) bits.set(interfaceIds[type]);
+        if (superClasses[type] != -1) bits.or(computeImplementedInterfaces(superClasses[type]));
+        for (int interfaceType : interfaces[type])
+            bits.or(computeImplementedInterfaces(interfaceType));
+        implementedInterfaces[type] = bits;
+        return bits;
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return whether the class is part of this hierarchy
+     */
+    public boolean contains(String className) {
+        return ids.containsKey(className);
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return the {@link ClassFile} of the class, or null if the class is not part of this hierarchy
+     */
+    public ClassFile getClassFile(String className) {
+        var id = ids.get(className);
+        return id != null ? classFiles.get(id) : null;
+    }
+
+    /**
+     * Returns whether <code>className</code> is the same type as, a subclass of, or an implementation of <code>supertypeName</code>.
+     * Runs in constant time.
+     *
+     * @param className     the internal name of the potential subtype
+     * @param supertypeName the internal name of the potential supertype
+     * @return whether the class is a subtype of the supertype. False if either type is not part of this hierarchy.
+     */
+    public boolean isSubtypeOf(String className, String supertypeName) {
+        var id = ids.get(className);
+        var supertypeId = ids.get(supertypeName);
+        if (id == null || supertypeId == null) return false;
+        if (interfaceIds[supertypeId] != -1) return implementedInterfaces[id].get(interfaceIds[supertypeId]);
+        return preOrder[supertypeId] <= preOrder[id] && preOrder[id] <= lastDescendant[supertypeId];
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return the internal name of the super class, or null if the class has no super class or it is not part of this hierarchy
+     */
+    public String getSuperClass(String className) {
+        var id = ids.get(className);
+        return id != null && superClasses[id] != -1 ? names.get(superClasses[id]) : null;
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return the internal names of the interfaces the class directly implements or extends
+     */
+    public List<String> getInterfaces(String className) {
+        var id = ids.get(className);
+        var result = new ArrayList<String>();
+        if (id != null) for (int interfaceType : interfaces[id]) result.add(names.get(interfaceType));
+        return result;
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return the internal names of the direct subclasses, sub-interfaces and implementations of the type
+     */
+    public List<String> getDirectSubtypes(String className) {
+        var id = ids.get(className);
+        var result = new ArrayList<String>();
+        if (id != null) for (int subtype : directSubtypes[id]) result.add(names.get(subtype));
+        return result;
+    }
+
+    /**
+     * Returns all direct and indirect subtypes of a type, excluding the type itself. Subclasses of a class are enumerated
+     * from the pre-order interval of the class, without walking the hierarchy.
+     *
+     * @param className the internal name of the class
+     * @return the internal names of all subtypes
+     */
+    public List<String> getSubtypes(String className) {
+        var id = ids.get(className);
+        var result = new ArrayList<String>();
+        if (id == null) return result;
+        var visited = new BitSet(names.size());
+        var typesToProcess = new ArrayDeque<Integer>();
+        typesToProcess.add(id);
+        visited.set(id);
+        while (typesToProcess.size() > 0) {
+            int type = typesToProcess.removeFirst();
+            if (interfaceIds[type] == -1) {
+                // All subclasses of a class are in its pre-order interval. Only interfaces need to be traversed.
+                for (int i = preOrder[type] + 1; i <= lastDescendant[type]; i++) {
+                    int subclass = typesInPreOrder[i];
+                    if (!visited.get(subclass)) {
+                        visited.set(subclass);
+                        result.add(names.get(subclass));
+                    }
+                }
+            } else {
+                for (int subtype : directSubtypes[type]) {
+                    if (visited.get(subtype)) continue;
+                    visited.set(subtype);
+                    result.add(names.get(subtype));
+                    typesToProcess.add(subtype);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all non-abstract classes that are subtypes of the given type.
+     *
+     * @param className the internal name of the class or interface
+     * @return the internal names of the non-abstract subclasses or implementations
+     */
+    public List<String> getImplementations(String className) {
+        var result = new ArrayList<String>();
+        for (var subtype : getSubtypes(className)) {
+            if (!classFiles.get(ids.get(subtype)).hasAccessFlag(ClassFile.ACC_ABSTRACT | ClassFile.ACC_INTERFACE))
+                result.add(subtype);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package io.marioslab.shakyboi.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Orders classes by the order in which the JVM is expected to load them, so the entries of an output <code>.jar</code> file can be
+ * laid out for sequential reads during startup.
+ * <p>
+ * By default, classes are ordered by their {@link ClassDependencyGraph.ClassNode#depth}, i.e. their distance from the root classes
+ * in the class dependency graph, then by name. Optionally, the classes loaded by a trial run can be read from a
+ * <code>-Xlog:class+load</code> (or <code>-verbose:class</code>) log via {@link #readClassLoadLog(File)}. Logged classes come first,
+ * in the order they were loaded, followed by all other classes in the default order.
+ */
+public class ClassLoadOrder {
+    private static final Pattern UNIFIED_LOG_LINE = Pattern.compile("\\[class,load\\s*\\]\\s+(\\S+)\\s+source:");
+    private static final Pattern VERBOSE_CLASS_LINE = Pattern.compile("^\\[Loaded\\s+(\\S+)\\s+from");
+
+    /**
+     * Sorts the given classes by their expected load order.
+     *
+     * @param classes          the classes to sort
+     * @param loadedClassNames the internal names of the classes in the order they were loaded by a trial run, see
+     *                         {@link #readClassLoadLog(File)}. May be null.
+     * @return a new list containing the sorted classes
+     */
+    public static List<ClassDependencyGraph.ClassNode> sort(Collection<ClassDependencyGraph.ClassNode> classes, List<String> loadedClassNames) {
+        var loadIndices = new HashMap<String, Integer>();
+        if (loadedClassNames != null) {
+            for (var className : loadedClassNames)
+                loadIndices.putIfAbsent(className, loadIndices.size());
+        }
+        var sorted = new ArrayList<>(classes);
+        sorted.sort((a, b) -> {
+            var aIndex = loadIndices.get(a.name);
+            var bIndex = loadIndices.get(b.name);
+            if (aIndex != null && bIndex != null) return Integer.compare(aIndex, bIndex);
+            if (aIndex != null) return -1;
+            if (bIndex != null) return 1;
+            if (a.depth != b.depth) return Integer.compare(a.depth, b.depth);
+            return a.name.compareTo(b.name);
+        });
+        return sorted;
+    }
+
+    /**
+     * Reorders the given classes so that each class comes after its super class and interfaces, as the JVM has to load supertypes
+     * before a class can be loaded. Apart from that, the given order is kept.
+     *
+     * @param classes    the classes, e.g. sorted by {@link #sort(Collection, List)}
+     * @param supertypes returns the internal names of the super class and interfaces of a class
+     * @return a new list containing the reordered classes
+     */
+    public static List<ClassDependencyGraph.ClassNode> sortSupertypesFirst(List<ClassDependencyGraph.ClassNode> classes, Function<ClassDependencyGraph.ClassNode, List<String>> supertypes) {
+        var classesByName = new HashMap<String, ClassDependencyGraph.ClassNode>();
+        for (var clazz : classes)
+            classesByName.put(clazz.name, clazz);
+        var sorted = new ArrayList<ClassDependencyGraph.ClassNode>(classes.size());
+        var visited = new HashSet<String>();
+        // Emit each class after its supertypes, with an explicit stack, as hierarchies can be deep.
+        var stack = new ArrayDeque<ClassDependencyGraph.ClassNode>();
+        var expanded = new HashSet<String>();
+        for (var clazz : classes) {
+            stack.push(clazz);
+            while (!stack.isEmpty()) {
+                var top = stack.peek();
+                if (visited.contains(top.name)) {
+                    stack.pop();
+                    continue;
+                }
+                if (expanded.add(top.name)) {
+                    // Pushed in reverse, so the super class is emitted before the interfaces, like the JVM loads them.
+                    var supertypeNames = supertypes.apply(top);
+                    for (int i = supertypeNames.size() - 1; i >= 0; i--) {
+                        var supertypeName = supertypeNames.get(i);
+                        var supertype = classesByName.get(supertypeName);
+                        if (supertype != null && !visited.contains(supertypeName)) stack.push(supertype);
+                    }
+                } else {
+                    stack.pop();
+                    visited.add(top.name);
+                    sorted.add(top);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Reads the names of the loaded classes from a log written by a JVM started with <code>-Xlog:class+load</code>, e.g.
+     * <code>-Xlog:class+load:file=classload.log</code>, or with <code>-verbose:class</code> on older JVMs. Lines not describing a
+     * loaded class are ignored.
+     *
+     * @param file the log file
+     * @return the internal names of the loaded classes, in load order
+     * @throws IOException in case the file could not be read
+     */
+    public static List<String> readClassLoadLog(File file) throws IOException {
+        var classNames = new ArrayList<String>();
+        for (var line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            Matcher matcher = UNIFIED_LOG_LINE.matcher(line);
+            if (!matcher.find()) {
+                matcher = VERBOSE_CLASS_LINE.matcher(line);
+                if (!matcher.find()) continue;
+            }
+            classNames.add(matcher.group(1).replace('.', '/'));
+        }
+        return classNames;
+    }
+}
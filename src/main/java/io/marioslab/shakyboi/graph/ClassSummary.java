@@ -0,0 +1,53 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The dependency summary of a class, i.e. everything {@link ClassDependencyGraphGenerator} needs to know about a class to
+ * build the class dependency graph, without parsing the class again. Summaries are stored in a {@link ClassSummaryCache}.
+ */
+public class ClassSummary {
+    /** The internal name of the class **/
+    public final String name;
+    /** The size of the <code>.class</code> file in bytes **/
+    public final int size;
+    /** The access flags of the class, see {@link ClassFile#ACC_PUBLIC} etc. **/
+    public final int accessFlags;
+    /** The internal name of the super class, null for <code>java/lang/Object</code> and modules **/
+    public final String superClassName;
+    /** The internal names of the directly implemented or extended interfaces **/
+    public final List<String> interfaceNames;
+    /** The internal names of all classes referenced by the class, in the order they were collected in **/
+    public final List<String> referencedClassNames;
+
+    public ClassSummary(String name, int size, int accessFlags, String superClassName, List<String> interfaceNames, List<String> referencedClassNames) {
+        this.name = name;
+        this.size = size;
+        this.accessFlags = accessFlags;
+        this.superClassName = superClassName;
+        this.interfaceNames = interfaceNames;
+        this.referencedClassNames = referencedClassNames;
+    }
+
+    /**
+     * Creates the summary of the given class.
+     *
+     * @param name      the internal name of the class
+     * @param classFile the parsed class
+     * @return the summary
+     */
+    public static ClassSummary fromClassFile(String name, ClassFile classFile) {
+        var interfaceNames = new ArrayList<String>(classFile.interfaces.size());
+        for (int index : classFile.interfaces)
+            interfaceNames.add(((ClassFile.ClassInfoEntry) classFile.constantPool.get(index)).getName());
+        return new ClassSummary(name,
+                classFile.originalData.length,
+                classFile.accessFlags,
+                classFile.superClass != 0 ? classFile.getSuperClassName() : null,
+                interfaceNames,
+                new ArrayList<>(ClassDependencyGraphGenerator.collectClassNames(classFile)));
+    }
+}
@@ -0,0 +1,199 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.lookup.Lookup;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * An on-disk cache of the {@link ClassSummary} instances of the classes in <code>.jar</code> files. Summaries are stored per
+ * <code>.jar</code> file, keyed by the SHA-256 hash of the file's content, so a library like guava is only parsed once, no matter
+ * how many projects and runs use it, or where the file is located. The cache directory can be shared by concurrent runs.
+ * <p>
+ * Each cache file is a compact binary file, consisting of a string table and the summaries of all classes in the <code>.jar</code>,
+ * referencing class names by their index in the string table.
+ */
+public class ClassSummaryCache {
+    private static final int MAGIC = 0x53484b53; // "SHKS"
+    private static final int VERSION = 1;
+
+    private final File directory;
+    /** Number of <code>.jar</code> files whose summaries were found in the cache **/
+    public int hits;
+    /** Number of <code>.jar</code> files whose summaries had to be computed **/
+    public int misses;
+
+    /**
+     * Creates a new cache storing its files in the given directory.
+     *
+     * @param directory the directory, created if it doesn't exist
+     */
+    public ClassSummaryCache(File directory) {
+        if (directory == null) throw new IllegalArgumentException("Directory must not be null.");
+        if (!directory.exists() && !directory.mkdirs())
+            throw new RuntimeException("Couldn't create summary cache directory " + directory.getAbsolutePath());
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the summaries of all classes in the given app lookup, to be passed to
+     * {@link ClassDependencyGraphGenerator#generate(Lookup, Lookup, List, boolean, Map, String...)}. The summaries of the classes
+     * in each {@link JarLookup}, also if contained in a {@link CombinedLookup}, are read from the cache, or computed and written to
+     * the cache. Classes of other lookups map to null, so they are parsed by the generator. If a class is contained in multiple lookups,
+     * the first lookup wins, like in {@link CombinedLookup}.
+     *
+     * @param appLookup the app lookup
+     * @return the summaries keyed by internal class name. Values may be null.
+     * @throws IOException in case a <code>.jar</code> file or cache file could not be read or written
+     */
+    public Map<String, ClassSummary> getSummaries(Lookup appLookup) throws IOException {
+        var summaries = new HashMap<String, ClassSummary>();
+        addSummaries(appLookup, summaries);
+        return summaries;
+    }
+
+    private void addSummaries(Lookup lookup, Map<String, ClassSummary> summaries) throws IOException {
+        if (lookup instanceof CombinedLookup) {
+            for (var otherLookup : ((CombinedLookup) lookup).getLookups())
+                addSummaries(otherLookup, summaries);
+        } else if (lookup instanceof JarLookup) {
+            for (var summary : getSummaries((JarLookup) lookup))
+                if (!summaries.containsKey(summary.name)) summaries.put(summary.name, summary);
+        } else {
+            for (var file : lookup.list()) {
+                if (!file.endsWith(".class")) continue;
+                var className = file.substring(0, file.length() - ".class".length());
+                if (!summaries.containsKey(className)) summaries.put(className, null);
+            }
+        }
+    }
+
+    private List<ClassSummary> getSummaries(JarLookup lookup) throws IOException {
+        var cacheFile = new File(directory, hash(lookup.getFile()) + ".summaries");
+        if (cacheFile.exists()) {
+            try {
+                var summaries = readSummaries(cacheFile);
+                hits++;
+                return summaries;
+            } catch (IOException e) {
+                // Corrupt or outdated cache file, recompute it below.
+            }
+        }
+        misses++;
+        var summaries = new ArrayList<ClassSummary>();
+        for (var file : lookup.list()) {
+            if (!file.endsWith(".class") || file.startsWith("META-INF/")) continue;
+            var className = file.substring(0, file.length() - ".class".length());
+            summaries.add(ClassSummary.fromClassFile(className, ClassFileReader.readClassFile(className, lookup.findClass(className))));
+        }
+        writeSummaries(summaries, cacheFile);
+        return summaries;
+    }
+
+    private static String hash(File file) throws IOException {
+        try (var in = new FileInputStream(file)) {
+            var digest = MessageDigest.getInstance("SHA-256");
+            var buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                digest.update(buffer, 0, read);
+            var hash = new StringBuilder();
+            for (var b : digest.digest())
+                hash.append(String.format("%02x", b & 0xff));
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not supported.", e);
+        }
+    }
+
+    private static List<ClassSummary> readSummaries(File file) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a summary cache file: " + file.getAbsolutePath());
+            if (in.readInt() != VERSION) throw new IOException("Unsupported summary cache file version: " + file.getAbsolutePath());
+            var strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++)
+                strings[i] = in.readUTF();
+            int numSummaries = in.readInt();
+            var summaries = new ArrayList<ClassSummary>(numSummaries);
+            for (int i = 0; i < numSummaries; i++) {
+                var name = strings[in.readInt()];
+                int size = in.readInt();
+                int accessFlags = in.readInt();
+                int superClassIndex = in.readInt();
+                var interfaceNames = readStrings(in, strings);
+                var referencedClassNames = readStrings(in, strings);
+                summaries.add(new ClassSummary(name, size, accessFlags, superClassIndex != -1 ? strings[superClassIndex] : null, interfaceNames, referencedClassNames));
+            }
+            return summaries;
+        } catch (IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Corrupt summary cache file: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in, String[] strings) throws IOException {
+        int numStrings = in.readInt();
+        var result = new ArrayList<String>(numStrings);
+        for (int i = 0; i < numStrings; i++)
+            result.add(strings[in.readInt()]);
+        return result;
+    }
+
+    /** Writes the summaries to a temporary file first, then moves it into place, so concurrent runs never see a partially written file. **/
+    private void writeSummaries(List<ClassSummary> summaries, File file) throws IOException {
+        var stringIndices = new HashMap<String, Integer>();
+        var strings = new ArrayList<String>();
+        for (var summary : summaries) {
+            addString(summary.name, stringIndices, strings);
+            if (summary.superClassName != null) addString(summary.superClassName, stringIndices, strings);
+            summary.interfaceNames.forEach(name -> addString(name, stringIndices, strings));
+            summary.referencedClassNames.forEach(name -> addString(name, stringIndices, strings));
+        }
+
+        var tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(strings.size());
+                for (var string : strings)
+                    out.writeUTF(string);
+                out.writeInt(summaries.size());
+                for (var summary : summaries) {
+                    out.writeInt(stringIndices.get(summary.name));
+                    out.writeInt(summary.size);
+                    out.writeInt(summary.accessFlags);
+                    out.writeInt(summary.superClassName != null ? stringIndices.get(summary.superClassName) : -1);
+                    writeStrings(out, summary.interfaceNames, stringIndices);
+                    writeStrings(out, summary.referencedClassNames, stringIndices);
+                }
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static void addString(String string, Map<String, Integer> stringIndices, List<String> strings) {
+        if (stringIndices.containsKey(string)) return;
+        stringIndices.put(string, strings.size());
+        strings.add(string);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values, Map<String, Integer> stringIndices) throws IOException {
+        out.writeInt(values.size());
+        for (var value : values)
+            out.writeInt(stringIndices.get(value));
+    }
+}
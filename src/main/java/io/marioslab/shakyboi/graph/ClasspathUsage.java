@@ -0,0 +1,208 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.DirectoryLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.lookup.Lookup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Attributes the reachable app classes of a {@link ClassDependencyGraph} to the app sources they are loaded from, i.e. the
+ * {@link CombinedLookup#getLeafLookups()} of the app lookup. A class found in multiple sources is loaded from the first one, like
+ * on a class path. Sources contributing no reachable classes can be dropped from the class path of the shaken app, see
+ * {@link #getMinimalClasspath()}.
+ */
+public class ClasspathUsage {
+    /**
+     * The classes of a single app source.
+     */
+    public static class Source {
+        /** The lookup of the source **/
+        public final Lookup lookup;
+        /** The <code>.jar</code> file or directory of the source, or null if the lookup isn't file based **/
+        public final File file;
+        /** Number of classes loaded from this source, i.e. not shadowed by a previous source **/
+        public int totalClasses;
+        /** Number of reachable classes loaded from this source **/
+        public int reachableClasses;
+        /** Uncompressed size in bytes of the classes loaded from this source **/
+        public long totalBytes;
+        /** Uncompressed size in bytes of the reachable classes loaded from this source **/
+        public long reachableBytes;
+        /** Number of resources, i.e. non-class files, of this source. They may be needed at run time even if no class is reachable. **/
+        public int resources;
+        /** The sources that must stay behind this source on the class path, as they contain reachable classes this source shadows **/
+        final Set<Source> shadowedSources = new HashSet<>();
+
+        Source(Lookup lookup) {
+            this.lookup = lookup;
+            this.file = getFile(lookup);
+        }
+
+        /**
+         * @return the path of the {@link #file}, or "app" if the source isn't file based
+         */
+        public String getName() {
+            return getSourceName(lookup);
+        }
+    }
+
+    /** The app sources in class path order **/
+    public final List<Source> sources;
+
+    private ClasspathUsage(List<Source> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * Attributes the classes of the app lookup to its sources.
+     *
+     * @param appLookup the app lookup, usually a {@link CombinedLookup}
+     * @param graph     the class dependency graph generated for the app lookup
+     * @return the usage of each source
+     */
+    public static ClasspathUsage compute(Lookup appLookup, ClassDependencyGraph graph) {
+        var combinedLookup = appLookup instanceof CombinedLookup ? (CombinedLookup) appLookup : new CombinedLookup(appLookup);
+        return compute(combinedLookup.getLeafLookups(), combinedLookup.getSources(), graph);
+    }
+
+    /**
+     * Attributes the classes of the app lookup to its sources, based on an existing listing of the app lookup. The sizes of
+     * reachable classes are taken from the graph, only the sizes of unreachable classes are looked up.
+     *
+     * @param lookups the leaf lookups of the app lookup, in class path order, see {@link CombinedLookup#getLeafLookups()}
+     * @param files   the lookup each file of the app lookup is found in, see {@link CombinedLookup#getSources()}
+     * @param graph   the class dependency graph generated for the app lookup
+     * @return the usage of each source
+     */
+    public static ClasspathUsage compute(List<Lookup> lookups, Map<String, Lookup> files, ClassDependencyGraph graph) {
+        var sources = new ArrayList<Source>();
+        var sourcesByLookup = new HashMap<Lookup, Source>();
+        for (var lookup : lookups) {
+            var source = new Source(lookup);
+            sources.add(source);
+            sourcesByLookup.putIfAbsent(lookup, source);
+        }
+        for (var entry : files.entrySet()) {
+            var file = entry.getKey();
+            var source = sourcesByLookup.get(entry.getValue());
+            if (!file.endsWith(".class")) {
+                source.resources++;
+                continue;
+            }
+            var clazz = graph.reachableClasses.get(file.substring(0, file.length() - ".class".length()));
+            source.totalClasses++;
+            if (clazz != null && clazz.isAppClass) {
+                source.reachableClasses++;
+                source.reachableBytes += clazz.size;
+                source.totalBytes += clazz.size;
+            } else {
+                source.totalBytes += Math.max(0, entry.getValue().getSize(file));
+            }
+        }
+
+        // A reachable class shadows its copies in later sources. Only sources with reachable classes end up on the minimal class
+        // path, so only those are checked for copies.
+        for (var clazz : graph.reachableClasses.values()) {
+            if (!clazz.isAppClass) continue;
+            var file = clazz.name + ".class";
+            var source = sourcesByLookup.get(files.get(file));
+            if (source == null) continue;
+            for (int i = sources.indexOf(source) + 1; i < sources.size(); i++) {
+                var other = sources.get(i);
+                if (other.reachableClasses > 0 && other.lookup.contains(file)) source.shadowedSources.add(other);
+            }
+        }
+        return new ClasspathUsage(sources);
+    }
+
+    /**
+     * Returns the sources contributing reachable classes, ordered by their number of reachable classes, descending, so the class
+     * loader finds most classes in the first entries of the class path. A source shadowing reachable classes of another source stays
+     * in front of it, so the same classes are loaded. Sources without reachable classes are dropped, even if they contain resources
+     * the app needs at run time, e.g. service provider configurations in <code>META-INF/services/</code>.
+     *
+     * @return the sources of the minimal class path, in class path order
+     */
+    public List<Source> getMinimalClasspath() {
+        var remaining = new ArrayList<Source>();
+        for (var source : sources)
+            if (source.reachableClasses > 0) remaining.add(source);
+        // Count the sources that have to come first for each source.
+        var predecessors = new HashMap<Source, Integer>();
+        for (var source : remaining)
+            for (var shadowed : source.shadowedSources)
+                predecessors.merge(shadowed, 1, Integer::sum);
+
+        var classpath = new ArrayList<Source>();
+        while (!remaining.isEmpty()) {
+            Source next = null;
+            for (var source : remaining) {
+                if (predecessors.getOrDefault(source, 0) > 0) continue;
+                if (next == null || source.reachableClasses > next.reachableClasses) next = source;
+            }
+            remaining.remove(next);
+            classpath.add(next);
+            for (var shadowed : next.shadowedSources)
+                predecessors.merge(shadowed, -1, Integer::sum);
+        }
+        return classpath;
+    }
+
+    /**
+     * Returns the name of an app source for reports.
+     *
+     * @param lookup the lookup of the source
+     * @return the path of the <code>.jar</code> file or directory of the source, or "app" if the lookup isn't file based
+     */
+    public static String getSourceName(Lookup lookup) {
+        var file = getFile(lookup);
+        return file != null ? file.getPath() : "app";
+    }
+
+    /**
+     * Returns the <code>.jar</code> file or directory of a lookup, or null if the lookup isn't file based.
+     */
+    private static File getFile(Lookup lookup) {
+        if (lookup instanceof JarLookup) return ((JarLookup) lookup).getFile();
+        if (lookup instanceof DirectoryLookup) return ((DirectoryLookup) lookup).getDirectory();
+        return null;
+    }
+
+    /**
+     * Generates the JSON representation of the usage of each source and the minimal class path.
+     *
+     * @return the JSON fields "appSources" and "minimalClasspath"
+     */
+    public String generateJSON() {
+        var json = new StringBuilder();
+        json.append("\"appSources\": [\n");
+        for (int i = 0; i < sources.size(); i++) {
+            var source = sources.get(i);
+            json.append("{ \"name\": \"").append(escape(source.getName())).append("\"");
+            json.append(", \"totalClasses\": ").append(source.totalClasses);
+            json.append(", \"reachableClasses\": ").append(source.reachableClasses);
+            json.append(", \"totalBytes\": ").append(source.totalBytes);
+            json.append(", \"reachableBytes\": ").append(source.reachableBytes);
+            json.append(", \"resources\": ").append(source.resources).append(" }");
+            json.append(i < sources.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("], \"minimalClasspath\": [");
+        var classpath = getMinimalClasspath();
+        for (int i = 0; i < classpath.size(); i++)
+            json.append(i > 0 ? ", " : "").append("\"").append(escape(classpath.get(i).getName())).append("\"");
+        json.append("]");
+        return json.toString();
+    }
+
+    static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
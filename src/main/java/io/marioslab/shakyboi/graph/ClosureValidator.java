@@ -0,0 +1,228 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.lookup.Lookup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Validates that the written output of a shake is closed, i.e. that every class referenced by a kept class can be found in the
+ * output or the bootstrap lookup. A class referencing a missing class fails at run time, once the reference is resolved.
+ * <p>
+ * Only references the JVM resolves are checked: the super class and interfaces, the descriptors of fields and methods, exception
+ * handler types, and the classes, fields and methods referenced by the instructions of kept methods. Constant pool entries no
+ * longer used by any instruction, e.g. after rapid type analysis removed a method, are ignored.
+ * <p>
+ * The output's classes are split into chunks, which are read, parsed and checked in parallel. Whether a referenced class exists is
+ * cached across chunks.
+ */
+public class ClosureValidator {
+    /** The number of chunks per thread, so threads finishing early can pick up more work **/
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    /**
+     * A reference from a kept class to a class that is neither in the output nor in the bootstrap lookup.
+     */
+    public static class DanglingReference {
+        /** The internal name of the referencing class **/
+        public final String className;
+        /** The internal name of the missing class **/
+        public final String referencedClassName;
+
+        public DanglingReference(String className, String referencedClassName) {
+            this.className = className;
+            this.referencedClassName = referencedClassName;
+        }
+
+        @Override
+        public String toString() {
+            return className.replace('/', '.') + " -> " + referencedClassName.replace('/', '.');
+        }
+    }
+
+    /**
+     * Validates all classes of the output.
+     *
+     * @param outputLookup    the {@link Lookup} of the written output(s)
+     * @param bootstrapLookup the {@link Lookup} to find bootstrap classes in
+     * @param numThreads      the number of threads to validate with
+     * @return the dangling references, sorted by class name and referenced class name
+     * @throws IOException in case a class couldn't be read or parsed
+     */
+    public static List<DanglingReference> validate(Lookup outputLookup, Lookup bootstrapLookup, int numThreads) throws IOException {
+        var classNames = new ArrayList<String>();
+        for (var file : outputLookup.list()) {
+            if (!file.endsWith(".class") || file.startsWith("META-INF/") || file.endsWith("module-info.class")) continue;
+            classNames.add(file.substring(0, file.length() - ".class".length()));
+        }
+
+        var existingClasses = new ConcurrentHashMap<String, Boolean>();
+        int chunkSize = Math.max(1, (classNames.size() + numThreads * CHUNKS_PER_THREAD - 1) / (numThreads * CHUNKS_PER_THREAD));
+        var executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            var thread = new Thread(runnable, "ClosureValidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            var chunks = new ArrayList<Future<List<DanglingReference>>>();
+            for (int start = 0; start < classNames.size(); start += chunkSize) {
+                var chunk = classNames.subList(start, Math.min(classNames.size(), start + chunkSize));
+                chunks.add(executor.submit(() -> validateChunk(chunk, outputLookup, bootstrapLookup, existingClasses)));
+            }
+            var danglingReferences = new ArrayList<DanglingReference>();
+            for (var chunk : chunks)
+                danglingReferences.addAll(chunk.get());
+            danglingReferences.sort((a, b) -> a.className.equals(b.className) ? a.referencedClassName.compareTo(b.referencedClassName) : a.className.compareTo(b.className));
+            return danglingReferences;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating output.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Couldn't validate output.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<DanglingReference> validateChunk(List<String> classNames, Lookup outputLookup, Lookup bootstrapLookup, ConcurrentHashMap<String, Boolean> existingClasses) throws IOException {
+        var danglingReferences = new ArrayList<DanglingReference>();
+        for (var className : classNames) {
+            var bytes = outputLookup.findClass(className);
+            if (bytes == null) throw new IOException("Couldn't read class " + className.replace('/', '.') + " from output.");
+            var referencedClassNames = collectLinkedClassNames(ClassFileReader.readClassFile(className, bytes));
+            referencedClassNames.remove(className);
+            for (var referencedClassName : referencedClassNames) {
+                boolean exists = existingClasses.computeIfAbsent(referencedClassName, name ->
+                        outputLookup.contains(name + ".class") || bootstrapLookup.contains(name + ".class"));
+                if (!exists) danglingReferences.add(new DanglingReference(className, referencedClassName));
+            }
+        }
+        return danglingReferences;
+    }
+
+    /**
+     * Collects the names of the classes the JVM may resolve when loading, linking and executing the given class.
+     *
+     * @param classFile the class
+     * @return the internal names of the referenced classes, array element types are returned instead of array types
+     */
+    static Set<String> collectLinkedClassNames(ClassFile classFile) throws IOException {
+        var classNames = new HashSet<String>();
+        if (classFile.superClass != 0) classNames.add(classFile.getSuperClassName());
+        for (var interfaceIndex : classFile.interfaces)
+            addClassInfo(classFile, interfaceIndex, classNames);
+        for (var field : classFile.fields)
+            addClassName(ClassDependencyGraphGenerator.getClassFromFieldDescriptor(field.getDescriptor()), classNames);
+        for (var method : classFile.methods) {
+            classNames.addAll(ClassDependencyGraphGenerator.getClassesFromMethodDescriptor(method.getDescriptor()));
+            var codeAttribute = method.getCodeAttribute();
+            if (codeAttribute == null) continue;
+            for (var exceptionTableEntry : codeAttribute.exceptionTable)
+                if (exceptionTableEntry.catchType != 0) addClassInfo(classFile, exceptionTableEntry.catchType, classNames);
+            var code = codeAttribute.code;
+            for (int pc = 0; pc < code.length; pc += RapidTypeAnalysis.getInstructionLength(code, pc))
+                addInstructionReferences(classFile, code, pc, classNames);
+        }
+        // Bootstrap methods are only referenced by invokedynamic instructions and dynamic constants of the class, and are resolved
+        // along with their method handle, class, and method type arguments when those are linked.
+        var bootstrapMethods = classFile.getBootstrapMethodsAttribute();
+        if (bootstrapMethods != null) {
+            for (var bootstrapMethod : bootstrapMethods.bootstrapMethods) {
+                addConstant(classFile, bootstrapMethod.methodRefIndex, classNames);
+                for (var argument : bootstrapMethod.arguments)
+                    addConstant(classFile, argument, classNames);
+            }
+        }
+        return classNames;
+    }
+
+    private static void addInstructionReferences(ClassFile classFile, byte[] code, int pc, Set<String> classNames) {
+        int opcode = code[pc] & 0xff;
+        switch (opcode) {
+            case 0x12: // ldc
+                addConstant(classFile, code[pc + 1] & 0xff, classNames);
+                break;
+            case 0x13: // ldc_w
+            case 0x14: // ldc2_w
+                addConstant(classFile, RapidTypeAnalysis.readUnsignedShort(code, pc + 1), classNames);
+                break;
+            case 0xb2: // getstatic
+            case 0xb3: // putstatic
+            case 0xb4: // getfield
+            case 0xb5: // putfield
+            case 0xb6: // invokevirtual
+            case 0xb7: // invokespecial
+            case 0xb8: // invokestatic
+            case 0xb9: // invokeinterface
+                addMemberRef(classFile, RapidTypeAnalysis.readUnsignedShort(code, pc + 1), classNames);
+                break;
+            case 0xba: { // invokedynamic
+                var entry = (ClassFile.InvokeDynamicEntry) classFile.constantPool.get(RapidTypeAnalysis.readUnsignedShort(code, pc + 1));
+                classNames.addAll(ClassDependencyGraphGenerator.getClassesFromMethodDescriptor(entry.getNameAndType().getDescriptor()));
+                break;
+            }
+            case 0xbb: // new
+            case 0xbd: // anewarray
+            case 0xc0: // checkcast
+            case 0xc1: // instanceof
+            case 0xc5: // multianewarray
+                addClassInfo(classFile, RapidTypeAnalysis.readUnsignedShort(code, pc + 1), classNames);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void addConstant(ClassFile classFile, int index, Set<String> classNames) {
+        var entry = classFile.constantPool.get(index);
+        if (entry instanceof ClassFile.ClassInfoEntry) addClassInfo(classFile, index, classNames);
+        else if (entry instanceof ClassFile.MethodTypeEntry)
+            classNames.addAll(ClassDependencyGraphGenerator.getClassesFromMethodDescriptor(((ClassFile.MethodTypeEntry) entry).getDescriptor()));
+        else if (entry instanceof ClassFile.MethodHandleEntry)
+            addMemberRef(classFile, ((ClassFile.MethodHandleEntry) entry).referenceIndex, classNames);
+        else if (entry instanceof ClassFile.DynamicEntry)
+            addClassName(ClassDependencyGraphGenerator.getClassFromFieldDescriptor(((ClassFile.DynamicEntry) entry).getNameAndType().getDescriptor()), classNames);
+    }
+
+    private static void addMemberRef(ClassFile classFile, int index, Set<String> classNames) {
+        var entry = classFile.constantPool.get(index);
+        int classIndex;
+        String descriptor;
+        if (entry instanceof ClassFile.FieldRefEntry) {
+            classIndex = ((ClassFile.FieldRefEntry) entry).classIndex;
+            descriptor = ((ClassFile.FieldRefEntry) entry).getNameAndType().getDescriptor();
+        } else if (entry instanceof ClassFile.MethodRefEntry) {
+            classIndex = ((ClassFile.MethodRefEntry) entry).classIndex;
+            descriptor = ((ClassFile.MethodRefEntry) entry).getNameAndType().getDescriptor();
+        } else if (entry instanceof ClassFile.InterfaceMethodRefEntry) {
+            classIndex = ((ClassFile.InterfaceMethodRefEntry) entry).classIndex;
+            descriptor = ((ClassFile.InterfaceMethodRefEntry) entry).getNameAndType().getDescriptor();
+        } else {
+            return;
+        }
+        addClassInfo(classFile, classIndex, classNames);
+        if (descriptor.charAt(0) == '(') classNames.addAll(ClassDependencyGraphGenerator.getClassesFromMethodDescriptor(descriptor));
+        else addClassName(ClassDependencyGraphGenerator.getClassFromFieldDescriptor(descriptor), classNames);
+    }
+
+    private static void addClassInfo(ClassFile classFile, int index, Set<String> classNames) {
+        var className = ((ClassFile.ClassInfoEntry) classFile.constantPool.get(index)).getName();
+        // Class info entries of arrays hold the array descriptor.
+        if (className.charAt(0) == '[') className = ClassDependencyGraphGenerator.getClassFromFieldDescriptor(className);
+        addClassName(className, classNames);
+    }
+
+    private static void addClassName(String className, Set<String> classNames) {
+        if (className != null) classNames.add(className);
+    }
+}
@@ -0,0 +1,126 @@
+package io.marioslab.shakyboi.graph;
+
+import java.util.*;
+
+/**
+ * The condensation of a {@link ClassDependencyGraph}. Each strongly connected component of the class dependency
+ * graph, i.e. a set of classes that all (transitively) depend on each other, is collapsed into a single
+ * {@link Component}. The resulting graph is a directed acyclic graph, which is usually much smaller than the
+ * class dependency graph it was created from.
+ *
+ * @see ComponentGraphGenerator#generate(ClassDependencyGraph)
+ */
+public class ComponentGraph {
+    /** The components in topological order, i.e. a component comes before all components it depends on **/
+    public final List<Component> components;
+    /** The component of each class in the class dependency graph, keyed by class name **/
+    public final Map<String, Component> componentsByClass;
+
+    /**
+     * Constructs a new component graph.
+     *
+     * @param components        the components in topological order
+     * @param componentsByClass the component of each class, keyed by class name
+     */
+    public ComponentGraph(List<Component> components, Map<String, Component> componentsByClass) {
+        this.components = components;
+        this.componentsByClass = componentsByClass;
+    }
+
+    /**
+     * @param className the internal name of the class, e.g. "java/lang/Object"
+     * @return the component the class belongs to, or null if the class is not part of the graph
+     */
+    public Component getComponent(String className) {
+        return componentsByClass.get(className);
+    }
+
+    /**
+     * Returns all components with more than one class, i.e. the dependency cycles of the class dependency graph.
+     *
+     * @return the components with more than one class in topological order
+     */
+    public List<Component> getCycles() {
+        var cycles = new ArrayList<Component>();
+        for (var component : components)
+            if (component.classes.size() > 1) cycles.add(component);
+        return cycles;
+    }
+
+    /**
+     * Returns all classes reachable from the given classes, including the given classes. The traversal
+     * visits each component only once, instead of each class.
+     *
+     * @param classNames the internal names of the classes to start from
+     * @return the reachable classes
+     */
+    public Set<ClassDependencyGraph.ClassNode> getReachableClasses(String... classNames) {
+        var visited = new boolean[components.size()];
+        var componentsToProcess = new ArrayDeque<Component>();
+        for (var className : classNames) {
+            var component = componentsByClass.get(className);
+            if (component == null || visited[component.index]) continue;
+            visited[component.index] = true;
+            componentsToProcess.add(component);
+        }
+
+        var reachableClasses = new HashSet<ClassDependencyGraph.ClassNode>();
+        while (componentsToProcess.size() > 0) {
+            var component = componentsToProcess.removeFirst();
+            reachableClasses.addAll(component.classes);
+            for (var otherComponent : component.dependsOn) {
+                if (visited[otherComponent.index]) continue;
+                visited[otherComponent.index] = true;
+                componentsToProcess.add(otherComponent);
+            }
+        }
+        return reachableClasses;
+    }
+
+    /**
+     * Determines which of the given root sets reach each component. Bits are propagated along the edges of the
+     * component graph in topological order, so each component and edge is visited exactly once, regardless of
+     * the number of root sets.
+     *
+     * @param rootSets the root sets, each given as a collection of internal class names
+     * @return for each component, indexed by {@link Component#index}, the bit set of root set indices reaching it
+     */
+    public BitSet[] getReachingRootSets(List<? extends Collection<String>> rootSets) {
+        var reachingRootSets = new BitSet[components.size()];
+        for (int i = 0; i < reachingRootSets.length; i++)
+            reachingRootSets[i] = new BitSet(rootSets.size());
+        for (int i = 0; i < rootSets.size(); i++) {
+            for (var className : rootSets.get(i)) {
+                var component = componentsByClass.get(className);
+                if (component != null) reachingRootSets[component.index].set(i);
+            }
+        }
+        for (var component : components) {
+            var bits = reachingRootSets[component.index];
+            if (bits.isEmpty()) continue;
+            for (var otherComponent : component.dependsOn)
+                reachingRootSets[otherComponent.index].or(bits);
+        }
+        return reachingRootSets;
+    }
+
+    /**
+     * A strongly connected component of the class dependency graph. The lists storing the dependencies are mutable.
+     */
+    public static class Component {
+        /** The index of this component in {@link ComponentGraph#components} **/
+        public final int index;
+        /** The classes in this component **/
+        public final List<ClassDependencyGraph.ClassNode> classes = new ArrayList<>(1);
+        /** The components this component depends on, excluding itself **/
+        public final List<Component> dependsOn = new ArrayList<>(4);
+        /** The components depending on this component, excluding itself **/
+        public final List<Component> referencedBy = new ArrayList<>(4);
+        /** Whether this component contains a root class **/
+        public boolean isRootComponent;
+
+        public Component(int index) {
+            this.index = index;
+        }
+    }
+}
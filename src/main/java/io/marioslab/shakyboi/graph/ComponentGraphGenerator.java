@@ -0,0 +1,133 @@
+package io.marioslab.shakyboi.graph;
+
+import java.util.*;
+
+/**
+ * Generates the {@link ComponentGraph} of a {@link ClassDependencyGraph} by computing its strongly connected
+ * components using an iterative version of <a href="https://en.wikipedia.org/wiki/Tarjan%27s_strongly_connected_components_algorithm">Tarjan's algorithm</a>.
+ * The iterative version keeps its own stacks, so the size of the graph is not limited by the thread's stack size.
+ */
+public class ComponentGraphGenerator {
+    /**
+     * Generates the {@link ComponentGraph} for the given {@link ClassDependencyGraph}.
+     *
+     * @param graph the class dependency graph
+     * @return the component graph, with components in topological order
+     */
+    public static ComponentGraph generate(ClassDependencyGraph graph) {
+        // Assign each class an id. Classes are sorted by name so the component order is stable between runs.
+        var classNodes = graph.reachableClasses.values().toArray(new ClassDependencyGraph.ClassNode[0]);
+        Arrays.sort(classNodes, (a, b) -> a.name.compareTo(b.name));
+        var ids = new IdentityHashMap<ClassDependencyGraph.ClassNode, Integer>(classNodes.length);
+        for (int i = 0; i < classNodes.length; i++)
+            ids.put(classNodes[i], i);
+        var edges = new int[classNodes.length][];
+        for (int i = 0; i < classNodes.length; i++) {
+            var dependsOn = classNodes[i].dependsOn;
+            edges[i] = new int[dependsOn.size()];
+            for (int j = 0; j < dependsOn.size(); j++)
+                edges[i][j] = ids.get(dependsOn.get(j));
+        }
+
+        // Find the strongly connected components. Components are emitted in reverse topological order,
+        // i.e. a component is emitted after all components it depends on.
+        var componentIds = findComponents(edges);
+        int numComponents = 0;
+        for (int componentId : componentIds)
+            numComponents = Math.max(numComponents, componentId + 1);
+
+        // Create the components in topological order.
+        var components = new ArrayList<ComponentGraph.Component>(numComponents);
+        for (int i = 0; i < numComponents; i++)
+            components.add(new ComponentGraph.Component(i));
+        var componentsByClass = new HashMap<String, ComponentGraph.Component>(classNodes.length);
+        for (int i = 0; i < classNodes.length; i++) {
+            var component = components.get(numComponents - 1 - componentIds[i]);
+            component.classes.add(classNodes[i]);
+            component.isRootComponent |= classNodes[i].isRootClass;
+            componentsByClass.put(classNodes[i].name, component);
+        }
+
+        // Connect the components, skipping edges within a component and duplicate edges.
+        var lastEdgeSource = new int[numComponents];
+        Arrays.fill(lastEdgeSource, -1);
+        for (var component : components) {
+            for (var classNode : component.classes) {
+                for (var otherClassNode : classNode.dependsOn) {
+                    var otherComponent = componentsByClass.get(otherClassNode.name);
+                    if (otherComponent == component || lastEdgeSource[otherComponent.index] == component.index)
+                        continue;
+                    lastEdgeSource[otherComponent.index] = component.index;
+                    component.dependsOn.add(otherComponent);
+                    otherComponent.referencedBy.add(component);
+                }
+            }
+        }
+        return new ComponentGraph(components, componentsByClass);
+    }
+
+    /**
+     * Computes the strongly connected components of a graph given as adjacency lists.
+     *
+     * @param edges the adjacency list of each node
+     * @return the component id of each node. Component ids are assigned in reverse topological order.
+     */
+    static int[] findComponents(int[][] edges) {
+        int numNodes = edges.length;
+        var index = new int[numNodes];
+        var lowLink = new int[numNodes];
+        var onStack = new boolean[numNodes];
+        var componentIds = new int[numNodes];
+        var componentStack = new int[numNodes];
+        var callStack = new int[numNodes];
+        var nextEdge = new int[numNodes];
+        Arrays.fill(index, -1);
+        int nextIndex = 0, componentStackTop = 0, nextComponentId = 0;
+
+        for (int start = 0; start < numNodes; start++) {
+            if (index[start] != -1) continue;
+
+            // Simulate the recursive depth-first search with an explicit call stack.
+            int callStackTop = 0;
+            callStack[0] = start;
+            index[start] = lowLink[start] = nextIndex++;
+            componentStack[componentStackTop++] = start;
+            onStack[start] = true;
+
+            while (callStackTop >= 0) {
+                int node = callStack[callStackTop];
+                if (nextEdge[node] < edges[node].length) {
+                    int other = edges[node][nextEdge[node]++];
+                    if (index[other] == -1) {
+                        // "Recurse" into the unvisited node.
+                        index[other] = lowLink[other] = nextIndex++;
+                        componentStack[componentStackTop++] = other;
+                        onStack[other] = true;
+                        callStack[++callStackTop] = other;
+                    } else if (onStack[other]) {
+                        lowLink[node] = Math.min(lowLink[node], index[other]);
+                    }
+                } else {
+                    // All edges visited, emit a component if this node is its root.
+                    if (lowLink[node] == index[node]) {
+                        int member;
+                        do {
+                            member = componentStack[--componentStackTop];
+                            onStack[member] = false;
+                            componentIds[member] = nextComponentId;
+                        } while (member != node);
+                        nextComponentId++;
+                    }
+
+                    // "Return" to the caller and propagate the low link.
+                    callStackTop--;
+                    if (callStackTop >= 0) {
+                        int caller = callStack[callStackTop];
+                        lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                    }
+                }
+            }
+        }
+        return componentIds;
+    }
+}
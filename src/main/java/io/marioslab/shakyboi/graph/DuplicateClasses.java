@@ -0,0 +1,145 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.lookup.Lookup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Finds classes contained in multiple app sources, i.e. the {@link CombinedLookup#getLeafLookups()} of the app lookup. Only the
+ * first copy of such a class is loaded, like on a class path, the other copies are shadowed and never written to the output.
+ * <p>
+ * The copies of a class are compared by their CRC-32 and uncompressed size. For <code>.jar</code> files, both are read from the
+ * central directory, so no entry data is read or inflated. Classes of other sources, e.g. directories, are only read if they have
+ * duplicates. The names of each source are listed concurrently.
+ */
+public class DuplicateClasses {
+    /**
+     * A class contained in multiple app sources.
+     */
+    public static class Duplicate {
+        /** The internal name of the class, e.g. "my/app/MainClass" **/
+        public final String name;
+        /** The sources containing the class, in class path order. The class is loaded from the first one. **/
+        public final List<Lookup> sources;
+        /** Whether all copies are byte-identical, as determined by their CRC-32 and size **/
+        public final boolean identical;
+        /** The total size in bytes of the shadowed copies **/
+        public final long shadowedBytes;
+
+        Duplicate(String name, List<Lookup> sources, boolean identical, long shadowedBytes) {
+            this.name = name;
+            this.sources = sources;
+            this.identical = identical;
+            this.shadowedBytes = shadowedBytes;
+        }
+    }
+
+    /** The duplicate classes, sorted by name **/
+    public final List<Duplicate> duplicates;
+
+    private DuplicateClasses(List<Duplicate> duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Scans the sources of the app lookup for duplicate classes. <code>module-info.class</code> files and classes in
+     * <code>META-INF/</code>, e.g. versioned classes of multi-release <code>.jar</code> files, are ignored.
+     *
+     * @param appLookup the app lookup, usually a {@link CombinedLookup}
+     * @return the duplicate classes
+     */
+    public static DuplicateClasses scan(Lookup appLookup) {
+        var lookups = appLookup instanceof CombinedLookup ? ((CombinedLookup) appLookup).getLeafLookups() : List.of(appLookup);
+        var listings = lookups.parallelStream().map(Lookup::list).collect(Collectors.toList());
+
+        // Only the sources of duplicate classes are collected in lists, most classes are only contained in one source.
+        var firstSources = new HashMap<String, Lookup>();
+        var duplicateSources = new HashMap<String, List<Lookup>>();
+        for (int i = 0; i < lookups.size(); i++) {
+            var lookup = lookups.get(i);
+            for (var file : listings.get(i)) {
+                if (!file.endsWith(".class") || file.startsWith("META-INF/") || file.endsWith("module-info.class")) continue;
+                var firstSource = firstSources.putIfAbsent(file, lookup);
+                if (firstSource == null || firstSource == lookup) continue;
+                var sources = duplicateSources.computeIfAbsent(file, name -> new ArrayList<>(List.of(firstSource)));
+                if (!sources.contains(lookup)) sources.add(lookup);
+            }
+        }
+
+        var duplicates = new ArrayList<Duplicate>();
+        for (var entry : duplicateSources.entrySet()) {
+            var sources = entry.getValue();
+            var file = entry.getKey();
+            long[] first = getChecksumAndSize(sources.get(0), file);
+            boolean identical = true;
+            long shadowedBytes = 0;
+            for (int i = 1; i < sources.size(); i++) {
+                long[] other = getChecksumAndSize(sources.get(i), file);
+                if (other[0] != first[0] || other[1] != first[1]) identical = false;
+                shadowedBytes += other[1];
+            }
+            duplicates.add(new Duplicate(file.substring(0, file.length() - ".class".length()), sources, identical, shadowedBytes));
+        }
+        duplicates.sort((a, b) -> a.name.compareTo(b.name));
+        return new DuplicateClasses(duplicates);
+    }
+
+    /**
+     * Returns the CRC-32 and size of a file, from the central directory for <code>.jar</code> files, otherwise computed from the file's content.
+     */
+    private static long[] getChecksumAndSize(Lookup lookup, String file) {
+        if (lookup instanceof JarLookup) {
+            var entry = ((JarLookup) lookup).getZipEntry(file);
+            if (entry != null) return new long[]{entry.getCrc(), entry.getSize()};
+        }
+        var bytes = lookup.findResource(file);
+        if (bytes == null) throw new RuntimeException("Couldn't read " + file + " from " + ClasspathUsage.getSourceName(lookup));
+        var crc = new CRC32();
+        crc.update(bytes);
+        return new long[]{crc.getValue(), bytes.length};
+    }
+
+    /**
+     * @return the duplicate classes whose copies are not all byte-identical
+     */
+    public List<Duplicate> getConflicting() {
+        return duplicates.stream().filter(duplicate -> !duplicate.identical).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the total size in bytes of all shadowed copies
+     */
+    public long getShadowedBytes() {
+        return duplicates.stream().mapToLong(duplicate -> duplicate.shadowedBytes).sum();
+    }
+
+    /**
+     * Generates the JSON representation of the duplicate classes.
+     *
+     * @param graph the class dependency graph, to report whether each class is reachable
+     * @return the JSON array of the duplicate classes
+     */
+    public String generateJSON(ClassDependencyGraph graph) {
+        var json = new StringBuilder();
+        json.append("[\n");
+        for (int i = 0; i < duplicates.size(); i++) {
+            var duplicate = duplicates.get(i);
+            json.append("{ \"name\": \"").append(duplicate.name.replace('/', '.')).append("\"");
+            json.append(", \"identical\": ").append(duplicate.identical);
+            json.append(", \"isReachable\": ").append(graph.reachableClasses.containsKey(duplicate.name));
+            json.append(", \"shadowedBytes\": ").append(duplicate.shadowedBytes);
+            json.append(", \"sources\": [");
+            json.append(duplicate.sources.stream().map(source -> "\"" + ClasspathUsage.escape(ClasspathUsage.getSourceName(source)) + "\"").collect(Collectors.joining(", ")));
+            json.append("] }");
+            json.append(i < duplicates.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("]");
+        return json.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.lookup.Lookup;
+import io.marioslab.shakyboi.util.MappedStringSet;
+import io.marioslab.shakyboi.util.SpillingQueue;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A breadth-first traversal of the class dependencies of a set of root classes, like {@link ClassDependencyGraphGenerator}, for
+ * inputs too large to keep a {@link ClassDependencyGraph} on the heap, e.g. whole artifact repositories with millions of classes.
+ * <p>
+ * The set of discovered classes is a {@link MappedStringSet} and the queue of classes to process is a {@link SpillingQueue}, so the
+ * heap usage is bounded by the batch size of the queue, independent of the number of classes. No graph is built. Instead, each
+ * reachable class is passed to a {@link Visitor} once, in breadth-first order, so results can be streamed to the output and reports.
+ * After the traversal, {@link #isReachable(String)} can be queried, e.g. to list the removed classes.
+ */
+public class ExternalMemoryTraversal implements Closeable {
+    /** The default maximum number of queued classes kept on the heap **/
+    public static final int DEFAULT_BATCH_SIZE = 64 * 1024;
+
+    private static final int FLAG_APP_CLASS = 1;
+    private static final int FLAG_BOOTSTRAP_CLASS = 2;
+    private static final int FLAG_MISSING = 4;
+
+    private final MappedStringSet classes;
+    private final SpillingQueue classesToProcess;
+
+    /**
+     * Receives the reachable classes of a traversal.
+     */
+    public interface Visitor {
+        /**
+         * Called once for each reachable class, in breadth-first order.
+         *
+         * @param className   the internal name of the class
+         * @param isAppClass  whether the class comes from the app lookup or the bootstrap lookup
+         * @param bytes       the <code>.class</code> file bytes
+         * @param reachedFrom the internal name of the class this class was first reached from, null for root classes
+         * @param depth       the length of the shortest path from a root class to this class
+         * @param dependsOn   the internal names of the classes this class depends on, empty for bootstrap classes
+         * @throws IOException in case the class could not be processed
+         */
+        void visit(String className, boolean isAppClass, byte[] bytes, String reachedFrom, int depth, List<String> dependsOn) throws IOException;
+    }
+
+    /**
+     * Creates a new traversal storing its files in the given directory. The files are deleted on {@link #close()}.
+     *
+     * @param directory the directory to store the files in
+     * @param batchSize the maximum number of queued classes kept on the heap, see {@link #DEFAULT_BATCH_SIZE}
+     * @throws IOException in case the files could not be created
+     */
+    public ExternalMemoryTraversal(File directory, int batchSize) throws IOException {
+        classes = new MappedStringSet(directory, 64 * 1024);
+        classesToProcess = new SpillingQueue(directory, batchSize);
+    }
+
+    /**
+     * Traverses all classes reachable from the given root classes. See
+     * {@link ClassDependencyGraphGenerator#generate(Lookup, Lookup, List, String...)} for details on how dependencies are collected.
+     *
+     * @param appLookup       the {@link Lookup} to search for application classes, like root classes.
+     * @param bootstrapLookup the {@link Lookup} to search for boot classes, e.g. java.lang.Object.
+     * @param warnings        list to add warnings about classes that could not be found to
+     * @param visitor         the visitor receiving the reachable classes
+     * @param rootClassNames  the names of root classes to start the traversal from, given as internal names
+     * @throws IOException in case a class could not be looked up or parsed, or the files could not be written
+     */
+    public void traverse(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings, Visitor visitor, String... rootClassNames) throws IOException {
+        traverse(appLookup, bootstrapLookup, warnings, visitor, Arrays.asList(rootClassNames));
+    }
+
+    /**
+     * Traverses all classes reachable from the given root classes, see {@link #traverse(Lookup, Lookup, List, Visitor, String...)}.
+     * The root classes are only iterated once, so they can be streamed from external memory, e.g. a {@link MappedStringSet}.
+     *
+     * @param appLookup       the {@link Lookup} to search for application classes, like root classes.
+     * @param bootstrapLookup the {@link Lookup} to search for boot classes, e.g. java.lang.Object.
+     * @param warnings        list to add warnings about classes that could not be found to
+     * @param visitor         the visitor receiving the reachable classes
+     * @param rootClassNames  the names of root classes to start the traversal from, given as internal names
+     * @throws IOException in case a class could not be looked up or parsed, or the files could not be written
+     */
+    public void traverse(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings, Visitor visitor, Iterable<String> rootClassNames) throws IOException {
+        for (var className : rootClassNames) {
+            int flags = classes.getFlags(className);
+            if (flags == -1) {
+                flags = lookupFlags(className, appLookup, bootstrapLookup);
+                classes.add(className, flags);
+                if (flags != FLAG_MISSING) classesToProcess.add(encode(className, null, 0));
+            }
+            if (flags == FLAG_MISSING)
+                throw new IOException("Couldn't find root class " + className.replace('/', '.') + " in either app or bootstrap lookup.");
+        }
+
+        byte[] record;
+        while ((record = classesToProcess.poll()) != null) {
+            var in = new DataInputStream(new ByteArrayInputStream(record));
+            var className = in.readUTF();
+            var reachedFrom = in.readUTF();
+            int depth = in.readInt();
+            boolean isAppClass = classes.getFlags(className) == FLAG_APP_CLASS;
+            var bytes = isAppClass ? appLookup.findClass(className) : bootstrapLookup.findClass(className);
+            if (bytes == null) throw new IOException("Couldn't find class " + className.replace('/', '.') + " in lookup.");
+
+            // Don't collect dependencies of bootstrap classes
+            var dependsOn = new ArrayList<String>();
+            if (isAppClass) {
+                for (var otherClassName : ClassDependencyGraphGenerator.collectClassNames(ClassFileReader.readClassFile(className, bytes))) {
+                    if (otherClassName.equals(className)) continue;
+                    int flags = classes.getFlags(otherClassName);
+                    if (flags == -1) {
+                        flags = lookupFlags(otherClassName, appLookup, bootstrapLookup);
+                        classes.add(otherClassName, flags);
+                        if (flags != FLAG_MISSING) classesToProcess.add(encode(otherClassName, className, depth + 1));
+                    }
+                    if (flags == FLAG_MISSING) {
+                        warnings.add("Class " + className.replace('/', '.') + " depends on " + otherClassName.replace('/', '.') + ", but " + otherClassName.replace('/', '.') + " could not be found in app or bootstrap lookup.");
+                        continue;
+                    }
+                    dependsOn.add(otherClassName);
+                }
+            }
+            visitor.visit(className, isAppClass, bytes, reachedFrom.isEmpty() ? null : reachedFrom, depth, dependsOn);
+        }
+    }
+
+    private static int lookupFlags(String className, Lookup appLookup, Lookup bootstrapLookup) {
+        var fileName = className + ".class";
+        if (bootstrapLookup.contains(fileName)) return FLAG_BOOTSTRAP_CLASS;
+        if (appLookup.contains(fileName)) return FLAG_APP_CLASS;
+        return FLAG_MISSING;
+    }
+
+    private static byte[] encode(String className, String reachedFrom, int depth) throws IOException {
+        var bytes = new ByteArrayOutputStream(64);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeUTF(className);
+            out.writeUTF(reachedFrom != null ? reachedFrom : "");
+            out.writeInt(depth);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return whether the class was reached by {@link #traverse(Lookup, Lookup, List, Visitor, String...)}
+     */
+    public boolean isReachable(String className) {
+        int flags = classes.getFlags(className);
+        return flags == FLAG_APP_CLASS || flags == FLAG_BOOTSTRAP_CLASS;
+    }
+
+    /**
+     * @param className the internal name of the class
+     * @return whether the class was reached and found in the app lookup. Known as soon as the class was discovered, i.e. already
+     * while a class depending on it is visited.
+     */
+    public boolean isAppClass(String className) {
+        return classes.getFlags(className) == FLAG_APP_CLASS;
+    }
+
+    /** @return the number of queued classes that had to be spilled to disk **/
+    public long getSpilledClasses() {
+        return classesToProcess.getSpilledRecords();
+    }
+
+    /**
+     * Deletes the files of this traversal.
+     */
+    @Override
+    public void close() throws IOException {
+        classes.close();
+        classesToProcess.close();
+    }
+}
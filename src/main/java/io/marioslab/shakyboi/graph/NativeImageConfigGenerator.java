@@ -0,0 +1,164 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a GraalVM <code>native-image</code> configuration for a shaken app, so the image build starts from the classes and
+ * resources Shakyboi kept, without requiring a GraalVM installation:
+ * <ul>
+ *     <li><code>reflect-config.json</code> registers all constructors, methods and fields of the root classes for reflection, as
+ *     roots are the classes used via reflection.</li>
+ *     <li><code>resource-config.json</code> includes the kept resources.</li>
+ *     <li><code>native-image.properties</code> initializes the classes at build time whose static initializers are known to be
+ *     side-effect free, see {@link #getBuildTimeInitializedClasses(Collection, Function)}.</li>
+ * </ul>
+ * The files are picked up automatically if the directory is copied to <code>META-INF/native-image/&lt;app&gt;/</code> of a
+ * <code>.jar</code> file or directory on the class path of the image build.
+ */
+public class NativeImageConfigGenerator {
+    /**
+     * Writes the configuration files to the given directory, which is created if it doesn't exist.
+     *
+     * @param directory             the directory
+     * @param reflectiveClasses     the internal names of the classes to register for reflection, e.g. the root classes
+     * @param resources             the resources to include, directory entries are ignored
+     * @param buildTimeInitialized  the internal names of the classes to initialize at build time
+     * @throws IOException in case a file couldn't be written
+     */
+    public static void write(File directory, Collection<String> reflectiveClasses, Collection<String> resources, Collection<String> buildTimeInitialized) throws IOException {
+        Files.createDirectories(directory.toPath());
+
+        var reflectJson = new StringBuilder();
+        reflectJson.append("[\n");
+        var reflectiveClassNames = reflectiveClasses.stream().sorted().collect(Collectors.toList());
+        for (int i = 0; i < reflectiveClassNames.size(); i++) {
+            reflectJson.append("{ \"name\": \"").append(escape(reflectiveClassNames.get(i).replace('/', '.'))).append("\", ");
+            reflectJson.append("\"allDeclaredConstructors\": true, \"allPublicConstructors\": true, \"allDeclaredMethods\": true, ");
+            reflectJson.append("\"allPublicMethods\": true, \"allDeclaredFields\": true, \"allPublicFields\": true }");
+            reflectJson.append(i < reflectiveClassNames.size() - 1 ? ",\n" : "\n");
+        }
+        reflectJson.append("]\n");
+        Files.writeString(new File(directory, "reflect-config.json").toPath(), reflectJson, StandardCharsets.UTF_8);
+
+        var resourceJson = new StringBuilder();
+        resourceJson.append("{\n\"resources\": {\n\"includes\": [\n");
+        var resourceNames = resources.stream().filter(r -> !r.endsWith("/")).collect(Collectors.toList());
+        for (int i = 0; i < resourceNames.size(); i++) {
+            // Patterns are regular expressions, \Q...\E matches the name literally.
+            resourceJson.append("{ \"pattern\": \"").append(escape("\\Q" + resourceNames.get(i) + "\\E")).append("\" }");
+            resourceJson.append(i < resourceNames.size() - 1 ? ",\n" : "\n");
+        }
+        resourceJson.append("]\n},\n\"bundles\": []\n}\n");
+        Files.writeString(new File(directory, "resource-config.json").toPath(), resourceJson, StandardCharsets.UTF_8);
+
+        var properties = new StringBuilder();
+        properties.append("# Generated by Shakyboi\n");
+        if (!buildTimeInitialized.isEmpty()) {
+            properties.append("Args = --initialize-at-build-time=");
+            properties.append(buildTimeInitialized.stream().sorted().map(c -> c.replace('/', '.')).collect(Collectors.joining(",")));
+            properties.append("\n");
+        }
+        Files.writeString(new File(directory, "native-image.properties").toPath(), properties, StandardCharsets.UTF_8);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Returns the classes that can safely be initialized at build time. A class is safe if its static initializer only assigns
+     * primitive and string constants, or arrays of them, to its own static fields, and all its supertypes are safe. Such a class
+     * has the same static state at build time and run time.
+     *
+     * @param classes    the reachable classes, including the supertypes of the app classes
+     * @param classFiles returns the class file of a class
+     * @return the internal names of the safe app classes
+     * @throws IOException in case the code of a static initializer couldn't be decoded
+     */
+    public static List<String> getBuildTimeInitializedClasses(Collection<ClassDependencyGraph.ClassNode> classes, Function<ClassDependencyGraph.ClassNode, ClassFile> classFiles) throws IOException {
+        var classesByName = new HashMap<String, ClassDependencyGraph.ClassNode>();
+        for (var clazz : classes)
+            classesByName.put(clazz.name, clazz);
+        var safe = new HashMap<String, Boolean>();
+        var safeClasses = new ArrayList<String>();
+        for (var clazz : classes) {
+            if (clazz.isAppClass && isSafe(clazz.name, classesByName, classFiles, safe)) safeClasses.add(clazz.name);
+        }
+        return safeClasses;
+    }
+
+    private static boolean isSafe(String className, Map<String, ClassDependencyGraph.ClassNode> classesByName, Function<ClassDependencyGraph.ClassNode, ClassFile> classFiles, Map<String, Boolean> safe) throws IOException {
+        if ("java/lang/Object".equals(className)) return true;
+        var result = safe.get(className);
+        if (result != null) return result;
+        var clazz = classesByName.get(className);
+        if (clazz == null) return false;
+        // Supertypes can't be cyclic, but mark the class as unsafe while its supertypes are checked anyway.
+        safe.put(className, false);
+        var classFile = classFiles.apply(clazz);
+        result = hasSafeStaticInitializer(classFile);
+        if (result && classFile.superClass != 0) result = isSafe(classFile.getSuperClassName(), classesByName, classFiles, safe);
+        for (int i = 0; result && i < classFile.interfaces.size(); i++)
+            result = isSafe(((ClassFile.ClassInfoEntry) classFile.constantPool.get(classFile.interfaces.get(i))).getName(), classesByName, classFiles, safe);
+        safe.put(className, result);
+        return result;
+    }
+
+    /**
+     * Returns whether the class has no static initializer, or one that only stores constants in the class's own static fields.
+     */
+    static boolean hasSafeStaticInitializer(ClassFile classFile) throws IOException {
+        for (var method : classFile.methods) {
+            if (!"<clinit>".equals(method.getName())) continue;
+            var codeAttribute = method.getCodeAttribute();
+            if (codeAttribute == null) continue;
+            var code = codeAttribute.code;
+            for (int pc = 0; pc < code.length; pc += RapidTypeAnalysis.getInstructionLength(code, pc))
+                if (!isSafeInstruction(classFile, code, pc)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSafeInstruction(ClassFile classFile, byte[] code, int pc) {
+        int opcode = code[pc] & 0xff;
+        if (opcode <= 0x11) return true; // nop, aconst_null, iconst_<i>, lconst_<l>, fconst_<f>, dconst_<d>, bipush, sipush
+        if (opcode >= 0x4f && opcode <= 0x56) return true; // iastore, lastore, fastore, dastore, aastore, bastore, castore, sastore
+        switch (opcode) {
+            case 0x12: // ldc
+                return isConstant(classFile.constantPool.get(code[pc + 1] & 0xff));
+            case 0x13: // ldc_w
+            case 0x14: // ldc2_w
+                return isConstant(classFile.constantPool.get(RapidTypeAnalysis.readUnsignedShort(code, pc + 1)));
+            case 0x57: // pop
+            case 0x59: // dup
+            case 0xb1: // return
+            case 0xbc: // newarray
+                return true;
+            case 0xbd: // anewarray
+                return "java/lang/String".equals(((ClassFile.ClassInfoEntry) classFile.constantPool.get(RapidTypeAnalysis.readUnsignedShort(code, pc + 1))).getName());
+            case 0xb3: { // putstatic
+                var fieldRef = (ClassFile.FieldRefEntry) classFile.constantPool.get(RapidTypeAnalysis.readUnsignedShort(code, pc + 1));
+                return classFile.getName().equals(((ClassFile.ClassInfoEntry) classFile.constantPool.get(fieldRef.classIndex)).getName());
+            }
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isConstant(ClassFile.ConstantPoolEntry entry) {
+        return entry instanceof ClassFile.IntEntry || entry instanceof ClassFile.FloatEntry || entry instanceof ClassFile.LongEntry ||
+                entry instanceof ClassFile.DoubleEntry || entry instanceof ClassFile.StringEntry;
+    }
+}
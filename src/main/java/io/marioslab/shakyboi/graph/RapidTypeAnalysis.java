@@ -0,0 +1,579 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.classfile.ClassFileWriter;
+import io.marioslab.shakyboi.lookup.Lookup;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Generates a {@link ClassDependencyGraph} using <a href="https://dl.acm.org/doi/10.1145/236337.236371">Rapid Type Analysis</a> (RTA).
+ * <p>
+ * Unlike {@link ClassDependencyGraphGenerator}, which keeps every class named anywhere in a reachable class, RTA
+ * tracks reachable methods. Starting with all methods of the root classes, the bytecode of each reachable method
+ * is scanned for the classes, fields and methods it uses. Virtual calls are resolved against the types that are
+ * instantiated anywhere in reachable code. Only classes used by reachable methods are kept.
+ * <p>
+ * Since the JVM verifies all methods of a class when it is loaded, unreachable methods of kept app classes are
+ * removed, and the rewritten class is stored in {@link ClassDependencyGraph.ClassNode#modifiedData}. Methods
+ * declared by bootstrap supertypes are assumed to be called by bootstrap code, e.g. <code>Runnable.run()</code>,
+ * so their implementations in instantiated app classes are kept. Like the default analysis, RTA can not see
+ * classes or methods that are only used via reflection. Add such classes as roots; all methods of root classes
+ * are kept.
+ */
+public class RapidTypeAnalysis {
+    private static final String[] SERIALIZATION_METHODS = {"writeObject", "readObject", "readObjectNoData", "writeReplace", "readResolve"};
+
+    private final Lookup appLookup;
+    private final Lookup bootstrapLookup;
+    private final List<String> warnings;
+    private final Map<String, TypeInfo> types = new HashMap<>(); // all looked up types, null for types that could not be found
+    private final Map<String, ClassDependencyGraph.ClassNode> reachableClasses = new HashMap<>();
+    private final ArrayDeque<TypeInfo> classesToProcess = new ArrayDeque<>(); // kept classes whose dependencies still need to be kept
+    private final ArrayDeque<ReachableMethod> methodsToProcess = new ArrayDeque<>();
+
+    private RapidTypeAnalysis(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings) {
+        this.appLookup = appLookup;
+        this.bootstrapLookup = bootstrapLookup;
+        this.warnings = warnings;
+    }
+
+    /**
+     * Generates a new {@link ClassDependencyGraph} containing only the classes used by methods reachable from the
+     * root classes. Edges of the graph connect a class to the classes its reachable methods use.
+     *
+     * @param appLookup       the {@link Lookup} to search for application classes, like root classes.
+     * @param bootstrapLookup the {@link Lookup} to search for boot classes, e.g. java.lang.Object.
+     * @param warnings        the list to add warnings to, e.g. for classes that could not be found.
+     * @param rootClassNames  the names of root classes given as internal names. All methods of root classes are reachable.
+     * @return the {@link ClassDependencyGraph}
+     * @throws IOException in case a class could not be looked up or parsed.
+     */
+    public static ClassDependencyGraph generate(Lookup appLookup, Lookup bootstrapLookup, List<String> warnings, String... rootClassNames) throws IOException {
+        return new RapidTypeAnalysis(appLookup, bootstrapLookup, warnings).analyze(rootClassNames);
+    }
+
+    private ClassDependencyGraph analyze(String... rootClassNames) throws IOException {
+        var rootClasses = new ArrayList<ClassDependencyGraph.ClassNode>();
+        for (String className : rootClassNames) {
+            var type = lookupType(className, null);
+            if (type == null)
+                throw new IOException("Couldn't find root class " + className.replace('/', '.') + " in either app or bootstrap lookup.");
+            type.classNode.isRootClass = true;
+            rootClasses.add(type.classNode);
+            keepClass(type, null);
+            for (var method : type.classNode.classFile.methods)
+                markReachable(type, method);
+            if (!type.classNode.classFile.hasAccessFlag(ClassFile.ACC_ABSTRACT | ClassFile.ACC_INTERFACE))
+                instantiate(type);
+        }
+
+        // Process kept classes and reachable methods until a fixed point is reached.
+        while (classesToProcess.size() > 0 || methodsToProcess.size() > 0) {
+            if (classesToProcess.size() > 0) {
+                processClass(classesToProcess.removeFirst());
+            } else {
+                var reachableMethod = methodsToProcess.removeFirst();
+                processMethod(reachableMethod.type, reachableMethod.method);
+            }
+        }
+
+        computeShortestPaths(rootClasses);
+        removeUnreachableMethods();
+        return new ClassDependencyGraph(rootClasses, reachableClasses);
+    }
+
+    /**
+     * Looks up the type with the given name, first in the bootstrap lookup, then in the app lookup. Adds a warning
+     * if the type could not be found.
+     */
+    private TypeInfo lookupType(String className, TypeInfo from) throws IOException {
+        if (className == null) return null;
+        if (types.containsKey(className)) return types.get(className);
+        var bytes = bootstrapLookup.findClass(className);
+        var isAppClass = bytes == null;
+        if (bytes == null) bytes = appLookup.findClass(className);
+        if (bytes == null) {
+            types.put(className, null);
+            if (from != null)
+                warnings.add("Class " + from.getName().replace('/', '.') + " depends on " + className.replace('/', '.') + ", but " + className.replace('/', '.') + " could not be found in app or bootstrap lookup.");
+            return null;
+        }
+        var type = new TypeInfo(new ClassDependencyGraph.ClassNode(ClassFileReader.readClassFile(className, bytes), isAppClass));
+        types.put(className, type);
+
+        // Bootstrap code is not analyzed, so all overridable methods of bootstrap classes are assumed to be called.
+        if (!isAppClass) {
+            for (var method : type.classNode.classFile.methods) {
+                if (method.hasAccessFlag(ClassFile.ACC_STATIC | ClassFile.ACC_PRIVATE) || method.getName().startsWith("<")) continue;
+                type.calledSignatures.add(method.getName() + method.getDescriptor());
+            }
+        }
+        return type;
+    }
+
+    /**
+     * Looks up the type referenced by the class info entry at the given constant pool index. For array types, the element
+     * type is returned, or null for arrays of primitive types.
+     */
+    private TypeInfo lookupType(ClassFile classFile, int classIndex, TypeInfo from) throws IOException {
+        var className = ((ClassFile.ClassInfoEntry) classFile.constantPool.get(classIndex)).getName();
+        if (className.charAt(0) == '[') className = ClassDependencyGraphGenerator.getClassFromFieldDescriptor(className);
+        return lookupType(className, from);
+    }
+
+    private TypeInfo getSuperClass(TypeInfo type) throws IOException {
+        if (!type.isHierarchyResolved) {
+            type.isHierarchyResolved = true;
+            var classFile = type.classNode.classFile;
+            if (classFile.superClass != 0) type.superClass = lookupType(classFile.getSuperClassName(), type);
+            for (int interfaceIndex : classFile.interfaces) {
+                var interfaceType = lookupType(classFile, interfaceIndex, type);
+                if (interfaceType != null) type.interfaces.add(interfaceType);
+            }
+        }
+        return type.superClass;
+    }
+
+    private List<TypeInfo> getInterfaces(TypeInfo type) throws IOException {
+        getSuperClass(type);
+        return type.interfaces;
+    }
+
+    /**
+     * Returns the type itself and all its direct and indirect super classes and interfaces. The result is cached.
+     */
+    private Collection<TypeInfo> getSupertypes(TypeInfo type) throws IOException {
+        if (type.supertypes == null) {
+            var supertypes = new LinkedHashSet<TypeInfo>();
+            supertypes.add(type);
+            var superClass = getSuperClass(type);
+            if (superClass != null) supertypes.addAll(getSupertypes(superClass));
+            for (var interfaceType : getInterfaces(type))
+                supertypes.addAll(getSupertypes(interfaceType));
+            type.supertypes = supertypes;
+        }
+        return type.supertypes;
+    }
+
+    /**
+     * Marks the type as kept and records the dependency of <code>from</code> on it. App classes are queued
+     * for {@link #processClass(TypeInfo)}.
+     */
+    private void keepClass(TypeInfo type, TypeInfo from) {
+        if (type == null) return;
+        if (from != null && from != type && from.dependsOn.add(type)) {
+            from.classNode.dependsOn.add(type.classNode);
+            type.classNode.referencedBy.add(from.getName());
+        }
+        if (type.isKept) return;
+        type.isKept = true;
+        type.classNode.isProcessed = true;
+        reachableClasses.put(type.getName(), type.classNode);
+
+        // Don't collect dependencies of bootstrap classes
+        if (type.classNode.isAppClass) classesToProcess.add(type);
+    }
+
+    /**
+     * Keeps the super class, the interfaces and the types of the fields of a kept class, and marks its static initializer reachable.
+     */
+    private void processClass(TypeInfo type) throws IOException {
+        keepClass(getSuperClass(type), type);
+        for (var interfaceType : getInterfaces(type))
+            keepClass(interfaceType, type);
+
+        // Field types are kept, as reflection on the fields of a class loads them.
+        var classFile = type.classNode.classFile;
+        for (var field : classFile.fields)
+            keepClass(lookupType(ClassDependencyGraphGenerator.getClassFromFieldDescriptor(field.getDescriptor()), type), type);
+
+        for (var method : classFile.methods) {
+            var name = method.getName();
+            if (name.equals("<clinit>")) markReachable(type, method);
+            // Enum.valueOf() calls values() reflectively.
+            if (classFile.hasAccessFlag(ClassFile.ACC_ENUM) && (name.equals("values") || name.equals("valueOf"))) markReachable(type, method);
+        }
+    }
+
+    /**
+     * Marks the type as instantiated. All methods called virtually on any of its supertypes are dispatched to it.
+     */
+    private void instantiate(TypeInfo type) throws IOException {
+        if (type == null || type.isInstantiated) return;
+        type.isInstantiated = true;
+        for (var supertype : getSupertypes(type)) {
+            supertype.instantiatedSubtypes.add(type);
+            for (var signature : supertype.calledSignatures)
+                dispatch(type, signature);
+
+            // Serialization calls these private methods reflectively.
+            if (supertype.getName().equals("java/io/Serializable")) {
+                for (var method : type.classNode.classFile.methods) {
+                    for (var name : SERIALIZATION_METHODS)
+                        if (method.getName().equals(name)) markReachable(type, method);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a virtual call of the method with the given signature on the owner type, and dispatches it to all
+     * instantiated subtypes of the owner.
+     */
+    private void addVirtualCall(TypeInfo owner, String signature) throws IOException {
+        if (owner == null || !owner.calledSignatures.add(signature)) return;
+        // The JVM resolves the call against the owner before dispatching, so the resolved declaration must be kept, even if
+        // every instantiated subtype overrides it.
+        resolveAndMarkReachable(owner, signature);
+        for (var subtype : owner.instantiatedSubtypes)
+            dispatch(subtype, signature);
+    }
+
+    /**
+     * Resolves the implementation of the method with the given signature that is invoked on an instance of the
+     * given type, and marks it reachable.
+     */
+    private void dispatch(TypeInfo type, String signature) throws IOException {
+        var classType = type.isInterface() ? getSuperClass(type) : type;
+        for (; classType != null; classType = getSuperClass(classType)) {
+            var method = classType.methods.get(signature);
+            if (method == null || method.hasAccessFlag(ClassFile.ACC_STATIC)) continue;
+            markReachable(classType, method);
+            // Private methods do not override methods of super classes.
+            if (!method.hasAccessFlag(ClassFile.ACC_PRIVATE)) return;
+        }
+
+        // No implementation in the class hierarchy, look for default methods.
+        for (var supertype : getSupertypes(type)) {
+            if (!supertype.isInterface()) continue;
+            var method = supertype.methods.get(signature);
+            if (method != null && !method.hasAccessFlag(ClassFile.ACC_STATIC)) markReachable(supertype, method);
+        }
+    }
+
+    /**
+     * Resolves a non-virtual method reference, e.g. from <code>invokestatic</code> or <code>invokespecial</code>, and marks
+     * the resolved method reachable.
+     */
+    private void resolveAndMarkReachable(TypeInfo owner, String signature) throws IOException {
+        for (var classType = owner; classType != null; classType = getSuperClass(classType)) {
+            var method = classType.methods.get(signature);
+            if (method != null) {
+                markReachable(classType, method);
+                return;
+            }
+        }
+        for (var supertype : getSupertypes(owner)) {
+            var method = supertype.methods.get(signature);
+            if (method != null) markReachable(supertype, method);
+        }
+    }
+
+    private void markReachable(TypeInfo type, ClassFile.MemberInfo method) {
+        // Don't analyze bootstrap code
+        if (!type.classNode.isAppClass) return;
+        if (type.reachableMethods.add(method)) methodsToProcess.add(new ReachableMethod(type, method));
+    }
+
+    /**
+     * Keeps all classes used by the method and marks all methods it may invoke reachable.
+     */
+    private void processMethod(TypeInfo type, ClassFile.MemberInfo method) throws IOException {
+        var classFile = type.classNode.classFile;
+        keepDescriptor(method.getDescriptor(), type);
+
+        var code = method.getCodeAttribute();
+        if (code == null) return;
+
+        // The verifier may load exception types and the types found in stack map frames.
+        for (var exceptionTableEntry : code.exceptionTable)
+            if (exceptionTableEntry.catchType != 0) keepClass(lookupType(classFile, exceptionTableEntry.catchType, type), type);
+        var stackMapTable = code.getStackMapTableAttribute();
+        if (stackMapTable != null) {
+            for (int classIndex : stackMapTable.classIndices)
+                keepClass(lookupType(classFile, classIndex, type), type);
+        }
+
+        processCode(type, code.code);
+    }
+
+    private void processCode(TypeInfo type, byte[] code) throws IOException {
+        var classFile = type.classNode.classFile;
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc] & 0xff;
+            switch (opcode) {
+                case 0x12: // ldc
+                    processConstant(type, code[pc + 1] & 0xff);
+                    break;
+                case 0x13: // ldc_w
+                case 0x14: // ldc2_w
+                    processConstant(type, readUnsignedShort(code, pc + 1));
+                    break;
+                case 0xb2: // getstatic
+                case 0xb3: // putstatic
+                case 0xb4: // getfield
+                case 0xb5: // putfield
+                    processFieldRef(type, readUnsignedShort(code, pc + 1));
+                    break;
+                case 0xb6: // invokevirtual
+                case 0xb9: // invokeinterface
+                    processMethodRef(type, readUnsignedShort(code, pc + 1), true);
+                    break;
+                case 0xb7: // invokespecial
+                case 0xb8: // invokestatic
+                    processMethodRef(type, readUnsignedShort(code, pc + 1), false);
+                    break;
+                case 0xba: // invokedynamic
+                    processInvokeDynamic(type, classFile.getConstantPoolEntry(readUnsignedShort(code, pc + 1)));
+                    break;
+                case 0xbb: { // new
+                    var newType = lookupType(classFile, readUnsignedShort(code, pc + 1), type);
+                    keepClass(newType, type);
+                    instantiate(newType);
+                    break;
+                }
+                case 0xbd: // anewarray
+                case 0xc0: // checkcast
+                case 0xc1: // instanceof
+                case 0xc5: // multianewarray
+                    keepClass(lookupType(classFile, readUnsignedShort(code, pc + 1), type), type);
+                    break;
+            }
+            pc += getInstructionLength(code, pc);
+        }
+    }
+
+    private void processConstant(TypeInfo type, int index) throws IOException {
+        var classFile = type.classNode.classFile;
+        var entry = classFile.constantPool.get(index);
+        if (entry instanceof ClassFile.ClassInfoEntry) {
+            keepClass(lookupType(classFile, index, type), type);
+        } else if (entry instanceof ClassFile.MethodTypeEntry) {
+            keepDescriptor(((ClassFile.MethodTypeEntry) entry).getDescriptor(), type);
+        } else if (entry instanceof ClassFile.MethodHandleEntry) {
+            processMethodHandle(type, (ClassFile.MethodHandleEntry) entry);
+        } else if (entry instanceof ClassFile.DynamicEntry) {
+            var dynamicEntry = (ClassFile.DynamicEntry) entry;
+            keepDescriptor(dynamicEntry.getNameAndType().getDescriptor(), type);
+            processBootstrapMethod(type, dynamicEntry.bootstrapMethodAttributeIndex);
+        }
+    }
+
+    private void processFieldRef(TypeInfo type, int index) throws IOException {
+        var classFile = type.classNode.classFile;
+        ClassFile.FieldRefEntry fieldRef = classFile.getConstantPoolEntry(index);
+        keepClass(lookupType(classFile, fieldRef.classIndex, type), type);
+        keepDescriptor(fieldRef.getNameAndType().getDescriptor(), type);
+    }
+
+    private void processMethodRef(TypeInfo type, int index, boolean isVirtual) throws IOException {
+        var classFile = type.classNode.classFile;
+        var entry = classFile.constantPool.get(index);
+        int classIndex;
+        ClassFile.NameAndTypeEntry nameAndType;
+        if (entry instanceof ClassFile.MethodRefEntry) {
+            classIndex = ((ClassFile.MethodRefEntry) entry).classIndex;
+            nameAndType = ((ClassFile.MethodRefEntry) entry).getNameAndType();
+        } else {
+            classIndex = ((ClassFile.InterfaceMethodRefEntry) entry).classIndex;
+            nameAndType = ((ClassFile.InterfaceMethodRefEntry) entry).getNameAndType();
+        }
+        var owner = lookupType(classFile, classIndex, type);
+        keepClass(owner, type);
+        keepDescriptor(nameAndType.getDescriptor(), type);
+        if (owner == null) return;
+        var signature = nameAndType.getName() + nameAndType.getDescriptor();
+        if (isVirtual) addVirtualCall(owner, signature);
+        else resolveAndMarkReachable(owner, signature);
+    }
+
+    private void processMethodHandle(TypeInfo type, ClassFile.MethodHandleEntry methodHandle) throws IOException {
+        switch (methodHandle.referenceKind) {
+            case ClassFile.REF_GETFIELD:
+            case ClassFile.REF_GETSTATIC:
+            case ClassFile.REF_PUTFIELD:
+            case ClassFile.REF_PUTSTATIC:
+                processFieldRef(type, methodHandle.referenceIndex);
+                break;
+            case ClassFile.REF_INVOKEVIRTUAL:
+            case ClassFile.REF_INVOKEINTERFACE:
+                processMethodRef(type, methodHandle.referenceIndex, true);
+                break;
+            case ClassFile.REF_INVOKESTATIC:
+            case ClassFile.REF_INVOKESPECIAL:
+                processMethodRef(type, methodHandle.referenceIndex, false);
+                break;
+            case ClassFile.REF_NEWINVOKESPECIAL: {
+                ClassFile.MethodRefEntry methodRef = type.classNode.classFile.getConstantPoolEntry(methodHandle.referenceIndex);
+                instantiate(lookupType(type.classNode.classFile, methodRef.classIndex, type));
+                processMethodRef(type, methodHandle.referenceIndex, false);
+                break;
+            }
+        }
+    }
+
+    private void processInvokeDynamic(TypeInfo type, ClassFile.InvokeDynamicEntry invokeDynamic) throws IOException {
+        // The call site returns an instance of a runtime generated class, e.g. a lambda implementing a functional interface.
+        // Treat the returned type as instantiated so calls to its default methods are dispatched.
+        var descriptor = invokeDynamic.getNameAndType().getDescriptor();
+        keepDescriptor(descriptor, type);
+        var returnType = lookupType(ClassDependencyGraphGenerator.getClassFromFieldDescriptor(descriptor.substring(descriptor.indexOf(')') + 1)), type);
+        if (returnType != null && returnType.isInterface()) instantiate(returnType);
+        processBootstrapMethod(type, invokeDynamic.bootstrapMethodAttributeIndex);
+    }
+
+    private void processBootstrapMethod(TypeInfo type, int bootstrapMethodIndex) throws IOException {
+        if (type.bootstrapMethods == null) type.bootstrapMethods = type.classNode.classFile.getBootstrapMethodsAttribute();
+        if (type.bootstrapMethods == null) return;
+        var bootstrapMethod = type.bootstrapMethods.bootstrapMethods.get(bootstrapMethodIndex);
+        processConstant(type, bootstrapMethod.methodRefIndex);
+        for (int argument : bootstrapMethod.arguments)
+            processConstant(type, argument);
+    }
+
+    private void keepDescriptor(String descriptor, TypeInfo from) throws IOException {
+        if (descriptor.charAt(0) == '(') {
+            for (var className : ClassDependencyGraphGenerator.getClassesFromMethodDescriptor(descriptor))
+                keepClass(lookupType(className, from), from);
+        } else {
+            keepClass(lookupType(ClassDependencyGraphGenerator.getClassFromFieldDescriptor(descriptor), from), from);
+        }
+    }
+
+    /**
+     * Recomputes {@link ClassDependencyGraph.ClassNode#reachedFrom} and {@link ClassDependencyGraph.ClassNode#depth} with a breadth-first
+     * traversal of the final graph, as methods are not processed in breadth-first order.
+     */
+    private void computeShortestPaths(List<ClassDependencyGraph.ClassNode> rootClasses) {
+        var visited = new HashSet<ClassDependencyGraph.ClassNode>();
+        var classesToProcess = new ArrayDeque<ClassDependencyGraph.ClassNode>();
+        for (var rootClass : rootClasses)
+            if (visited.add(rootClass)) classesToProcess.add(rootClass);
+        while (classesToProcess.size() > 0) {
+            var classNode = classesToProcess.removeFirst();
+            for (var otherClassNode : classNode.dependsOn) {
+                if (!visited.add(otherClassNode)) continue;
+                otherClassNode.reachedFrom = classNode;
+                otherClassNode.depth = classNode.depth + 1;
+                classesToProcess.add(otherClassNode);
+            }
+        }
+    }
+
+    /**
+     * Removes unreachable methods with code from kept app classes. Abstract and native methods are kept.
+     */
+    private void removeUnreachableMethods() throws IOException {
+        for (var type : types.values()) {
+            if (type == null || !type.isKept || !type.classNode.isAppClass) continue;
+            var classFile = type.classNode.classFile;
+            boolean removed = classFile.methods.removeIf(method -> !type.reachableMethods.contains(method) && !method.hasAccessFlag(ClassFile.ACC_ABSTRACT | ClassFile.ACC_NATIVE));
+            if (removed) type.classNode.modifiedData = ClassFileWriter.writeClassFile(classFile);
+        }
+    }
+
+    static int readUnsignedShort(byte[] code, int index) {
+        return ((code[index] & 0xff) << 8) | (code[index + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] code, int index) {
+        return ((code[index] & 0xff) << 24) | ((code[index + 1] & 0xff) << 16) | ((code[index + 2] & 0xff) << 8) | (code[index + 3] & 0xff);
+    }
+
+    /**
+     * Returns the length of the instruction at the given offset in bytes, including the opcode. See
+     * <a href="https://docs.oracle.com/javase/specs/jvms/se15/html/jvms-6.html">jvms-6</a>.
+     */
+    static int getInstructionLength(byte[] code, int pc) {
+        int opcode = code[pc] & 0xff;
+        switch (opcode) {
+            case 0x10: // bipush
+            case 0x12: // ldc
+            case 0xa9: // ret
+            case 0xbc: // newarray
+                return 2;
+            case 0x11: // sipush
+            case 0x13: // ldc_w
+            case 0x14: // ldc2_w
+            case 0x84: // iinc
+            case 0xb2: case 0xb3: case 0xb4: case 0xb5: // getstatic, putstatic, getfield, putfield
+            case 0xb6: case 0xb7: case 0xb8: // invokevirtual, invokespecial, invokestatic
+            case 0xbb: // new
+            case 0xbd: // anewarray
+            case 0xc0: // checkcast
+            case 0xc1: // instanceof
+            case 0xc6: // ifnull
+            case 0xc7: // ifnonnull
+                return 3;
+            case 0xc5: // multianewarray
+                return 4;
+            case 0xb9: // invokeinterface
+            case 0xba: // invokedynamic
+            case 0xc8: // goto_w
+            case 0xc9: // jsr_w
+                return 5;
+            case 0xc4: // wide
+                return (code[pc + 1] & 0xff) == 0x84 ? 6 : 4;
+            case 0xaa: { // tableswitch
+                int padding = 3 - (pc & 3);
+                int low = readInt(code, pc + 1 + padding + 4);
+                int high = readInt(code, pc + 1 + padding + 8);
+                return 1 + padding + 12 + (high - low + 1) * 4;
+            }
+            case 0xab: { // lookupswitch
+                int padding = 3 - (pc & 3);
+                int numPairs = readInt(code, pc + 1 + padding + 4);
+                return 1 + padding + 8 + numPairs * 8;
+            }
+            default:
+                if (opcode >= 0x15 && opcode <= 0x19) return 2; // iload, lload, fload, dload, aload
+                if (opcode >= 0x36 && opcode <= 0x3a) return 2; // istore, lstore, fstore, dstore, astore
+                if (opcode >= 0x99 && opcode <= 0xa8) return 3; // if<cond>, if_icmp<cond>, if_acmp<cond>, goto, jsr
+                return 1;
+        }
+    }
+
+    private static class TypeInfo {
+        final ClassDependencyGraph.ClassNode classNode;
+        final Map<String, ClassFile.MemberInfo> methods = new HashMap<>(); // keyed by name + descriptor
+        final List<TypeInfo> interfaces = new ArrayList<>();
+        final Set<String> calledSignatures = new HashSet<>(); // signatures of methods called virtually on this type
+        final List<TypeInfo> instantiatedSubtypes = new ArrayList<>();
+        final Set<TypeInfo> dependsOn = new HashSet<>();
+        final Set<ClassFile.MemberInfo> reachableMethods = new HashSet<>();
+        TypeInfo superClass;
+        Collection<TypeInfo> supertypes;
+        ClassFile.BootstrapMethodsAttribute bootstrapMethods; // decoded on the first invokedynamic
+        boolean isHierarchyResolved;
+        boolean isKept;
+        boolean isInstantiated;
+
+        TypeInfo(ClassDependencyGraph.ClassNode classNode) {
+            this.classNode = classNode;
+            for (var method : classNode.classFile.methods)
+                methods.put(method.getName() + method.getDescriptor(), method);
+        }
+
+        String getName() {
+            return classNode.classFile.getName();
+        }
+
+        boolean isInterface() {
+            return classNode.classFile.hasAccessFlag(ClassFile.ACC_INTERFACE);
+        }
+    }
+
+    private static class ReachableMethod {
+        final TypeInfo type;
+        final ClassFile.MemberInfo method;
+
+        ReachableMethod(TypeInfo type, ClassFile.MemberInfo method) {
+            this.type = type;
+            this.method = method;
+        }
+    }
+}
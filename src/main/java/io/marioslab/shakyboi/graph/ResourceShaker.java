@@ -0,0 +1,148 @@
+package io.marioslab.shakyboi.graph;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.util.Pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Determines which resources, i.e. non-class files, of an app are referenced by its reachable classes. A resource is referenced
+ * if a <code>CONSTANT_String</code> of a reachable class is the resource's path, or a prefix of it ending at a path boundary,
+ * e.g. "assets/" or "assets" for "assets/bunny.png", or "com/app/Messages" for "com/app/Messages_de.properties". Strings are
+ * also resolved relative to the class's package, like {@link Class#getResource(String)} does, and with '.' replaced by '/',
+ * like {@link java.util.ResourceBundle} base names.
+ * <p>
+ * The resource paths are stored in a character trie, so each string is matched against all resources in time linear in the
+ * length of the string. Resources in <code>META-INF/</code> are always kept, as they are looked up by the JVM and frameworks,
+ * e.g. the manifest and service provider configurations.
+ */
+public class ResourceShaker {
+    private final Node root = new Node();
+    private final List<String> resources;
+
+    private static class Node {
+        final Map<Character, Node> children = new HashMap<>();
+        /** The resource ending at this node, or null **/
+        String resource;
+        /** Whether the resource ending at this node is referenced **/
+        boolean referenced;
+        /** Whether all resources in the subtree of this node are referenced **/
+        boolean subtreeReferenced;
+    }
+
+    /**
+     * @param resources the paths of the resources, e.g. "images/bunny.png"
+     */
+    public ResourceShaker(List<String> resources) {
+        this.resources = resources;
+        for (var resource : resources) {
+            var node = root;
+            for (int i = 0; i < resource.length(); i++)
+                node = node.children.computeIfAbsent(resource.charAt(i), c -> new Node());
+            node.resource = resource;
+        }
+        var metaInf = find("META-INF/");
+        if (metaInf != null) metaInf.subtreeReferenced = true;
+    }
+
+    /**
+     * Marks the resources referenced by the <code>CONSTANT_String</code> entries of the given class, and the directory entry of
+     * its package, as referenced.
+     *
+     * @param classFile a reachable class
+     */
+    public void addReferences(ClassFile classFile) {
+        var className = classFile.getName();
+        var packageName = className.lastIndexOf('/') != -1 ? className.substring(0, className.lastIndexOf('/') + 1) : "";
+        // Keep the directory entry of the class's package.
+        var packageNode = packageName.isEmpty() ? null : find(packageName);
+        if (packageNode != null && packageNode.resource != null) packageNode.referenced = true;
+        for (var entry : classFile.constantPool) {
+            if (!(entry instanceof ClassFile.StringEntry)) continue;
+            var string = ((ClassFile.StringEntry) entry).getString();
+            if (string.isEmpty()) continue;
+            if (string.startsWith("/")) {
+                addReference(string.substring(1));
+            } else {
+                addReference(string);
+                if (!packageName.isEmpty()) addReference(packageName + string);
+                if (string.indexOf('.') != -1) addReference(string.replace('.', '/'));
+            }
+        }
+    }
+
+    /**
+     * Marks the resources referenced by the given string as referenced.
+     *
+     * @param string a path or path prefix
+     */
+    public void addReference(String string) {
+        if (string.isEmpty()) return;
+        var node = find(string);
+        if (node == null) return;
+        if (node.resource != null) node.referenced = true;
+        for (var child : node.children.entrySet()) {
+            char c = child.getKey();
+            if (string.endsWith("/") || c == '/' || c == '_' || c == '.') child.getValue().subtreeReferenced = true;
+        }
+    }
+
+    private Node find(String path) {
+        var node = root;
+        for (int i = 0; i < path.length() && node != null; i++)
+            node = node.children.get(path.charAt(i));
+        return node;
+    }
+
+    /**
+     * Returns the resources to keep, i.e. the referenced resources, the resources matching any of the keep patterns, and the
+     * directory entries containing them, in the order they were given to the constructor.
+     *
+     * @param keepPatterns patterns of resources to keep, even if they are not referenced
+     * @return the resources to keep
+     */
+    public List<String> getKeptResources(List<Pattern> keepPatterns) {
+        var referenced = new ArrayList<String>();
+        collectReferenced(root, referenced);
+        var keptSet = new HashSet<>(referenced);
+        for (var resource : resources) {
+            if (keptSet.contains(resource)) continue;
+            for (var pattern : keepPatterns) {
+                if (pattern.matchesPath(resource)) {
+                    keptSet.add(resource);
+                    break;
+                }
+            }
+        }
+        // Keep the directory entries containing kept resources.
+        for (var resource : new ArrayList<>(keptSet)) {
+            for (int index = resource.lastIndexOf('/', resource.length() - 2); index != -1; index = resource.lastIndexOf('/', index - 1))
+                keptSet.add(resource.substring(0, index + 1));
+        }
+        var kept = new ArrayList<String>();
+        for (var resource : resources)
+            if (keptSet.contains(resource)) kept.add(resource);
+        return kept;
+    }
+
+    private static void collectReferenced(Node root, List<String> referenced) {
+        // Iterative depth-first traversal, as the trie is as deep as the longest path.
+        var nodes = new ArrayList<Node>();
+        var inReferencedSubtree = new ArrayList<Boolean>();
+        nodes.add(root);
+        inReferencedSubtree.add(false);
+        while (!nodes.isEmpty()) {
+            var node = nodes.remove(nodes.size() - 1);
+            boolean subtreeReferenced = inReferencedSubtree.remove(inReferencedSubtree.size() - 1) || node.subtreeReferenced;
+            if (node.resource != null && (node.referenced || subtreeReferenced)) referenced.add(node.resource);
+            for (var child : node.children.values()) {
+                nodes.add(child);
+                inReferencedSubtree.add(subtreeReferenced);
+            }
+        }
+    }
+}
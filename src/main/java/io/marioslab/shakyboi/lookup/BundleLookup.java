@@ -0,0 +1,56 @@
+package io.marioslab.shakyboi.lookup;
+
+import io.marioslab.shakyboi.runtime.BundleClassLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link Lookup} searching for files in a class bundle, see {@link BundleClassLoader}.
+ */
+public class BundleLookup implements Lookup {
+    private final BundleClassLoader bundle;
+
+    /**
+     * @param bundleFile the bundle file
+     */
+    public BundleLookup(File bundleFile) {
+        if (bundleFile == null) throw new IllegalArgumentException("Bundle file must not be null.");
+        try {
+            bundle = new BundleClassLoader(bundleFile, null);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't load bundle " + bundleFile.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public byte[] findClass(String name) {
+        return findResource(name + ".class");
+    }
+
+    @Override
+    public byte[] findResource(String name) {
+        var data = bundle.getData(name);
+        if (data == null) return null;
+        var bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return bundle.getData(name) != null;
+    }
+
+    @Override
+    public long getSize(String name) {
+        var data = bundle.getData(name);
+        return data != null ? data.remaining() : -1;
+    }
+
+    @Override
+    public List<String> list() {
+        return bundle.list();
+    }
+}
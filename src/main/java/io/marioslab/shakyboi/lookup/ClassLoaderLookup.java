@@ -33,6 +33,11 @@ public class ClassLoaderLookup implements Lookup {
         }
     }
 
+    @Override
+    public boolean contains(String name) {
+        return ClassLoaderLookup.class.getClassLoader().getResource(name) != null;
+    }
+
     @Override
     public List<String> list() {
         throw new RuntimeException("Not supported.");
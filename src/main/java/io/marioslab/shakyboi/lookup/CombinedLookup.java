@@ -2,7 +2,9 @@ package io.marioslab.shakyboi.lookup;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A {@link Lookup} that searches for files
@@ -17,6 +19,81 @@ public class CombinedLookup implements Lookup {
         this.lookups = Arrays.asList(lookups);
     }
 
+    /**
+     * @return the lookups searched by this lookup, in search order
+     */
+    public List<Lookup> getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the lookups searched by this lookup, in search order, with nested {@link CombinedLookup} instances replaced by their lookups
+     */
+    public List<Lookup> getLeafLookups() {
+        var leafLookups = new ArrayList<Lookup>();
+        for (var cl : lookups) {
+            if (cl instanceof CombinedLookup) leafLookups.addAll(((CombinedLookup) cl).getLeafLookups());
+            else leafLookups.add(cl);
+        }
+        return leafLookups;
+    }
+
+    /**
+     * Returns the lookup each file listed by this lookup is found in, i.e. the first of the {@link #getLeafLookups()} listing it.
+     * Files listed by multiple lookups are shadowed by the first one, like for {@link #findClass(String)} and
+     * {@link #findResource(String)}. Each of the lookups is listed once, so the keys can be used instead of {@link #list()} where
+     * shadowed files don't need to be listed.
+     *
+     * @return the lookup of each file, in the order the files are listed
+     */
+    public Map<String, Lookup> getSources() {
+        var sources = new LinkedHashMap<String, Lookup>();
+        for (var cl : getLeafLookups()) {
+            for (var file : cl.list())
+                sources.putIfAbsent(file, cl);
+        }
+        return sources;
+    }
+
+    /**
+     * Returns the lookup the resource with the given name is found in. Nested {@link CombinedLookup} instances are searched
+     * recursively, so the returned lookup is never a {@link CombinedLookup}.
+     *
+     * @param name the name of the resource, e.g. "java/lang/Object.class", or "images/bunny.png".
+     * @return the lookup or null
+     */
+    public Lookup findLookup(String name) {
+        for (var cl : lookups) {
+            if (cl instanceof CombinedLookup) {
+                var lookup = ((CombinedLookup) cl).findLookup(name);
+                if (lookup != null) return lookup;
+            } else if (cl.contains(name)) {
+                return cl;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        for (var cl : lookups)
+            cl.close();
+    }
+
+    @Override
+    public boolean contains(String name) {
+        for (var cl : lookups) {
+            if (cl.contains(name)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public long getSize(String name) {
+        var lookup = findLookup(name);
+        return lookup != null ? lookup.getSize(name) : -1;
+    }
+
     @Override
     public byte[] findClass(String name) {
         for (var cl : lookups) {
@@ -26,6 +103,14 @@ public class CombinedLookup implements Lookup {
         return null;
     }
 
+    @Override
+    public String findModule(String name) {
+        for (var cl : lookups) {
+            if (cl.contains(name + ".class")) return cl.findModule(name);
+        }
+        return null;
+    }
+
     @Override
     public byte[] findResource(String name) {
         for (var cl : lookups) {
@@ -23,6 +23,21 @@ public class DirectoryLookup implements Lookup {
         this.baseDirectory = directory;
     }
 
+    /**
+     * @return the directory this lookup searches in
+     */
+    public File getDirectory() {
+        return baseDirectory;
+    }
+
+    /**
+     * @param name the name of the file, e.g. "java/lang/Object.class", or "images/bunny.png".
+     * @return the file in the directory, which may not exist
+     */
+    public File getFile(String name) {
+        return new File(baseDirectory, name);
+    }
+
     @Override
     public byte[] findClass(String name) {
         File classFile = new File(baseDirectory, name + ".class");
@@ -51,6 +66,17 @@ public class DirectoryLookup implements Lookup {
         }
     }
 
+    @Override
+    public boolean contains(String name) {
+        return new File(baseDirectory, name).isFile();
+    }
+
+    @Override
+    public long getSize(String name) {
+        var file = new File(baseDirectory, name);
+        return file.isFile() ? file.length() : -1;
+    }
+
     @Override
     public List<String> list() {
         var files = new ArrayList<String>();
@@ -1,22 +1,31 @@
 package io.marioslab.shakyboi.lookup;
 
+import io.marioslab.shakyboi.util.ZipCentralDirectory;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 /**
- * A {@link Lookup} searching for files in a .jar file.
+ * A {@link Lookup} searching for files in a .jar file. The .jar file is kept open until the lookup is {@link #close() closed}.
  */
 public class JarLookup implements Lookup {
+    private final File file;
     private final JarFile jarFile;
+    private FileChannel channel;
+    private ZipCentralDirectory centralDirectory;
 
     public JarLookup(File jarFile) {
         if (jarFile == null) throw new IllegalArgumentException("Jar file must not be null.");
         if (!jarFile.exists() || jarFile.isDirectory())
             throw new IllegalArgumentException("Jar file " + jarFile.getAbsolutePath() + " does not exist.");
+        this.file = jarFile;
         try {
             this.jarFile = new JarFile(jarFile, false, ZipFile.OPEN_READ);
         } catch (IOException e) {
@@ -24,6 +33,82 @@ public class JarLookup implements Lookup {
         }
     }
 
+    /**
+     * @return the .jar file this lookup searches in
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the {@link ZipEntry} of the file with the given name, e.g. to get the file's CRC and sizes without reading it.
+     *
+     * @param name the name of the file, e.g. "java/lang/Object.class"
+     * @return the entry or null
+     */
+    public ZipEntry getZipEntry(String name) {
+        return jarFile.getEntry(name);
+    }
+
+    /**
+     * Returns the central directory entry of the file with the given name, to copy the file's compressed data as is via
+     * {@link io.marioslab.shakyboi.util.JarFileWriter#copyFile(String, FileChannel, ZipCentralDirectory.Entry)}.
+     *
+     * @param name the name of the file, e.g. "java/lang/Object.class"
+     * @return the entry or null
+     */
+    public ZipCentralDirectory.Entry getEntry(String name) {
+        var zipEntry = jarFile.getEntry(name);
+        if (zipEntry == null) return null;
+        openChannel();
+        try {
+            return centralDirectory.getEntry(channel, zipEntry);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read local file header of jar file entry " + name, e);
+        }
+    }
+
+    /**
+     * @return the channel to read the compressed data of the entries returned by {@link #getEntry(String)} from
+     */
+    public FileChannel getChannel() {
+        openChannel();
+        return channel;
+    }
+
+    private synchronized void openChannel() {
+        if (channel != null) return;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            centralDirectory = ZipCentralDirectory.read(channel);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't read central directory of jar file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            jarFile.close();
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't close jar file " + file.getAbsolutePath(), e);
+        }
+        channel = null;
+        centralDirectory = null;
+    }
+
+    @Override
+    public boolean contains(String name) {
+        return jarFile.getEntry(name) != null;
+    }
+
+    @Override
+    public long getSize(String name) {
+        var entry = jarFile.getEntry(name);
+        return entry != null ? entry.getSize() : -1;
+    }
+
     @Override
     public byte[] findClass(String name) {
         var entry = jarFile.getEntry(name + ".class");
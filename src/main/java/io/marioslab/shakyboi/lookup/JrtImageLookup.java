@@ -7,31 +7,73 @@ import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * A {@link Lookup} that searches .class files in the JRT image
  * of the JVM it is executed in. See <a href="https://openjdk.java.net/jeps/220">JEP 220</a>.
+ * <p>
+ * Classes are searched in the modules containing their package, as listed in the <code>/packages</code> directory of the image.
+ * The module of a class is returned by {@link #findModule(String)}.
  */
 public class JrtImageLookup implements Lookup {
     private final Path modules = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules");
+    private final Path packages = modules.getFileSystem().getPath("/packages");
     private final FileSystem modulesFS = modules.getFileSystem();
+    private Map<String, List<String>> modulesByPackage;
+
+    /**
+     * Returns the names of the modules containing each package, keyed by the internal package name, e.g. "java/lang".
+     */
+    private synchronized Map<String, List<String>> getModulesByPackage() {
+        if (modulesByPackage != null) return modulesByPackage;
+        var result = new HashMap<String, List<String>>();
+        try (var packageDirs = Files.list(packages)) {
+            for (var packageDir : packageDirs.collect(Collectors.toList())) {
+                try (var moduleLinks = Files.list(packageDir)) {
+                    result.put(packageDir.getFileName().toString().replace('.', '/'), moduleLinks.map(m -> m.getFileName().toString()).collect(Collectors.toList()));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't iterate packages of JRT image.", e);
+        }
+        modulesByPackage = result;
+        return result;
+    }
+
+    @Override
+    public String findModule(String name) {
+        var packageIndex = name.lastIndexOf('/');
+        if (packageIndex == -1) return null;
+        var packageModules = getModulesByPackage().get(name.substring(0, packageIndex));
+        if (packageModules == null) return null;
+        for (var module : packageModules) {
+            if (Files.exists(modules.resolve(module).resolve(name + ".class"))) return module;
+        }
+        return null;
+    }
 
     @Override
     public byte[] findClass(String name) {
-        var fileName = name + ".class";
+        var module = findModule(name);
+        if (module == null) return null;
         try {
-            Optional<Path> module = Files.list(modules).filter(m -> {
-                return Files.exists(m.resolve(fileName));
-            }).findFirst();
-            if (module.isPresent()) return Files.readAllBytes(module.get().resolve(fileName));
-            return null;
+            return Files.readAllBytes(modules.resolve(module).resolve(name + ".class"));
         } catch (IOException e) {
             throw new RuntimeException("Couldn't search class " + name + " in Java runtime image.", e);
         }
     }
 
+    @Override
+    public boolean contains(String name) {
+        if (name.endsWith(".class") && findModule(name.substring(0, name.length() - ".class".length())) != null) return true;
+        return findResource(name) != null;
+    }
+
     @Override
     public byte[] findResource(String name) {
         var fileName = name;
@@ -1,12 +1,13 @@
 package io.marioslab.shakyboi.lookup;
 
+import java.io.Closeable;
 import java.util.List;
 
 /**
  * A lookup provides the raw bytes of classes and other resources fetched from
- * some place.
+ * some place. Lookups holding open files release them when they are closed.
  */
-public interface Lookup {
+public interface Lookup extends Closeable {
     /**
      * Looks up the class with the given name and returns its
      * <code>.class</code> file content as a byte array.
@@ -27,6 +28,52 @@ public interface Lookup {
      */
     byte[] findResource(String name);
 
+    /**
+     * Returns whether the resource with the given name exists. The default implementation looks up the resource's content,
+     * implementations should override this if they can answer without reading the content.
+     *
+     * @param name the name of the resource, e.g. "java/lang/Object.class", or "images/bunny.png".
+     * @return whether the resource exists.
+     * @throws RuntimeException in case an unrecoverable error happened.
+     */
+    default boolean contains(String name) {
+        return findResource(name) != null;
+    }
+
+    /**
+     * Releases the resources held by this lookup, e.g. open files. The lookup must not be used afterwards. The default
+     * implementation does nothing.
+     *
+     * @throws RuntimeException in case an unrecoverable error happened.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Returns the size of the resource with the given name in bytes. The default implementation looks up the resource's content,
+     * implementations should override this if they can answer without reading the content.
+     *
+     * @param name the name of the resource, e.g. "java/lang/Object.class", or "images/bunny.png".
+     * @return the size in bytes, or -1 if the resource doesn't exist.
+     * @throws RuntimeException in case an unrecoverable error happened.
+     */
+    default long getSize(String name) {
+        var bytes = findResource(name);
+        return bytes != null ? bytes.length : -1;
+    }
+
+    /**
+     * Returns the name of the module the class with the given name is found in. The default implementation returns null, for
+     * lookups without module information.
+     *
+     * @param name the binary class name, e.g. "java/lang/Object".
+     * @return the module name, e.g. "java.base", or null if the class isn't found or the lookup has no module information.
+     */
+    default String findModule(String name) {
+        return null;
+    }
+
     /**
      * Lists all files contained in this lookup, both class and resource files.
      *
@@ -0,0 +1,243 @@
+package io.marioslab.shakyboi.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * A {@link ClassLoader} loading classes and resources from a class bundle written by
+ * {@link io.marioslab.shakyboi.util.ClassBundleWriter}. The bundle is memory-mapped, and classes are defined straight from the
+ * mapped buffer, without a central directory to parse, inflating, or copying class bytes to the Java heap. Names are looked up
+ * via a minimal perfect hash in constant time.
+ * <p>
+ * This class only depends on the JDK, so it can be copied into an app. It can also launch an app from a bundle:
+ *
+ * <code>
+ * java -cp shakyboi.jar io.marioslab.shakyboi.runtime.BundleClassLoader app.bundle my.app.MainClass args...
+ * </code>
+ * <p>
+ * The bundle format, all values big-endian:
+ * <pre>
+ * header:  int magic, int version, int numEntries, int numBuckets, int dataOffset
+ * seeds:   int[numBuckets], the hash seed of each bucket
+ * slots:   int[numEntries], the index of the entry in each slot
+ * entries: numEntries x (int nameOffset, int nameLength, int dataOffset, int dataLength), sorted by name
+ * names:   the UTF-8 encoded names of the entries, e.g. "my/app/MainClass.class"
+ * data:    the content of the entries, starting at dataOffset, aligned to {@link #PAGE_SIZE}, classes in load order
+ * </pre>
+ * An entry is found by hashing its name with seed 0 to get its bucket, then hashing it with the bucket's seed to get its slot.
+ * The writer picks the seeds so that no two entries share a slot. The name of the entry in the slot is compared to the looked up
+ * name, as names not in the bundle map to a slot as well.
+ */
+public class BundleClassLoader extends ClassLoader {
+    /** The magic number at the start of a bundle, "SHKB" **/
+    public static final int MAGIC = 0x53484b42;
+    /** The version of the bundle format **/
+    public static final int VERSION = 1;
+    /** The size of the header in bytes **/
+    public static final int HEADER_SIZE = 20;
+    /** The size of an entry of the entry table in bytes **/
+    public static final int ENTRY_SIZE = 16;
+    /** The alignment of the data section in bytes **/
+    public static final int PAGE_SIZE = 4096;
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int numEntries;
+    private final int numBuckets;
+    private final int seedsOffset;
+    private final int slotsOffset;
+    private final int entriesOffset;
+    private final ProtectionDomain protectionDomain;
+    private final URLStreamHandler urlStreamHandler = new URLStreamHandler() {
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            var data = getData(url.getPath());
+            if (data == null) throw new IOException("Resource " + url.getPath() + " not found in bundle " + file.getAbsolutePath());
+            return new URLConnection(url) {
+                @Override
+                public void connect() {
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    var bytes = new byte[data.remaining()];
+                    data.duplicate().get(bytes);
+                    return new ByteArrayInputStream(bytes);
+                }
+
+                @Override
+                public long getContentLengthLong() {
+                    return data.remaining();
+                }
+            };
+        }
+    };
+
+    /**
+     * Creates a new class loader for the given bundle.
+     *
+     * @param bundle the bundle file
+     * @param parent the parent class loader, e.g. {@link ClassLoader#getPlatformClassLoader()}
+     * @throws IOException in case the bundle couldn't be read or is not a valid bundle
+     */
+    public BundleClassLoader(File bundle, ClassLoader parent) throws IOException {
+        super("bundle", parent);
+        this.file = bundle;
+        try (var channel = FileChannel.open(bundle.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Bundle " + bundle.getAbsolutePath() + " is larger than 2GB.");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("File " + bundle.getAbsolutePath() + " is not a bundle.");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported version " + buffer.getInt(4) + " of bundle " + bundle.getAbsolutePath() + ", expected " + VERSION + ".");
+        numEntries = buffer.getInt(8);
+        numBuckets = buffer.getInt(12);
+        seedsOffset = HEADER_SIZE;
+        slotsOffset = seedsOffset + numBuckets * 4;
+        entriesOffset = slotsOffset + numEntries * 4;
+        protectionDomain = new ProtectionDomain(new CodeSource(bundle.toURI().toURL(), (Certificate[]) null), null, this, null);
+    }
+
+    /**
+     * Computes the hash of a name as used by the bundle's perfect hash.
+     *
+     * @param name the UTF-8 encoded name
+     * @param seed the seed, 0 to compute the bucket of the name
+     * @return the hash
+     */
+    public static int hash(byte[] name, int seed) {
+        // FNV-1a, followed by the MurmurHash3 finalizer to spread the bits of short names.
+        int hash = 0x811c9dc5 ^ (seed * 0x9e3779b9);
+        for (byte b : name)
+            hash = (hash ^ (b & 0xff)) * 0x01000193;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Returns the index of the entry with the given name in the entry table, or -1.
+     */
+    private int findEntry(String name) {
+        if (numEntries == 0) return -1;
+        var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int seed = buffer.getInt(seedsOffset + Integer.remainderUnsigned(hash(nameBytes, 0), numBuckets) * 4);
+        int entry = buffer.getInt(slotsOffset + Integer.remainderUnsigned(hash(nameBytes, seed), numEntries) * 4);
+        int entryOffset = entriesOffset + entry * ENTRY_SIZE;
+        int nameOffset = buffer.getInt(entryOffset);
+        int nameLength = buffer.getInt(entryOffset + 4);
+        if (nameLength != nameBytes.length) return -1;
+        for (int i = 0; i < nameLength; i++)
+            if (buffer.get(nameOffset + i) != nameBytes[i]) return -1;
+        return entry;
+    }
+
+    /**
+     * Returns a read-only view of the content of the entry with the given name, backed by the mapped bundle.
+     *
+     * @param name the name of the entry, e.g. "my/app/MainClass.class", or "images/bunny.png".
+     * @return the content or null
+     */
+    public ByteBuffer getData(String name) {
+        int entry = findEntry(name);
+        if (entry == -1) return null;
+        int entryOffset = entriesOffset + entry * ENTRY_SIZE;
+        return buffer.slice(buffer.getInt(entryOffset + 8), buffer.getInt(entryOffset + 12)).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return the names of all entries in the bundle, sorted
+     */
+    public List<String> list() {
+        var names = new ArrayList<String>(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            int entryOffset = entriesOffset + i * ENTRY_SIZE;
+            var nameBytes = new byte[buffer.getInt(entryOffset + 4)];
+            buffer.get(buffer.getInt(entryOffset), nameBytes);
+            names.add(new String(nameBytes, StandardCharsets.UTF_8));
+        }
+        return names;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        var data = getData(name.replace('.', '/') + ".class");
+        if (data == null) throw new ClassNotFoundException(name);
+        int packageIndex = name.lastIndexOf('.');
+        if (packageIndex != -1) {
+            var packageName = name.substring(0, packageIndex);
+            if (getDefinedPackage(packageName) == null) {
+                try {
+                    definePackage(packageName, null, null, null, null, null, null, null);
+                } catch (IllegalArgumentException e) {
+                    // Defined concurrently by another thread.
+                }
+            }
+        }
+        return defineClass(name, data, protectionDomain);
+    }
+
+    @Override
+    protected URL findResource(String name) {
+        if (findEntry(name) == -1) return null;
+        try {
+            return new URL("bundle", null, -1, name, urlStreamHandler);
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) {
+        var url = findResource(name);
+        return Collections.enumeration(url != null ? List.of(url) : List.of());
+    }
+
+    /**
+     * Launches an app from a bundle.
+     *
+     * @param args the bundle file, the name of the main class, and the arguments passed to the main class
+     */
+    public static void main(String[] args) throws Throwable {
+        if (args.length < 2) {
+            System.err.println("Usage: BundleClassLoader <bundle-file> <main-class> <args...>");
+            System.exit(-1);
+        }
+        var classLoader = new BundleClassLoader(new File(args[0]), ClassLoader.getPlatformClassLoader());
+        Thread.currentThread().setContextClassLoader(classLoader);
+        var mainClass = classLoader.loadClass(args[1]);
+        try {
+            mainClass.getMethod("main", String[].class).invoke(null, (Object) Arrays.copyOfRange(args, 2, args.length));
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package io.marioslab.shakyboi.util;
+
+import io.marioslab.shakyboi.runtime.BundleClassLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes files to a class bundle, to be loaded by a {@link BundleClassLoader}. See {@link BundleClassLoader} for the format.
+ * <p>
+ * Files are kept in memory until {@link #close()} is called, which builds the name index and its minimal perfect hash, and writes
+ * the bundle. Classes are written first, in the order they were added, e.g. their load order, followed by all other files. The
+ * classes loaded during startup are thus packed into as few pages as possible. Directory entries are not written.
+ * {@link #addFile(String, byte[])} may be called concurrently from multiple threads.
+ */
+public class ClassBundleWriter implements OutputWriter {
+    /** The maximum number of seeds tried per bucket before giving up **/
+    private static final int MAX_SEED = 1 << 24;
+
+    private final File file;
+    private final List<Entry> entries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+
+    private static class Entry {
+        final String name;
+        final byte[] nameBytes;
+        final byte[] data;
+        int nameOffset;
+        int dataOffset;
+
+        Entry(String name, byte[] data) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.data = data;
+        }
+    }
+
+    /**
+     * @param file the bundle file to write to. An existing file is overwritten.
+     */
+    public ClassBundleWriter(File file) {
+        if (file == null) throw new IllegalArgumentException("File must not be null.");
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void addFile(String name, byte[] data) {
+        if (name == null) throw new IllegalArgumentException("Name must not be null.");
+        if (data == null) throw new IllegalArgumentException("Data must not be null.");
+        if (name.endsWith("/")) return;
+        if (!names.add(name)) throw new RuntimeException("Couldn't add file " + name + " to bundle " + file + ", duplicate entry: " + name);
+        entries.add(new Entry(name, data));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // Classes first, in the order they were added.
+        var dataOrder = new ArrayList<Entry>();
+        for (var entry : entries)
+            if (entry.name.endsWith(".class")) dataOrder.add(entry);
+        for (var entry : entries)
+            if (!entry.name.endsWith(".class")) dataOrder.add(entry);
+        var sortedEntries = new ArrayList<>(entries);
+        sortedEntries.sort(Comparator.comparing(entry -> entry.name));
+
+        int numEntries = sortedEntries.size();
+        int numBuckets = Math.max(1, numEntries / 2);
+        var seeds = new int[numBuckets];
+        var slots = computePerfectHash(sortedEntries, numBuckets, seeds);
+
+        long namesOffset = BundleClassLoader.HEADER_SIZE + (long) numBuckets * 4 + (long) numEntries * 4 + (long) numEntries * BundleClassLoader.ENTRY_SIZE;
+        long offset = namesOffset;
+        for (var entry : sortedEntries) {
+            entry.nameOffset = (int) offset;
+            offset += entry.nameBytes.length;
+        }
+        offset = (offset + BundleClassLoader.PAGE_SIZE - 1) / BundleClassLoader.PAGE_SIZE * BundleClassLoader.PAGE_SIZE;
+        long dataOffset = offset;
+        for (var entry : dataOrder) {
+            entry.dataOffset = (int) offset;
+            offset += entry.data.length;
+            if (offset > Integer.MAX_VALUE) throw new IOException("Bundle " + file.getAbsolutePath() + " would be larger than 2GB.");
+        }
+
+        var index = ByteBuffer.allocate((int) (dataOffset));
+        index.putInt(BundleClassLoader.MAGIC);
+        index.putInt(BundleClassLoader.VERSION);
+        index.putInt(numEntries);
+        index.putInt(numBuckets);
+        index.putInt((int) dataOffset);
+        for (int seed : seeds)
+            index.putInt(seed);
+        for (int slot : slots)
+            index.putInt(slot);
+        for (var entry : sortedEntries) {
+            index.putInt(entry.nameOffset);
+            index.putInt(entry.nameBytes.length);
+            index.putInt(entry.dataOffset);
+            index.putInt(entry.data.length);
+        }
+        for (var entry : sortedEntries)
+            index.put(entry.nameBytes);
+        index.position(0);
+
+        try (var out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(out, index);
+            for (var entry : dataOrder)
+                writeFully(out, ByteBuffer.wrap(entry.data));
+        } catch (IOException e) {
+            throw new IOException("Couldn't write bundle " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            out.write(buffer);
+    }
+
+    /**
+     * Computes a minimal perfect hash of the entry names by hash and displace: names are distributed to buckets by their hash with
+     * seed 0. Starting with the largest bucket, a seed is searched for each bucket that maps all its names to free slots. Returns
+     * the index of the entry in each slot, and stores the seed of each bucket in seeds.
+     */
+    private int[] computePerfectHash(List<Entry> entries, int numBuckets, int[] seeds) throws IOException {
+        int numEntries = entries.size();
+        var buckets = new ArrayList<List<Integer>>(numBuckets);
+        for (int i = 0; i < numBuckets; i++)
+            buckets.add(new ArrayList<>());
+        for (int i = 0; i < numEntries; i++)
+            buckets.get(Integer.remainderUnsigned(BundleClassLoader.hash(entries.get(i).nameBytes, 0), numBuckets)).add(i);
+        var bucketOrder = new Integer[numBuckets];
+        for (int i = 0; i < numBuckets; i++)
+            bucketOrder[i] = i;
+        Arrays.sort(bucketOrder, Comparator.comparingInt(bucket -> -buckets.get(bucket).size()));
+
+        var slots = new int[numEntries];
+        var usedSlots = new BitSet(numEntries);
+        var bucketSlots = new int[0];
+        for (int bucket : bucketOrder) {
+            var bucketEntries = buckets.get(bucket);
+            if (bucketEntries.isEmpty()) break;
+            if (bucketSlots.length < bucketEntries.size()) bucketSlots = new int[bucketEntries.size()];
+            int seed = 1;
+            outer:
+            for (; ; seed++) {
+                if (seed == MAX_SEED) throw new IOException("Couldn't compute perfect hash for bundle " + file.getAbsolutePath());
+                for (int i = 0; i < bucketEntries.size(); i++) {
+                    int slot = Integer.remainderUnsigned(BundleClassLoader.hash(entries.get(bucketEntries.get(i)).nameBytes, seed), numEntries);
+                    if (usedSlots.get(slot)) {
+                        for (int j = 0; j < i; j++)
+                            usedSlots.clear(bucketSlots[j]);
+                        continue outer;
+                    }
+                    usedSlots.set(slot);
+                    bucketSlots[i] = slot;
+                }
+                break;
+            }
+            seeds[bucket] = seed;
+            for (int i = 0; i < bucketEntries.size(); i++)
+                slots[bucketSlots[i]] = bucketEntries.get(i);
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,202 @@
+package io.marioslab.shakyboi.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes files to a directory tree, e.g. an exploded classes directory that is put on the class path instead of a .jar file.
+ * Files are written concurrently on a pool of worker threads.
+ * <p>
+ * Files of another directory can be copied via {@link #copyFile(String, File)}. The data is transferred with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, or, if enabled, the file is hard linked,
+ * which only works if source and output are on the same file system. Hard linked files share their content with the source file.
+ * <p>
+ * At most a fixed number of files per thread are pending, adding more files waits for the oldest pending file to be written. The
+ * names of all written files are kept to detect duplicates, on the heap by default, or in a {@link MappedStringSet} if an
+ * external memory directory is given.
+ */
+public class DirectoryWriter implements OutputWriter {
+    private final File directory;
+    private final Path directoryPath;
+    private final boolean hardLinks;
+    private final ExecutorService executor;
+    private final int maxPendingTasks;
+    private final ArrayDeque<Future<?>> tasks = new ArrayDeque<>();
+    private final Set<String> names = new HashSet<>();
+    private final MappedStringSet mappedNames;
+
+    /**
+     * Creates a new writer.
+     *
+     * @param directory  the directory to write to, created if it doesn't exist. Existing files are overwritten.
+     * @param numThreads the number of threads to write files on, at least 1
+     * @param hardLinks  whether to hard link files copied via {@link #copyFile(String, File)} instead of copying their content,
+     *                   if possible
+     */
+    public DirectoryWriter(File directory, int numThreads, boolean hardLinks) {
+        this(directory, numThreads, hardLinks, null);
+    }
+
+    /**
+     * Creates a new writer, see {@link #DirectoryWriter(File, int, boolean)}. If an external memory directory is given, the names of
+     * the written files are stored in a {@link MappedStringSet} in that directory instead of the heap. Its files are deleted on
+     * {@link #close()}.
+     *
+     * @param directory      the directory to write to, created if it doesn't exist. Existing files are overwritten.
+     * @param numThreads     the number of threads to write files on, at least 1
+     * @param hardLinks      whether to hard link files copied via {@link #copyFile(String, File)} instead of copying their content,
+     *                       if possible
+     * @param externalMemory the directory to store the names of the written files in, or null to keep them on the heap
+     */
+    public DirectoryWriter(File directory, int numThreads, boolean hardLinks, File externalMemory) {
+        if (directory == null) throw new IllegalArgumentException("Directory must not be null.");
+        if (numThreads < 1) throw new IllegalArgumentException("Number of threads must be at least 1.");
+        this.directory = directory;
+        this.directoryPath = directory.toPath().toAbsolutePath().normalize();
+        this.hardLinks = hardLinks;
+        try {
+            Files.createDirectories(directoryPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't create output directory " + directory.getAbsolutePath(), e);
+        }
+        try {
+            mappedNames = externalMemory != null ? new MappedStringSet(externalMemory, 64 * 1024) : null;
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't create name set in " + externalMemory.getAbsolutePath(), e);
+        }
+        maxPendingTasks = numThreads * 64;
+        executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            var thread = new Thread(runnable, "DirectoryWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void addFile(String name, byte[] data) {
+        if (name == null) throw new IllegalArgumentException("Name must not be null.");
+        if (data == null) throw new IllegalArgumentException("Data must not be null.");
+        var path = resolve(name);
+        submit(name, () -> {
+            if (name.endsWith("/")) {
+                Files.createDirectories(path);
+                return;
+            }
+            Files.createDirectories(path.getParent());
+            try (var out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                var buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining())
+                    out.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * Copies a file of another directory to this directory, without reading it into memory.
+     *
+     * @param name   the name of the file in this directory
+     * @param source the file to copy
+     */
+    public void copyFile(String name, File source) {
+        if (name == null) throw new IllegalArgumentException("Name must not be null.");
+        if (source == null) throw new IllegalArgumentException("Source must not be null.");
+        var path = resolve(name);
+        submit(name, () -> {
+            Files.createDirectories(path.getParent());
+            Files.deleteIfExists(path);
+            if (hardLinks) {
+                try {
+                    Files.createLink(path, source.toPath());
+                    return;
+                } catch (IOException | UnsupportedOperationException e) {
+                    // Different file systems, or not supported by the file system, copy the content instead.
+                }
+            }
+            try (var in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+                 var out = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long size = in.size();
+                for (long transferred = 0; transferred < size; ) {
+                    long count = in.transferTo(transferred, size - transferred, out);
+                    if (count <= 0) throw new IOException("Unexpected end of file " + source.getAbsolutePath());
+                    transferred += count;
+                }
+            }
+        });
+    }
+
+    private Path resolve(String name) {
+        var path = directoryPath.resolve(name).normalize();
+        if (!path.startsWith(directoryPath)) throw new IllegalArgumentException("File " + name + " is outside of the output directory.");
+        return path;
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private synchronized void submit(String name, Task task) {
+        boolean added;
+        try {
+            added = mappedNames != null ? mappedNames.add(name, 0) : names.add(name);
+        } catch (IOException e) {
+            throw new RuntimeException("Couldn't add file " + name + " to directory " + directory, e);
+        }
+        if (!added) throw new RuntimeException("Couldn't add file " + name + " to directory " + directory + ", duplicate entry: " + name);
+        // Completed tasks are dropped, the oldest pending task is waited for if too many are pending.
+        while (!tasks.isEmpty() && (tasks.peek().isDone() || tasks.size() >= maxPendingTasks)) {
+            try {
+                getResult(tasks.poll());
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't write directory " + directory, e);
+            }
+        }
+        tasks.add(executor.submit(() -> {
+            try {
+                task.run();
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't add file " + name + " to directory " + directory, e);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * Waits for all files to be written.
+     *
+     * @throws IOException in case a file could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            while (!tasks.isEmpty())
+                getResult(tasks.poll());
+        } finally {
+            executor.shutdownNow();
+            if (mappedNames != null) mappedNames.close();
+        }
+    }
+
+    private void getResult(Future<?> task) throws IOException {
+        try {
+            task.get();
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause.getCause() instanceof IOException) throw (IOException) cause.getCause();
+            throw new IOException(cause);
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while writing directory " + directory, e);
+        }
+    }
+}
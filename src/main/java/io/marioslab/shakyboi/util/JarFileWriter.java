@@ -1,11 +1,26 @@
 package io.marioslab.shakyboi.util;
 
-import java.io.Closeable;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.jar.JarOutputStream;
-import java.util.zip.ZipEntry;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 
 /**
  * Writes entries to a .jar file.
@@ -16,36 +31,446 @@ import java.util.zip.ZipEntry;
  * writer.addFile("B.class", bytesOfB);
  * }
  * </code>
+ * <p>
+ * Entries are compressed concurrently on a pool of worker threads, each with its own {@link Deflater}. The compressed entries
+ * are written in the order they were added, followed by the central directory, so the output is deterministic. Zip64 records
+ * are written if the file has more than 65535 entries or is larger than 4GB. {@link #addFile(String, byte[])} may be called
+ * concurrently from multiple threads.
+ * <p>
+ * Unmodified entries of other .jar files can be copied as is via {@link #copyFile(String, FileChannel, ZipCentralDirectory.Entry)}.
+ * <p>
+ * By default, the names and central directory records of all written entries are kept on the heap until {@link #close()}. If an
+ * external memory directory is given, the names are kept in a {@link MappedStringSet} and the central directory records are
+ * appended to a spill file instead, which is copied to the end of the .jar file on close, so heap usage doesn't grow with the
+ * number of entries.
  */
-public class JarFileWriter implements Closeable {
+public class JarFileWriter implements OutputWriter {
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final int ZIP64_MAGIC = 0xffffffff;
+    private static final int ALIGNMENT_EXTRA_FIELD = 0xd935; // as used by Android's zipalign
+
+    /** The alignment of the data of stored entries in bytes, see {@link #JarFileWriter(File, int, int, boolean)} **/
+    public static final int PAGE_SIZE = 4096;
+
     private final File jarFile;
-    private final JarOutputStream out;
+    private final FileChannel out;
+    private final boolean stored;
+    private final ExecutorService executor;
+    private final int maxPendingEntries;
+    private final ThreadLocal<Deflater> deflater;
+    private final List<Deflater> deflaters = new ArrayList<>();
+    private final ArrayDeque<Entry> pendingEntries = new ArrayDeque<>();
+    private final List<Entry> writtenEntries = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final MappedStringSet mappedNames;
+    private final File centralDirectoryFile;
+    private final FileChannel centralDirectory;
+    private final ByteBuffer centralDirectoryBuffer;
+    private long numEntries;
+    private int dosTime;
+    private long position;
+
+    /**
+     * An entry of the .jar file. The CRC and compressed data are computed by a worker thread, or copied from another .jar file,
+     * and written once all previous entries are written. Sizes are unsigned 32-bit values.
+     **/
+    private static class Entry {
+        final String name;
+        final byte[] nameBytes;
+        final int method;
+        final int uncompressedSize;
+        Future<byte[]> compressedData;
+        int crc;
+        final FileChannel source;
+        final long sourceOffset;
+        int compressedSize;
+        long localHeaderOffset;
+
+        Entry(String name, int method, int crc, int uncompressedSize, Future<byte[]> compressedData) {
+            this(name, method, crc, uncompressedSize, compressedData, null, 0, 0);
+        }
+
+        Entry(String name, int method, int crc, int uncompressedSize, Future<byte[]> compressedData, FileChannel source, long sourceOffset, int compressedSize) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.method = method;
+            this.crc = crc;
+            this.uncompressedSize = uncompressedSize;
+            this.compressedData = compressedData;
+            this.source = source;
+            this.sourceOffset = sourceOffset;
+            this.compressedSize = compressedSize;
+        }
+    }
 
+    /**
+     * Creates a new writer compressing entries with the default compression level on as many threads as there are processors.
+     *
+     * @param jarFile the .jar file to write to
+     */
     public JarFileWriter(File jarFile) {
+        this(jarFile, Deflater.DEFAULT_COMPRESSION, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new writer.
+     *
+     * @param jarFile          the .jar file to write to
+     * @param compressionLevel the compression level from 0-9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @param numThreads       the number of threads to compress entries on, at least 1
+     */
+    public JarFileWriter(File jarFile, int compressionLevel, int numThreads) {
+        this(jarFile, compressionLevel, numThreads, false);
+    }
+
+    /**
+     * Creates a new writer. If stored is true, entries are not compressed, and the data of each entry is aligned to
+     * {@link #PAGE_SIZE} in the file, by padding the extra field of its local file header. Class loaders and readers
+     * memory-mapping the file can then use the data directly, without inflating it. The CRCs are still computed in parallel.
+     *
+     * @param jarFile          the .jar file to write to
+     * @param compressionLevel the compression level from 0-9, or {@link Deflater#DEFAULT_COMPRESSION}. Ignored if stored is true.
+     * @param numThreads       the number of threads to compress entries on, at least 1
+     * @param stored           whether to store entries uncompressed and page-aligned
+     */
+    public JarFileWriter(File jarFile, int compressionLevel, int numThreads, boolean stored) {
+        this(jarFile, compressionLevel, numThreads, stored, null);
+    }
+
+    /**
+     * Creates a new writer, see {@link #JarFileWriter(File, int, int, boolean)}. If an external memory directory is given, the names
+     * and central directory records of the written entries are stored in files in that directory instead of the heap. The files
+     * are deleted on {@link #close()}.
+     *
+     * @param jarFile          the .jar file to write to
+     * @param compressionLevel the compression level from 0-9, or {@link Deflater#DEFAULT_COMPRESSION}. Ignored if stored is true.
+     * @param numThreads       the number of threads to compress entries on, at least 1
+     * @param stored           whether to store entries uncompressed and page-aligned
+     * @param externalMemory   the directory to store the names and central directory records in, or null to keep them on the heap
+     */
+    public JarFileWriter(File jarFile, int compressionLevel, int numThreads, boolean stored, File externalMemory) {
         if (jarFile == null) throw new IllegalArgumentException("Jar file must not be null.");
+        if ((compressionLevel < 0 || compressionLevel > 9) && compressionLevel != Deflater.DEFAULT_COMPRESSION)
+            throw new IllegalArgumentException("Compression level must be between 0 and 9.");
+        if (numThreads < 1) throw new IllegalArgumentException("Number of threads must be at least 1.");
         this.jarFile = jarFile;
+        this.stored = stored;
         try {
-            out = new JarOutputStream(new FileOutputStream(jarFile));
+            out = FileChannel.open(jarFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
         } catch (IOException e) {
             throw new RuntimeException("Couldn't create jar file " + jarFile.getAbsolutePath(), e);
         }
+        if (externalMemory != null) {
+            try {
+                mappedNames = new MappedStringSet(externalMemory, 64 * 1024);
+                centralDirectoryFile = File.createTempFile("shakyboi-jar", ".cd", externalMemory);
+                centralDirectory = FileChannel.open(centralDirectoryFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new RuntimeException("Couldn't create central directory spill file in " + externalMemory.getAbsolutePath(), e);
+            }
+        } else {
+            mappedNames = null;
+            centralDirectoryFile = null;
+            centralDirectory = null;
+        }
+        centralDirectoryBuffer = centralDirectory != null ? ByteBuffer.allocate(128 * 1024) : null;
+        executor = Executors.newFixedThreadPool(numThreads, runnable -> {
+            var thread = new Thread(runnable, "JarFileWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounds the memory used by compressed entries that can't be written yet, as an earlier entry is still being compressed.
+        maxPendingEntries = numThreads * 64;
+        deflater = ThreadLocal.withInitial(() -> {
+            var deflater = new Deflater(compressionLevel, true);
+            synchronized (deflaters) {
+                deflaters.add(deflater);
+            }
+            return deflater;
+        });
+        dosTime = toDosTime(LocalDateTime.now());
     }
 
+    @Override
     public void addFile(String name, byte[] data) {
         if (name == null) throw new IllegalArgumentException("Name must not be null.");
         if (data == null) throw new IllegalArgumentException("Data must not be null.");
-        var entry = new ZipEntry(name);
+        synchronized (this) {
+            try {
+                if (!addName(name)) throw new IOException("duplicate entry: " + name);
+                if (data.length == 0) {
+                    // Directories and empty files are stored, deflating them would only add bytes.
+                    var entry = new Entry(name, METHOD_STORED, 0, 0, CompletableFuture.completedFuture(data));
+                    pendingEntries.add(entry);
+                } else {
+                    var entry = new Entry(name, stored ? METHOD_STORED : METHOD_DEFLATED, 0, data.length, null);
+                    entry.compressedData = executor.submit(() -> {
+                        var crc = new CRC32();
+                        crc.update(data);
+                        entry.crc = (int) crc.getValue();
+                        return stored ? data : deflate(data);
+                    });
+                    pendingEntries.add(entry);
+                }
+                writeEntries(pendingEntries.size() > maxPendingEntries);
+            } catch (Throwable t) {
+                throw new RuntimeException("Couldn't add file " + name + " to jar file " + jarFile, t);
+            }
+        }
+    }
+
+    /**
+     * Copies an entry of another .jar file to this .jar file as is, without inflating and deflating its data. The data is transferred
+     * from the source file to this file with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+     * The source channel must stay open until this writer is closed. If this writer stores entries, copied deflated entries stay
+     * deflated and are not aligned.
+     *
+     * @param name   the name of the entry in this file
+     * @param source the channel of the other .jar file
+     * @param entry  the entry of the other .jar file, see {@link ZipCentralDirectory.Entry#isCopyable()}
+     */
+    public void copyFile(String name, FileChannel source, ZipCentralDirectory.Entry entry) {
+        if (name == null) throw new IllegalArgumentException("Name must not be null.");
+        if (source == null) throw new IllegalArgumentException("Source must not be null.");
+        if (entry == null) throw new IllegalArgumentException("Entry must not be null.");
+        if (!entry.isCopyable()) throw new IllegalArgumentException("Entry " + entry.name + " can not be copied.");
         try {
-            out.putNextEntry(entry);
-            out.write(data);
-            out.closeEntry();
+            long sourceOffset = ZipCentralDirectory.getDataOffset(source, entry);
+            synchronized (this) {
+                if (!addName(name)) throw new IOException("duplicate entry: " + name);
+                pendingEntries.add(new Entry(name, entry.method, entry.crc, (int) entry.uncompressedSize, CompletableFuture.completedFuture(null),
+                        source, sourceOffset, (int) entry.compressedSize));
+                writeEntries(pendingEntries.size() > maxPendingEntries);
+            }
         } catch (Throwable t) {
-            throw new RuntimeException("Couldn't add file " + name + " to jar file " + jarFile, t);
+            throw new RuntimeException("Couldn't copy file " + name + " to jar file " + jarFile, t);
+        }
+    }
+
+    /**
+     * Sets the modification time of all entries, which defaults to the time the writer was created. Use a fixed time, e.g.
+     * 1980-01-01, to write byte-identical .jar files for identical entries. Must be called before any entries are added.
+     *
+     * @param time the modification time, clamped to 1980-01-01, the earliest time representable in a .jar file
+     */
+    public synchronized void setModificationTime(LocalDateTime time) {
+        if (time == null) throw new IllegalArgumentException("Time must not be null.");
+        if (!names.isEmpty() || (mappedNames != null && mappedNames.size() > 0))
+            throw new IllegalStateException("Modification time must be set before entries are added.");
+        dosTime = toDosTime(time);
+    }
+
+    private boolean addName(String name) throws IOException {
+        return mappedNames != null ? mappedNames.add(name, 0) : names.add(name);
+    }
+
+    /** @return whether entries are stored uncompressed and page-aligned **/
+    public boolean isStored() {
+        return stored;
+    }
+
+    private byte[] deflate(byte[] data) {
+        var deflater = this.deflater.get();
+        deflater.reset();
+        deflater.setInput(data);
+        deflater.finish();
+        var buffer = new byte[Math.max(64, data.length + data.length / 1000 + 64)];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            length += deflater.deflate(buffer, length, buffer.length - length);
         }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /** Writes pending entries in order, as long as they are compressed. If block is true, waits for at least the first entry. **/
+    private void writeEntries(boolean block) throws IOException, InterruptedException, ExecutionException {
+        while (!pendingEntries.isEmpty()) {
+            var entry = pendingEntries.peek();
+            if (!block && !entry.compressedData.isDone()) break;
+            block = false;
+            writeEntry(entry, entry.compressedData.get());
+            pendingEntries.poll();
+        }
+    }
+
+    private void writeEntry(Entry entry, byte[] compressedData) throws IOException {
+        if (entry.source == null) entry.compressedSize = compressedData.length;
+        entry.localHeaderOffset = position;
+        int padding = 0;
+        if (stored && entry.method == METHOD_STORED && entry.compressedSize != 0) {
+            // The alignment extra field consists of a 4 byte header, the alignment as a short, and zero padding.
+            padding = (int) ((PAGE_SIZE - (position + 30 + entry.nameBytes.length) % PAGE_SIZE) % PAGE_SIZE);
+            if (padding != 0 && padding < 6) padding += PAGE_SIZE;
+        }
+        var header = newBuffer(30 + entry.nameBytes.length + padding);
+        header.putInt(LOCAL_FILE_HEADER);
+        header.putShort((short) 20); // version needed to extract
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) entry.method);
+        header.putInt(dosTime);
+        header.putInt(entry.crc);
+        header.putInt(entry.compressedSize);
+        header.putInt(entry.uncompressedSize);
+        header.putShort((short) entry.nameBytes.length);
+        header.putShort((short) padding); // extra field length
+        header.put(entry.nameBytes);
+        if (padding != 0) {
+            header.putShort((short) ALIGNMENT_EXTRA_FIELD);
+            header.putShort((short) (padding - 4));
+            header.putShort((short) PAGE_SIZE);
+        }
+        header.position(header.capacity());
+        write(header.flip());
+        if (entry.source != null) {
+            long size = entry.compressedSize & 0xffffffffL;
+            for (long transferred = 0; transferred < size; ) {
+                long count = entry.source.transferTo(entry.sourceOffset + transferred, size - transferred, out);
+                if (count <= 0) throw new IOException("Unexpected end of source file for entry " + entry.name);
+                transferred += count;
+            }
+            position += size;
+        } else {
+            write(ByteBuffer.wrap(compressedData));
+        }
+        numEntries++;
+        if (centralDirectory != null) {
+            // Records are buffered, so the spill file is written in large chunks.
+            var record = createCentralDirectoryHeader(entry).flip();
+            if (record.remaining() > centralDirectoryBuffer.remaining()) flushCentralDirectoryBuffer();
+            centralDirectoryBuffer.put(record);
+        } else {
+            writtenEntries.add(entry);
+        }
+    }
+
+    private void flushCentralDirectoryBuffer() throws IOException {
+        centralDirectoryBuffer.flip();
+        while (centralDirectoryBuffer.hasRemaining())
+            centralDirectory.write(centralDirectoryBuffer);
+        centralDirectoryBuffer.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            position += out.write(buffer);
+    }
+
+    private static ByteBuffer newBuffer(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private ByteBuffer createCentralDirectoryHeader(Entry entry) {
+        boolean zip64 = entry.localHeaderOffset >= 0xffffffffL;
+        var header = newBuffer(46 + entry.nameBytes.length + (zip64 ? 12 : 0));
+        header.putInt(CENTRAL_DIRECTORY_HEADER);
+        header.putShort((short) (zip64 ? 45 : 20)); // version made by
+        header.putShort((short) (zip64 ? 45 : 20)); // version needed to extract
+        header.putShort((short) FLAG_UTF8);
+        header.putShort((short) entry.method);
+        header.putInt(dosTime);
+        header.putInt(entry.crc);
+        header.putInt(entry.compressedSize);
+        header.putInt(entry.uncompressedSize);
+        header.putShort((short) entry.nameBytes.length);
+        header.putShort((short) (zip64 ? 12 : 0)); // extra field length
+        header.putShort((short) 0); // comment length
+        header.putShort((short) 0); // disk number
+        header.putShort((short) 0); // internal attributes
+        header.putInt(0); // external attributes
+        header.putInt(zip64 ? ZIP64_MAGIC : (int) entry.localHeaderOffset);
+        header.put(entry.nameBytes);
+        if (zip64) {
+            header.putShort((short) 1); // zip64 extended information extra field
+            header.putShort((short) 8);
+            header.putLong(entry.localHeaderOffset);
+        }
+        return header;
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        long centralDirectoryOffset = position;
+        if (centralDirectory != null) {
+            flushCentralDirectoryBuffer();
+            long size = centralDirectory.size();
+            for (long transferred = 0; transferred < size; ) {
+                long count = centralDirectory.transferTo(transferred, size - transferred, out);
+                if (count <= 0) throw new IOException("Unexpected end of central directory spill file " + centralDirectoryFile);
+                transferred += count;
+            }
+            position += size;
+        } else {
+            for (var entry : writtenEntries)
+                write(createCentralDirectoryHeader(entry).flip());
+        }
+        long centralDirectorySize = position - centralDirectoryOffset;
+
+        boolean zip64 = numEntries >= 0xffff || centralDirectoryOffset >= 0xffffffffL || centralDirectorySize >= 0xffffffffL;
+        if (zip64) {
+            long zip64EndOffset = position;
+            var end = newBuffer(56 + 20);
+            end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY);
+            end.putLong(44); // size of the remaining record
+            end.putShort((short) 45); // version made by
+            end.putShort((short) 45); // version needed to extract
+            end.putInt(0); // number of this disk
+            end.putInt(0); // disk with the central directory
+            end.putLong(numEntries);
+            end.putLong(numEntries);
+            end.putLong(centralDirectorySize);
+            end.putLong(centralDirectoryOffset);
+            end.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR);
+            end.putInt(0); // disk with the zip64 end of central directory
+            end.putLong(zip64EndOffset);
+            end.putInt(1); // total number of disks
+            write(end.flip());
+        }
+
+        var end = newBuffer(22);
+        end.putInt(END_OF_CENTRAL_DIRECTORY);
+        end.putShort((short) 0); // number of this disk
+        end.putShort((short) 0); // disk with the central directory
+        end.putShort((short) (zip64 ? 0xffff : numEntries));
+        end.putShort((short) (zip64 ? 0xffff : numEntries));
+        end.putInt(zip64 ? ZIP64_MAGIC : (int) centralDirectorySize);
+        end.putInt(zip64 ? ZIP64_MAGIC : (int) centralDirectoryOffset);
+        end.putShort((short) 0); // comment length
+        write(end.flip());
+    }
+
+    private static int toDosTime(LocalDateTime time) {
+        if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+        return (time.getYear() - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16 |
+                time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
     }
 
     @Override
-    public void close() throws IOException {
-        out.close();
+    public synchronized void close() throws IOException {
+        try {
+            while (!pendingEntries.isEmpty())
+                writeEntries(true);
+            writeCentralDirectory();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IOException("Couldn't write jar file " + jarFile, e);
+        } finally {
+            executor.shutdownNow();
+            synchronized (deflaters) {
+                for (var deflater : deflaters)
+                    deflater.end();
+            }
+            out.close();
+            if (centralDirectory != null) {
+                centralDirectory.close();
+                centralDirectoryFile.delete();
+                mappedNames.close();
+            }
+        }
     }
 }
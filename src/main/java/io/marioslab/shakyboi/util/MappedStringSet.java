@@ -0,0 +1,246 @@
+package io.marioslab.shakyboi.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of strings stored in memory-mapped files instead of the Java heap, with a small integer of flags per string. Used to track
+ * visited classes when traversing inputs too large for the heap. The operating system pages the files in and out as needed.
+ * <p>
+ * The set is an open addressing hash table with linear probing. Each slot stores a 64-bit fingerprint of the string, the offset of
+ * the string's UTF-8 bytes in a separate, append-only name file, and the flags. Strings are compared by fingerprint first, and by
+ * their bytes only if the fingerprints match, so lookups are exact. The table is doubled when it is more than half full.
+ * <p>
+ * Iterating the set reads the name file sequentially, returning the strings in the order they were added.
+ */
+public class MappedStringSet implements Closeable, Iterable<String> {
+    private static final int SLOT_SIZE = 20; // long fingerprint, long name offset, int flags
+    private static final int NAME_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final File directory;
+    private File tableFile;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int size;
+    private final File namesFile;
+    private final FileChannel namesChannel;
+    private final List<MappedByteBuffer> nameSegments = new ArrayList<>();
+    private final List<Integer> nameSegmentEnds = new ArrayList<>();
+    private int nameSegmentPosition;
+
+    /**
+     * Creates a new, empty set, storing its files in the given directory. The files are deleted on {@link #close()}.
+     *
+     * @param directory       the directory to store the files in
+     * @param initialCapacity the initial number of slots of the hash table, rounded up to a power of two
+     * @throws IOException in case the files could not be created
+     */
+    public MappedStringSet(File directory, int initialCapacity) throws IOException {
+        this.directory = directory;
+        capacity = Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1);
+        tableFile = File.createTempFile("shakyboi-set", ".table", directory);
+        table = map(tableFile, (long) capacity * SLOT_SIZE);
+        namesFile = File.createTempFile("shakyboi-set", ".names", directory);
+        namesChannel = FileChannel.open(namesFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        nameSegmentPosition = NAME_SEGMENT_SIZE;
+    }
+
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) throw new IOException("Mapped string set too large.");
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping a region beyond the end of the file grows the file. The new bytes are zero.
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /** @return the number of strings in the set **/
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param string the string
+     * @return the flags of the string, or -1 if the string is not in the set
+     */
+    public int getFlags(String string) {
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(bytes, fingerprint(bytes));
+        return table.getLong(slot * SLOT_SIZE) != 0 ? table.getInt(slot * SLOT_SIZE + 16) : -1;
+    }
+
+    /**
+     * @param string the string
+     * @return whether the string is in the set
+     */
+    public boolean contains(String string) {
+        return getFlags(string) != -1;
+    }
+
+    /**
+     * Adds the string with the given flags, if it is not in the set yet.
+     *
+     * @param string the string
+     * @param flags  the flags, must not be negative
+     * @return whether the string was added
+     * @throws IOException in case the files could not be grown
+     */
+    public boolean add(String string, int flags) throws IOException {
+        if (flags < 0) throw new IllegalArgumentException("Flags must not be negative.");
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        long fingerprint = fingerprint(bytes);
+        int slot = findSlot(bytes, fingerprint);
+        if (table.getLong(slot * SLOT_SIZE) != 0) return false;
+        table.putLong(slot * SLOT_SIZE, fingerprint);
+        table.putLong(slot * SLOT_SIZE + 8, addName(bytes));
+        table.putInt(slot * SLOT_SIZE + 16, flags);
+        size++;
+        if (size > capacity / 2) grow();
+        return true;
+    }
+
+    /**
+     * Sets the flags of a string in the set.
+     *
+     * @param string the string
+     * @param flags  the flags, must not be negative
+     * @throws IllegalArgumentException in case the string is not in the set
+     */
+    public void setFlags(String string, int flags) {
+        if (flags < 0) throw new IllegalArgumentException("Flags must not be negative.");
+        var bytes = string.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(bytes, fingerprint(bytes));
+        if (table.getLong(slot * SLOT_SIZE) == 0) throw new IllegalArgumentException("String not in set: " + string);
+        table.putInt(slot * SLOT_SIZE + 16, flags);
+    }
+
+    /** Returns the slot containing the string, or the empty slot the string would be stored in. **/
+    private int findSlot(byte[] bytes, long fingerprint) {
+        int mask = capacity - 1;
+        int slot = (int) mix(fingerprint) & mask;
+        while (true) {
+            long slotFingerprint = table.getLong(slot * SLOT_SIZE);
+            if (slotFingerprint == 0) return slot;
+            if (slotFingerprint == fingerprint && nameEquals(table.getLong(slot * SLOT_SIZE + 8), bytes)) return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() throws IOException {
+        int newCapacity = capacity << 1;
+        var newTableFile = File.createTempFile("shakyboi-set", ".table", directory);
+        var newTable = map(newTableFile, (long) newCapacity * SLOT_SIZE);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            long fingerprint = table.getLong(i * SLOT_SIZE);
+            if (fingerprint == 0) continue;
+            int slot = (int) mix(fingerprint) & mask;
+            while (newTable.getLong(slot * SLOT_SIZE) != 0)
+                slot = (slot + 1) & mask;
+            newTable.putLong(slot * SLOT_SIZE, fingerprint);
+            newTable.putLong(slot * SLOT_SIZE + 8, table.getLong(i * SLOT_SIZE + 8));
+            newTable.putInt(slot * SLOT_SIZE + 16, table.getInt(i * SLOT_SIZE + 16));
+        }
+        // The old mapping is released once it is garbage collected.
+        tableFile.delete();
+        tableFile = newTableFile;
+        table = newTable;
+        capacity = newCapacity;
+    }
+
+    /** Appends the length and bytes of a name to the name file and returns its offset. Names never span two segments. **/
+    private long addName(byte[] bytes) throws IOException {
+        int length = 4 + bytes.length;
+        if (length > NAME_SEGMENT_SIZE) throw new IOException("String too long.");
+        if (nameSegmentPosition + length > NAME_SEGMENT_SIZE) {
+            if (!nameSegments.isEmpty()) nameSegmentEnds.add(nameSegmentPosition);
+            nameSegments.add(namesChannel.map(FileChannel.MapMode.READ_WRITE, (long) nameSegments.size() * NAME_SEGMENT_SIZE, NAME_SEGMENT_SIZE));
+            nameSegmentPosition = 0;
+        }
+        var segment = nameSegments.get(nameSegments.size() - 1);
+        long offset = (long) (nameSegments.size() - 1) * NAME_SEGMENT_SIZE + nameSegmentPosition;
+        segment.putInt(nameSegmentPosition, bytes.length);
+        segment.put(nameSegmentPosition + 4, bytes);
+        nameSegmentPosition += length;
+        return offset;
+    }
+
+    /**
+     * Returns an iterator over the strings of the set, in the order they were added. The set must not be modified while iterating.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            int segmentIndex;
+            int position;
+
+            @Override
+            public boolean hasNext() {
+                while (segmentIndex < nameSegments.size()) {
+                    int end = segmentIndex < nameSegmentEnds.size() ? nameSegmentEnds.get(segmentIndex) : nameSegmentPosition;
+                    if (position < end) return true;
+                    segmentIndex++;
+                    position = 0;
+                }
+                return false;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                var segment = nameSegments.get(segmentIndex);
+                var bytes = new byte[segment.getInt(position)];
+                segment.get(position + 4, bytes);
+                position += 4 + bytes.length;
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private boolean nameEquals(long offset, byte[] bytes) {
+        var segment = nameSegments.get((int) (offset / NAME_SEGMENT_SIZE));
+        int position = (int) (offset % NAME_SEGMENT_SIZE);
+        if (segment.getInt(position) != bytes.length) return false;
+        for (int i = 0; i < bytes.length; i++)
+            if (segment.get(position + 4 + i) != bytes[i]) return false;
+        return true;
+    }
+
+    /** 64-bit FNV-1a hash. 0 marks empty slots and is never returned. **/
+    private static long fingerprint(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    /** Finalizer of MurmurHash3, spreads the fingerprint bits over the slot index bits. **/
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Deletes the files of this set. The set must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        namesChannel.close();
+        tableFile.delete();
+        namesFile.delete();
+    }
+}
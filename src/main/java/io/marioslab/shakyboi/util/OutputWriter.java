@@ -0,0 +1,18 @@
+package io.marioslab.shakyboi.util;
+
+import java.io.Closeable;
+
+/**
+ * Writes the files of a shaken app, either to a .jar file, see {@link JarFileWriter}, or to a directory tree, see
+ * {@link DirectoryWriter}. Implementations may write files asynchronously. All files are written once {@link #close()} returns.
+ */
+public interface OutputWriter extends Closeable {
+    /**
+     * Adds a file to the output.
+     *
+     * @param name the name of the file, e.g. "java/lang/Object.class", or "images/bunny.png". Names ending in '/' denote directories.
+     * @param data the content of the file
+     * @throws RuntimeException in case the file could not be added, e.g. because a file with the same name was already added.
+     */
+    void addFile(String name, byte[] data);
+}
@@ -0,0 +1,129 @@
+package io.marioslab.shakyboi.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * A first-in, first-out queue of byte array records that keeps at most a fixed number of records on the heap. When the in-memory
+ * batch is full, it is appended to a spill file as a whole. Records are read back from the spill file through a memory-mapped
+ * window, before any records still in memory, which are always newer. The spill file is reset once it has been read completely.
+ */
+public class SpillingQueue implements Closeable {
+    private static final int WINDOW_SIZE = 16 * 1024 * 1024;
+
+    private final int batchSize;
+    private final ArrayDeque<byte[]> batch = new ArrayDeque<>();
+    private final File spillFile;
+    private final FileChannel spillChannel;
+    private long writePosition;
+    private long readPosition;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long size;
+    private long spilledRecords;
+
+    /**
+     * Creates a new, empty queue, storing its spill file in the given directory. The file is deleted on {@link #close()}.
+     *
+     * @param directory the directory to store the spill file in
+     * @param batchSize the maximum number of records kept on the heap
+     * @throws IOException in case the spill file could not be created
+     */
+    public SpillingQueue(File directory, int batchSize) throws IOException {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be at least 1.");
+        this.batchSize = batchSize;
+        spillFile = File.createTempFile("shakyboi-queue", ".spill", directory);
+        spillChannel = FileChannel.open(spillFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /** @return the number of records in the queue **/
+    public long size() {
+        return size;
+    }
+
+    /** @return the total number of records written to the spill file so far **/
+    public long getSpilledRecords() {
+        return spilledRecords;
+    }
+
+    /**
+     * Appends a record to the end of the queue.
+     *
+     * @param record the record
+     * @throws IOException in case the in-memory batch could not be spilled
+     */
+    public void add(byte[] record) throws IOException {
+        if (record.length > WINDOW_SIZE - 4) throw new IllegalArgumentException("Record too large.");
+        if (batch.size() == batchSize) spill();
+        batch.addLast(record);
+        size++;
+    }
+
+    private void spill() throws IOException {
+        int length = 0;
+        for (var record : batch)
+            length += 4 + record.length;
+        var buffer = ByteBuffer.allocate(length);
+        for (var record : batch)
+            buffer.putInt(record.length).put(record);
+        buffer.flip();
+        while (buffer.hasRemaining())
+            writePosition += spillChannel.write(buffer, writePosition);
+        spilledRecords += batch.size();
+        batch.clear();
+    }
+
+    /**
+     * Removes and returns the first record of the queue.
+     *
+     * @return the record, or null if the queue is empty
+     * @throws IOException in case the spill file could not be read
+     */
+    public byte[] poll() throws IOException {
+        if (readPosition < writePosition) {
+            int length = readInt(readPosition);
+            var record = new byte[length];
+            ensureWindow(readPosition + 4, length);
+            window.get((int) (readPosition + 4 - windowStart), record);
+            readPosition += 4 + length;
+            if (readPosition == writePosition) {
+                // Everything spilled has been read, start over at the beginning of the file.
+                readPosition = writePosition = 0;
+                window = null;
+                spillChannel.truncate(0);
+            }
+            size--;
+            return record;
+        }
+        var record = batch.pollFirst();
+        if (record != null) size--;
+        return record;
+    }
+
+    private int readInt(long position) throws IOException {
+        ensureWindow(position, 4);
+        return window.getInt((int) (position - windowStart));
+    }
+
+    /** Maps a new window starting at the given position, unless the current window already contains the given range. **/
+    private void ensureWindow(long position, int length) throws IOException {
+        if (window != null && position >= windowStart && position + length <= windowStart + window.limit()) return;
+        windowStart = position;
+        window = spillChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, writePosition - position));
+    }
+
+    /**
+     * Deletes the spill file. The queue must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        spillChannel.close();
+        spillFile.delete();
+    }
+}
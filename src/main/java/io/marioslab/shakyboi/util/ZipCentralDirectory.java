@@ -0,0 +1,211 @@
+package io.marioslab.shakyboi.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+
+/**
+ * An index of the local file header offsets in the central directory of a .zip or .jar file. Used by
+ * {@link JarFileWriter#copyFile(String, FileChannel, Entry)} to copy the compressed data of an entry from one .jar file to another,
+ * without inflating and deflating it. Zip64 files are supported.
+ * <p>
+ * The compression method, CRC, and sizes of an entry are taken from its {@link ZipEntry}, see {@link #getEntry(FileChannel, ZipEntry)}.
+ * Only the hash of each name and the offset of each local file header are kept, in an open addressing hash table. A name is
+ * verified against the local file header when it's looked up, so no entry names are kept on the heap.
+ */
+public class ZipCentralDirectory {
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int FLAG_ENCRYPTED = 0x1;
+
+    private final int[] hashes;
+    private final long[] offsets;
+    private final int mask;
+    private int size;
+
+    private ZipCentralDirectory(long numEntries) throws IOException {
+        if (numEntries > Integer.MAX_VALUE / 4) throw new IOException("Too many entries in central directory.");
+        int capacity = Integer.highestOneBit((int) Math.max(8, numEntries * 2 - 1)) * 2;
+        hashes = new int[capacity];
+        offsets = new long[capacity];
+        Arrays.fill(offsets, -1);
+        mask = capacity - 1;
+    }
+
+    /**
+     * An entry of the central directory.
+     */
+    public static class Entry {
+        /** The name of the entry **/
+        public final String name;
+        /** The compression method, 0 for stored, 8 for deflated **/
+        public final int method;
+        /** The general purpose bit flags **/
+        public final int flags;
+        /** The CRC-32 of the uncompressed data **/
+        public final int crc;
+        /** The size of the compressed data in bytes **/
+        public final long compressedSize;
+        /** The size of the uncompressed data in bytes **/
+        public final long uncompressedSize;
+        /** The offset of the entry's local file header in the file **/
+        public final long localHeaderOffset;
+
+        public Entry(String name, int method, int flags, int crc, long compressedSize, long uncompressedSize, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.uncompressedSize = uncompressedSize;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        /** @return whether the entry's data can be copied as is by {@link JarFileWriter#copyFile(String, FileChannel, Entry)} **/
+        public boolean isCopyable() {
+            return (method == 0 || method == 8) && (flags & FLAG_ENCRYPTED) == 0 && compressedSize < 0xffffffffL && uncompressedSize < 0xffffffffL;
+        }
+    }
+
+    /**
+     * Reads the central directory of the given .zip or .jar file.
+     *
+     * @param channel the channel of the file
+     * @return the central directory
+     * @throws IOException in case the file could not be read or is not a .zip file
+     */
+    public static ZipCentralDirectory read(FileChannel channel) throws IOException {
+        // The end of central directory record is followed by a comment of at most 65535 bytes.
+        long size = channel.size();
+        int tailSize = (int) Math.min(size, 22 + 0xffff);
+        var tail = read(channel, size - tailSize, tailSize);
+        int endOffset = -1;
+        for (int i = tailSize - 22; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                endOffset = i;
+                break;
+            }
+        }
+        if (endOffset == -1) throw new IOException("Not a zip file, end of central directory not found.");
+        long numEntries = tail.getShort(endOffset + 10) & 0xffff;
+        long centralDirectorySize = tail.getInt(endOffset + 12) & 0xffffffffL;
+        long centralDirectoryOffset = tail.getInt(endOffset + 16) & 0xffffffffL;
+
+        // Zip64 files store the actual values in the zip64 end of central directory record, located by the record before the end record.
+        long locatorOffset = size - tailSize + endOffset - 20;
+        if (locatorOffset >= 0) {
+            var locator = read(channel, locatorOffset, 20);
+            if (locator.getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+                var end = read(channel, locator.getLong(8), 56);
+                if (end.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY) throw new IOException("Invalid zip64 end of central directory record.");
+                numEntries = end.getLong(32);
+                centralDirectorySize = end.getLong(40);
+                centralDirectoryOffset = end.getLong(48);
+            }
+        }
+        if (centralDirectorySize > Integer.MAX_VALUE) throw new IOException("Central directory too large.");
+
+        var directory = new ZipCentralDirectory(numEntries);
+        var buffer = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+        for (long i = 0; i < numEntries; i++) {
+            if (buffer.getInt() != CENTRAL_DIRECTORY_HEADER) throw new IOException("Invalid central directory header.");
+            buffer.position(buffer.position() + 16); // versions, flags, method, time and date, CRC
+            long compressedSize = buffer.getInt() & 0xffffffffL;
+            long uncompressedSize = buffer.getInt() & 0xffffffffL;
+            int nameLength = buffer.getShort() & 0xffff;
+            int extraLength = buffer.getShort() & 0xffff;
+            int commentLength = buffer.getShort() & 0xffff;
+            buffer.position(buffer.position() + 8); // disk number, attributes
+            long localHeaderOffset = buffer.getInt() & 0xffffffffL;
+            var nameBytes = new byte[nameLength];
+            buffer.get(nameBytes);
+            // Zip64 extended information replaces the values set to 0xffffffff, in this order.
+            int extraEnd = buffer.position() + extraLength;
+            while (buffer.position() + 4 <= extraEnd) {
+                int id = buffer.getShort() & 0xffff;
+                int length = buffer.getShort() & 0xffff;
+                int dataEnd = buffer.position() + length;
+                if (id == 1) {
+                    if (uncompressedSize == 0xffffffffL) uncompressedSize = buffer.getLong();
+                    if (compressedSize == 0xffffffffL) compressedSize = buffer.getLong();
+                    if (localHeaderOffset == 0xffffffffL) localHeaderOffset = buffer.getLong();
+                }
+                buffer.position(dataEnd);
+            }
+            buffer.position(extraEnd + commentLength);
+            directory.add(new String(nameBytes, StandardCharsets.UTF_8).hashCode(), localHeaderOffset);
+        }
+        return directory;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        var buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) throw new IOException("Unexpected end of zip file.");
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Returns the offset of the entry's compressed data in the file, which follows the entry's local file header.
+     *
+     * @param channel the channel of the file
+     * @param entry   the entry
+     * @return the offset of the data
+     * @throws IOException in case the local file header could not be read
+     */
+    public static long getDataOffset(FileChannel channel, Entry entry) throws IOException {
+        var header = read(channel, entry.localHeaderOffset, 30);
+        if (header.getInt(0) != LOCAL_FILE_HEADER) throw new IOException("Invalid local file header for entry " + entry.name);
+        return entry.localHeaderOffset + 30 + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+    }
+
+    private void add(int hash, long localHeaderOffset) {
+        int slot = hash & mask;
+        while (offsets[slot] != -1)
+            slot = (slot + 1) & mask;
+        hashes[slot] = hash;
+        offsets[slot] = localHeaderOffset;
+        size++;
+    }
+
+    /**
+     * Returns the entry for the given {@link ZipEntry} of the file, with the compression method, CRC, and sizes of the
+     * {@link ZipEntry}, and the flags and offset of the entry's local file header. Reads the local file headers of the entries with
+     * the same name hash, to find the one with the entry's name. Of multiple entries with the same name, the first one is returned.
+     *
+     * @param channel  the channel of the file
+     * @param zipEntry the entry, e.g. from {@link java.util.zip.ZipFile#getEntry(String)}
+     * @return the entry or null
+     * @throws IOException in case a local file header could not be read
+     */
+    public Entry getEntry(FileChannel channel, ZipEntry zipEntry) throws IOException {
+        var name = zipEntry.getName();
+        var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int hash = name.hashCode();
+        for (int slot = hash & mask; offsets[slot] != -1; slot = (slot + 1) & mask) {
+            if (hashes[slot] != hash) continue;
+            var header = read(channel, offsets[slot], 30 + nameBytes.length);
+            if (header.getInt(0) != LOCAL_FILE_HEADER) throw new IOException("Invalid local file header for entry " + name);
+            if ((header.getShort(26) & 0xffff) != nameBytes.length) continue;
+            var headerNameBytes = new byte[nameBytes.length];
+            header.get(30, headerNameBytes);
+            if (!Arrays.equals(nameBytes, headerNameBytes)) continue;
+            int flags = header.getShort(6) & 0xffff;
+            return new Entry(name, zipEntry.getMethod(), flags, (int) zipEntry.getCrc(), zipEntry.getCompressedSize(), zipEntry.getSize(), offsets[slot]);
+        }
+        return null;
+    }
+
+    /** @return the number of entries **/
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,86 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.runtime.BundleClassLoader;
+import io.marioslab.shakyboi.util.ClassBundleWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassBundleTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testLoadClassesAndResources() throws Exception {
+        var file = File.createTempFile("shakyboi", ".bundle");
+        file.deleteOnExit();
+        var lookup = new ClassLoaderLookup();
+        try (var writer = new ClassBundleWriter(file)) {
+            writer.addFile("assets/", new byte[0]);
+            writer.addFile("assets/bunny.txt", "bunny".getBytes(StandardCharsets.UTF_8));
+            for (var name : List.of("App", "Bar", "Zap", "Zop"))
+                writer.addFile(PACKAGE + name + ".class", lookup.findClass(PACKAGE + name));
+            assertThrows(RuntimeException.class, () -> writer.addFile("assets/bunny.txt", new byte[0]));
+        }
+
+        var classLoader = new BundleClassLoader(file, ClassLoader.getPlatformClassLoader());
+        assertEquals(List.of("assets/bunny.txt", PACKAGE + "App.class", PACKAGE + "Bar.class", PACKAGE + "Zap.class", PACKAGE + "Zop.class"), classLoader.list());
+        var appClass = classLoader.loadClass(PACKAGE.replace('/', '.') + "App");
+        assertSame(classLoader, appClass.getClassLoader());
+        assertNotNull(appClass.getPackage());
+        appClass.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        assertThrows(ClassNotFoundException.class, () -> classLoader.loadClass(PACKAGE.replace('/', '.') + "Foo"));
+
+        try (var in = classLoader.getResourceAsStream("assets/bunny.txt")) {
+            assertEquals("bunny", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertNull(classLoader.getResource("assets/unknown.txt"));
+
+        var appData = classLoader.getData(PACKAGE + "App.class");
+        var bunnyData = classLoader.getData("assets/bunny.txt");
+        assertEquals(5, bunnyData.remaining());
+        assertArrayEquals(lookup.findClass(PACKAGE + "App"), toBytes(appData));
+    }
+
+    @Test
+    public void testPerfectHash() throws IOException {
+        var file = File.createTempFile("shakyboi", ".bundle");
+        file.deleteOnExit();
+        var names = new ArrayList<String>();
+        try (var writer = new ClassBundleWriter(file)) {
+            for (int i = 0; i < 20000; i++) {
+                var name = "com/example/package" + (i % 37) + "/File" + i + ".txt";
+                names.add(name);
+                writer.addFile(name, Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        var classLoader = new BundleClassLoader(file, null);
+        for (int i = 0; i < names.size(); i++)
+            assertEquals(Integer.toString(i), new String(toBytes(classLoader.getData(names.get(i))), StandardCharsets.UTF_8));
+        assertNull(classLoader.getData("com/example/package0/File20000.txt"));
+        assertNull(classLoader.getData(""));
+    }
+
+    @Test
+    public void testEmptyBundle() throws IOException {
+        var file = File.createTempFile("shakyboi", ".bundle");
+        file.deleteOnExit();
+        new ClassBundleWriter(file).close();
+        var classLoader = new BundleClassLoader(file, null);
+        assertTrue(classLoader.list().isEmpty());
+        assertNull(classLoader.getData("A.class"));
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
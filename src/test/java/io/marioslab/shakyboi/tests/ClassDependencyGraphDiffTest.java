@@ -0,0 +1,52 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphDiff;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphSnapshot;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassDependencyGraphDiffTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple";
+
+    @Test
+    public void testDiff() throws IOException {
+        var oldGraph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "/App");
+        var newGraph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "/App", PACKAGE + "/Foo");
+        var oldSnapshot = ClassDependencyGraphSnapshot.fromGraph(oldGraph);
+        var newSnapshot = ClassDependencyGraphSnapshot.fromGraph(newGraph);
+
+        var diff = ClassDependencyGraphDiff.diff(oldSnapshot, newSnapshot, true);
+        assertEquals(List.of(PACKAGE + "/Foo", PACKAGE + "/Zip"), diff.addedClasses);
+        assertEquals(List.of(), diff.removedClasses);
+        assertEquals(List.of(new ClassDependencyGraphDiff.Edge(PACKAGE + "/Foo", PACKAGE + "/Zip")), diff.addedEdges);
+        assertEquals(List.of(), diff.removedEdges);
+        assertEquals(1, diff.packages.size());
+        var delta = diff.packages.get(0);
+        assertEquals(PACKAGE, delta.name);
+        assertEquals(2, delta.addedClasses);
+        assertEquals(newGraph.reachableClasses.get(PACKAGE + "/Foo").classFile.originalData.length +
+                newGraph.reachableClasses.get(PACKAGE + "/Zip").classFile.originalData.length, delta.getDeltaBytes());
+
+        // The reverse diff removes what the diff added.
+        var reverseDiff = ClassDependencyGraphDiff.diff(newSnapshot, oldSnapshot, true);
+        assertEquals(diff.addedClasses, reverseDiff.removedClasses);
+        assertEquals(diff.addedEdges, reverseDiff.removedEdges);
+        assertEquals(-delta.getDeltaBytes(), reverseDiff.packages.get(0).getDeltaBytes());
+
+        // Including bootstrap classes also reports the dependencies of the added app classes on bootstrap classes.
+        var fullDiff = ClassDependencyGraphDiff.diff(oldSnapshot, newSnapshot, false);
+        assertTrue(fullDiff.addedEdges.contains(new ClassDependencyGraphDiff.Edge(PACKAGE + "/Foo", "java/lang/Object")));
+        assertTrue(fullDiff.addedEdges.containsAll(diff.addedEdges));
+
+        var emptyDiff = ClassDependencyGraphDiff.diff(newSnapshot, newSnapshot, false);
+        assertTrue(emptyDiff.addedClasses.isEmpty() && emptyDiff.removedClasses.isEmpty() && emptyDiff.addedEdges.isEmpty() && emptyDiff.removedEdges.isEmpty() && emptyDiff.packages.isEmpty());
+    }
+}
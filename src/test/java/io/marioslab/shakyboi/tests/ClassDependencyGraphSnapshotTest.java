@@ -0,0 +1,55 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphSnapshot;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassDependencyGraphSnapshotTest {
+    @Test
+    public void testSnapshot() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), "io/marioslab/shakyboi/tests/apps/cycles/App");
+        var file = File.createTempFile("shakyboi", ".graph");
+        file.deleteOnExit();
+        ClassDependencyGraphSnapshot.fromGraph(graph).write(file);
+        var snapshot = ClassDependencyGraphSnapshot.read(file);
+
+        assertEquals(graph.reachableClasses.size(), snapshot.getNumNodes());
+        int numEdges = 0;
+        for (int node = 0; node < snapshot.getNumNodes(); node++) {
+            var name = snapshot.getName(node);
+            var classNode = graph.reachableClasses.get(name);
+            assertNotNull(classNode);
+            assertEquals(node, snapshot.findNode(name));
+            if (node > 0) assertTrue(snapshot.compareNames(node - 1, snapshot, node) < 0);
+            assertEquals(classNode.isRootClass, snapshot.isRootClass(node));
+            assertEquals(classNode.isAppClass, snapshot.isAppClass(node));
+            assertEquals(classNode.classFile.originalData.length, snapshot.getSize(node));
+            assertEquals(classNode.depth, snapshot.getDepth(node));
+            if (classNode.reachedFrom == null) assertEquals(-1, snapshot.getReachedFrom(node));
+            else assertEquals(classNode.reachedFrom.classFile.getName(), snapshot.getName(snapshot.getReachedFrom(node)));
+
+            var dependencies = new HashSet<String>();
+            for (int i = 0; i < snapshot.getNumDependencies(node); i++) {
+                dependencies.add(snapshot.getName(snapshot.getDependency(node, i)));
+                if (i > 0) assertTrue(snapshot.getDependency(node, i - 1) < snapshot.getDependency(node, i));
+            }
+            var expected = new HashSet<String>();
+            classNode.dependsOn.forEach(c -> expected.add(c.classFile.getName()));
+            assertEquals(expected, dependencies);
+            numEdges += dependencies.size();
+        }
+        assertEquals(numEdges, snapshot.getNumEdges());
+        assertEquals(-1, snapshot.findNode("does/not/Exist"));
+        assertThrows(IOException.class, () -> new ClassDependencyGraphSnapshot(ByteBuffer.allocate(64)));
+    }
+}
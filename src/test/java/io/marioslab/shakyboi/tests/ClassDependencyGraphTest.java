@@ -11,8 +11,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class ClassDependencyGraphTest {
     @Test
@@ -52,4 +54,37 @@ public class ClassDependencyGraphTest {
 
         System.out.println(ClassDependencyGraphGenerator.generateDotFile(graph, false));
     }
+
+    @Test
+    public void testShortestPath() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), "io/marioslab/shakyboi/tests/apps/simple/App");
+        var path = graph.getShortestPath("io/marioslab/shakyboi/tests/apps/simple/Zap");
+        assertEquals(Arrays.asList("io/marioslab/shakyboi/tests/apps/simple/App",
+                "io/marioslab/shakyboi/tests/apps/simple/Bar",
+                "io/marioslab/shakyboi/tests/apps/simple/Zap"),
+                path.stream().map(c -> c.classFile.getName()).collect(Collectors.toList()));
+        assertEquals(2, path.get(2).depth);
+        assertEquals(1, graph.getShortestPath("io/marioslab/shakyboi/tests/apps/simple/App").size());
+        assertNull(graph.getShortestPath("io/marioslab/shakyboi/tests/apps/simple/Foo"));
+
+        var predecessors = graph.getPredecessors();
+        assertEquals(graph.reachableClasses.size(), predecessors.size());
+        assertNull(predecessors.get("io/marioslab/shakyboi/tests/apps/simple/App"));
+        assertEquals("io/marioslab/shakyboi/tests/apps/simple/App", predecessors.get("io/marioslab/shakyboi/tests/apps/simple/Bar"));
+    }
+
+    @Test
+    public void testLowMemory() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), "io/marioslab/shakyboi/tests/apps/simple/App");
+        var lowMemoryGraph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), true, "io/marioslab/shakyboi/tests/apps/simple/App");
+        assertEquals(graph.reachableClasses.keySet(), lowMemoryGraph.reachableClasses.keySet());
+        for (var classNode : lowMemoryGraph.reachableClasses.values()) {
+            var expected = graph.reachableClasses.get(classNode.name);
+            assertNull(classNode.classFile);
+            assertEquals(expected.size, classNode.size);
+            assertEquals(expected.depth, classNode.depth);
+            assertEquals(expected.dependsOn.stream().map(c -> c.name).collect(Collectors.toSet()), classNode.dependsOn.stream().map(c -> c.name).collect(Collectors.toSet()));
+        }
+        assertEquals(ClassDependencyGraphGenerator.generateJSON(graph, false), ClassDependencyGraphGenerator.generateJSON(lowMemoryGraph, false));
+    }
 }
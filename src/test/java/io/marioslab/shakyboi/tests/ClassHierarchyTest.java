@@ -0,0 +1,61 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.graph.ClassHierarchy;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassHierarchyTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/rta/";
+
+    @Test
+    public void testHierarchy() throws IOException {
+        var lookup = new ClassLoaderLookup();
+        var classFiles = new ArrayList<ClassFile>();
+        for (var name : List.of("App", "Shape", "Circle", "Square", "Helper", "Unused"))
+            classFiles.add(ClassFileReader.readClassFile(name, lookup.findClass(PACKAGE + name)));
+        var hierarchy = new ClassHierarchy(classFiles, new JrtImageLookup());
+
+        assertTrue(hierarchy.contains("java/lang/Object"));
+        assertTrue(hierarchy.isSubtypeOf(PACKAGE + "Circle", PACKAGE + "Shape"));
+        assertTrue(hierarchy.isSubtypeOf(PACKAGE + "Circle", PACKAGE + "Circle"));
+        assertTrue(hierarchy.isSubtypeOf(PACKAGE + "Circle", "java/lang/Object"));
+        assertTrue(hierarchy.isSubtypeOf(PACKAGE + "Shape", "java/lang/Object"));
+        assertFalse(hierarchy.isSubtypeOf(PACKAGE + "Helper", PACKAGE + "Shape"));
+        assertFalse(hierarchy.isSubtypeOf(PACKAGE + "Shape", PACKAGE + "Circle"));
+        assertFalse(hierarchy.isSubtypeOf(PACKAGE + "Circle", "does/not/Exist"));
+
+        assertEquals("java/lang/Object", hierarchy.getSuperClass(PACKAGE + "Circle"));
+        assertEquals(List.of(PACKAGE + "Shape"), hierarchy.getInterfaces(PACKAGE + "Square"));
+        assertEquals(Set.of(PACKAGE + "Circle", PACKAGE + "Square"), new HashSet<>(hierarchy.getImplementations(PACKAGE + "Shape")));
+        assertTrue(hierarchy.getSubtypes("java/lang/Object").containsAll(List.of(PACKAGE + "App", PACKAGE + "Shape", PACKAGE + "Circle")));
+        assertTrue(hierarchy.getSubtypes(PACKAGE + "Circle").isEmpty());
+    }
+
+    @Test
+    public void testBootstrapHierarchy() throws IOException {
+        var lookup = new JrtImageLookup();
+        var classFiles = new ArrayList<ClassFile>();
+        for (var name : List.of("java/util/ArrayList", "java/util/LinkedList", "java/util/HashSet"))
+            classFiles.add(ClassFileReader.readClassFile(name, lookup.findClass(name)));
+        var hierarchy = new ClassHierarchy(classFiles, lookup);
+
+        assertTrue(hierarchy.isSubtypeOf("java/util/ArrayList", "java/util/Collection"));
+        assertTrue(hierarchy.isSubtypeOf("java/util/ArrayList", "java/util/AbstractCollection"));
+        assertTrue(hierarchy.isSubtypeOf("java/util/LinkedList", "java/util/Deque"));
+        assertFalse(hierarchy.isSubtypeOf("java/util/ArrayList", "java/util/Deque"));
+        assertFalse(hierarchy.isSubtypeOf("java/util/HashSet", "java/util/List"));
+        assertEquals(Set.of("java/util/ArrayList", "java/util/LinkedList"), new HashSet<>(hierarchy.getImplementations("java/util/List")));
+        assertEquals(Set.of("java/util/ArrayList", "java/util/LinkedList", "java/util/HashSet"), new HashSet<>(hierarchy.getImplementations("java/util/Collection")));
+    }
+}
@@ -0,0 +1,65 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraph;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ClassLoadOrder;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClassLoadOrderTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testDepthOrder() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        var sorted = ClassLoadOrder.sort(graph.reachableClasses.values(), null);
+        assertEquals(graph.reachableClasses.size(), sorted.size());
+        assertEquals(PACKAGE + "App", sorted.get(0).name);
+        for (int i = 1; i < sorted.size(); i++)
+            assertTrue(sorted.get(i - 1).depth <= sorted.get(i).depth);
+    }
+
+    @Test
+    public void testClassLoadLog() throws IOException {
+        var log = File.createTempFile("shakyboi", ".log");
+        log.deleteOnExit();
+        Files.writeString(log.toPath(), "[0.091s][info][class,load] io.marioslab.shakyboi.tests.apps.simple.App source: file:/app/\n" +
+                "[0.092s][info][class,load] io.marioslab.shakyboi.tests.apps.simple.Zop source: file:/app/\n" +
+                "[0.092s][info][gc] Using G1\n" +
+                "[Loaded io.marioslab.shakyboi.tests.apps.simple.Zap from file:/app/]\n" +
+                "[0.093s][info][class,load] io.marioslab.shakyboi.tests.apps.simple.NotReachable source: file:/app/\n");
+        var loadedClassNames = ClassLoadOrder.readClassLoadLog(log);
+        assertEquals(List.of(PACKAGE + "App", PACKAGE + "Zop", PACKAGE + "Zap", PACKAGE + "NotReachable"), loadedClassNames);
+
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        var appClasses = graph.reachableClasses.values().stream().filter(cl -> cl.isAppClass).collect(Collectors.toList());
+        var sorted = ClassLoadOrder.sort(appClasses, loadedClassNames).stream().map(cl -> cl.name).collect(Collectors.toList());
+        // Logged classes first, in load order, then the classes missing from the log.
+        assertEquals(List.of(PACKAGE + "App", PACKAGE + "Zop", PACKAGE + "Zap", PACKAGE + "Bar"), sorted);
+    }
+
+    @Test
+    public void testSupertypesFirst() {
+        // C extends B implements I, B extends A. D is unrelated.
+        var nodes = new HashMap<String, ClassDependencyGraph.ClassNode>();
+        for (var name : List.of("D", "C", "A", "I", "B"))
+            nodes.put(name, new ClassDependencyGraph.ClassNode(name, 0, true));
+        var supertypes = Map.of("C", List.of("B", "I"), "B", List.of("A", "java/lang/Object"), "A", List.<String>of(), "I", List.<String>of(), "D", List.<String>of());
+        var input = List.of(nodes.get("D"), nodes.get("C"), nodes.get("A"), nodes.get("I"), nodes.get("B"));
+        var sorted = ClassLoadOrder.sortSupertypesFirst(input, clazz -> supertypes.get(clazz.name)).stream().map(cl -> cl.name).collect(Collectors.toList());
+        assertEquals(List.of("D", "A", "B", "I", "C"), sorted);
+    }
+}
@@ -0,0 +1,63 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ClassSummaryCache;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.DirectoryLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import io.marioslab.shakyboi.util.JarFileWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClassSummaryCacheTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testCache() throws IOException {
+        var classLoaderLookup = new ClassLoaderLookup();
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        try (var writer = new JarFileWriter(jar)) {
+            for (var name : List.of("App", "Bar", "Foo", "Zap", "Zip", "Zop"))
+                writer.addFile(PACKAGE + name + ".class", classLoaderLookup.findClass(PACKAGE + name));
+        }
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        var appLookup = new CombinedLookup(new JarLookup(jar));
+
+        var cache = new ClassSummaryCache(directory);
+        var summaries = cache.getSummaries(appLookup);
+        assertEquals(0, cache.hits);
+        assertEquals(1, cache.misses);
+        assertEquals(6, summaries.size());
+        var barSummary = summaries.get(PACKAGE + "Bar");
+        assertEquals("java/lang/Object", barSummary.superClassName);
+        assertTrue(barSummary.referencedClassNames.containsAll(List.of(PACKAGE + "Zap", PACKAGE + "Zop", "java/lang/System")));
+
+        // A second cache instance reads the summaries written by the first one.
+        var otherCache = new ClassSummaryCache(directory);
+        var cachedSummaries = otherCache.getSummaries(appLookup);
+        assertEquals(1, otherCache.hits);
+        assertEquals(0, otherCache.misses);
+        assertEquals(barSummary.referencedClassNames, cachedSummaries.get(PACKAGE + "Bar").referencedClassNames);
+        assertEquals(barSummary.size, cachedSummaries.get(PACKAGE + "Bar").size);
+
+        var graph = ClassDependencyGraphGenerator.generate(appLookup, new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        var cachedGraph = ClassDependencyGraphGenerator.generate(appLookup, new JrtImageLookup(), new ArrayList<>(), false, cachedSummaries, PACKAGE + "App");
+        assertEquals(ClassDependencyGraphGenerator.generateJSON(graph, false), ClassDependencyGraphGenerator.generateJSON(cachedGraph, false));
+        assertNull(cachedGraph.reachableClasses.get(PACKAGE + "Bar").classFile);
+
+        // Classes from other lookups are parsed by the generator. The first lookup containing a class wins.
+        var mixedSummaries = otherCache.getSummaries(new CombinedLookup(new DirectoryLookup(new File("target/test-classes")), new JarLookup(jar)));
+        assertTrue(mixedSummaries.containsKey(PACKAGE + "Bar"));
+        assertNull(mixedSummaries.get(PACKAGE + "Bar"));
+    }
+}
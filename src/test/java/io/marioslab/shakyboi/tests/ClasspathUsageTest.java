@@ -0,0 +1,62 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ClasspathUsage;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.DirectoryLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClasspathUsageTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testUsageAndMinimalClasspath() throws IOException {
+        // App reaches Bar, Zap and Zop. Zop is shadowed by the first source, Foo and Zip are unreachable.
+        var zop = new DirectoryLookup(createDirectory("zop", List.of("Zop")));
+        var app = new DirectoryLookup(createDirectory("app", List.of("App")));
+        var bar = new DirectoryLookup(createDirectory("bar", List.of("Bar", "Zap", "Zop")));
+        var unused = new DirectoryLookup(createDirectory("unused", List.of("Foo", "Zip")));
+        var appLookup = new CombinedLookup(zop, app, bar, unused);
+        var graph = ClassDependencyGraphGenerator.generate(appLookup, new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        var usage = ClasspathUsage.compute(appLookup, graph);
+
+        assertEquals(4, usage.sources.size());
+        var barSource = usage.sources.get(2);
+        assertSame(bar, barSource.lookup);
+        assertEquals(2, barSource.totalClasses);
+        assertEquals(2, barSource.reachableClasses);
+        assertEquals(new ClassLoaderLookup().findClass(PACKAGE + "Bar").length + new ClassLoaderLookup().findClass(PACKAGE + "Zap").length, barSource.reachableBytes);
+        var unusedSource = usage.sources.get(3);
+        assertEquals(2, unusedSource.totalClasses);
+        assertEquals(0, unusedSource.reachableClasses);
+        assertEquals(0, unusedSource.reachableBytes);
+        assertTrue(unusedSource.totalBytes > 0);
+
+        // The bar source has the most reachable classes, but has to stay behind the zop source shadowing its Zop class.
+        var classpath = usage.getMinimalClasspath().stream().map(source -> source.lookup).collect(Collectors.toList());
+        assertEquals(List.of(zop, bar, app), classpath);
+        assertTrue(usage.generateJSON().contains("\"minimalClasspath\": [\"" + zop.getDirectory().getPath()));
+    }
+
+    private static File createDirectory(String name, List<String> classNames) throws IOException {
+        var directory = new File(Files.createTempDirectory("shakyboi").toFile(), name);
+        var classLoaderLookup = new ClassLoaderLookup();
+        for (var className : classNames) {
+            var file = new File(directory, PACKAGE + className + ".class");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), classLoaderLookup.findClass(PACKAGE + className));
+        }
+        return directory;
+    }
+}
@@ -0,0 +1,77 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.Shakyboi;
+import io.marioslab.shakyboi.graph.ClosureValidator;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import io.marioslab.shakyboi.util.JarFileWriter;
+import io.marioslab.shakyboi.util.Pattern;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClosureValidatorTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testDanglingReferences() throws IOException {
+        var lookup = new ClassLoaderLookup();
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        // App references Bar, which is missing.
+        try (var writer = new JarFileWriter(jar)) {
+            for (var name : List.of("App", "Zap", "Zop"))
+                writer.addFile(PACKAGE + name + ".class", lookup.findClass(PACKAGE + name));
+        }
+        var danglingReferences = ClosureValidator.validate(new JarLookup(jar), new JrtImageLookup(), 2);
+        assertEquals(1, danglingReferences.size());
+        assertEquals(PACKAGE + "App", danglingReferences.get(0).className);
+        assertEquals(PACKAGE + "Bar", danglingReferences.get(0).referencedClassName);
+        assertTrue(ClosureValidator.validate(new JarLookup(jar), new JarLookup(jar), 1).stream().anyMatch(reference -> reference.referencedClassName.equals("java/lang/Object")));
+    }
+
+    @Test
+    public void testMethodHandleReferences() throws IOException {
+        var methodHandlesPackage = "io/marioslab/shakyboi/tests/apps/methodhandles/";
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        // App only references Target via the method handle argument of its lambda bootstrap method, Target is missing.
+        try (var writer = new JarFileWriter(jar)) {
+            writer.addFile(methodHandlesPackage + "App.class", new ClassLoaderLookup().findClass(methodHandlesPackage + "App"));
+        }
+        try (var lookup = new JarLookup(jar)) {
+            var danglingReferences = ClosureValidator.validate(lookup, new JrtImageLookup(), 1);
+            assertEquals(1, danglingReferences.size());
+            assertEquals(methodHandlesPackage + "Target", danglingReferences.get(0).referencedClassName);
+        }
+    }
+
+    @Test
+    public void testValidateShakenOutput() throws IOException {
+        for (var rapidTypeAnalysis : List.of(false, true)) {
+            var output = File.createTempFile("shakyboi", ".jar");
+            output.deleteOnExit();
+            var settings = new Shakyboi.Settings(new JarLookup(createSimpleAppJar()), new JrtImageLookup(), List.of(new Pattern(PACKAGE + "App.class")), output, null, null);
+            settings.validateOutput = true;
+            settings.rapidTypeAnalysis = rapidTypeAnalysis;
+            var stats = Shakyboi.shake(settings);
+            assertTrue(stats.danglingReferences.isEmpty());
+        }
+    }
+
+    private static File createSimpleAppJar() throws IOException {
+        var lookup = new ClassLoaderLookup();
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        try (var writer = new JarFileWriter(jar)) {
+            for (var name : List.of("App", "Bar", "Foo", "Zap", "Zip", "Zop"))
+                writer.addFile(PACKAGE + name + ".class", lookup.findClass(PACKAGE + name));
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,66 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ComponentGraphGenerator;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ComponentGraphTest {
+    @Test
+    public void testCycles() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), "io/marioslab/shakyboi/tests/apps/cycles/App");
+        var componentGraph = ComponentGraphGenerator.generate(graph);
+
+        var cycles = componentGraph.getCycles();
+        assertEquals(1, cycles.size());
+        var cycleClassNames = cycles.get(0).classes.stream().map(c -> c.classFile.getName()).collect(Collectors.toSet());
+        assertEquals(Set.of("io/marioslab/shakyboi/tests/apps/cycles/Parent",
+                "io/marioslab/shakyboi/tests/apps/cycles/Parent$Child",
+                "io/marioslab/shakyboi/tests/apps/cycles/Factory"), cycleClassNames);
+
+        // Every class is in exactly one component, and components are in topological order.
+        int numClasses = 0;
+        for (var component : componentGraph.components) {
+            numClasses += component.classes.size();
+            for (var other : component.dependsOn)
+                assertTrue(other.index > component.index);
+        }
+        assertEquals(graph.reachableClasses.size(), numClasses);
+
+        var rootComponent = componentGraph.getComponent("io/marioslab/shakyboi/tests/apps/cycles/App");
+        assertTrue(rootComponent.isRootComponent);
+        assertEquals(1, rootComponent.classes.size());
+        assertTrue(rootComponent.dependsOn.contains(cycles.get(0)));
+
+        var reachable = componentGraph.getReachableClasses("io/marioslab/shakyboi/tests/apps/cycles/Factory");
+        var reachableNames = new HashSet<String>();
+        reachable.forEach(c -> reachableNames.add(c.classFile.getName()));
+        assertTrue(reachableNames.containsAll(cycleClassNames));
+        assertFalse(reachableNames.contains("io/marioslab/shakyboi/tests/apps/cycles/App"));
+        assertEquals(graph.reachableClasses.size(), componentGraph.getReachableClasses("io/marioslab/shakyboi/tests/apps/cycles/App").size());
+    }
+
+    @Test
+    public void testRootSets() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(),
+                "io/marioslab/shakyboi/tests/apps/simple/App", "io/marioslab/shakyboi/tests/apps/simple/Foo");
+        var componentGraph = ComponentGraphGenerator.generate(graph);
+        var reachingRootSets = componentGraph.getReachingRootSets(List.of(Set.of("io/marioslab/shakyboi/tests/apps/simple/App"),
+                Set.of("io/marioslab/shakyboi/tests/apps/simple/Foo")));
+
+        assertEquals(BitSet.valueOf(new long[]{0b01}), reachingRootSets[componentGraph.getComponent("io/marioslab/shakyboi/tests/apps/simple/Zap").index]);
+        assertEquals(BitSet.valueOf(new long[]{0b10}), reachingRootSets[componentGraph.getComponent("io/marioslab/shakyboi/tests/apps/simple/Zip").index]);
+        assertEquals(BitSet.valueOf(new long[]{0b11}), reachingRootSets[componentGraph.getComponent("java/lang/System").index]);
+    }
+}
@@ -0,0 +1,55 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.util.DirectoryWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryWriterTest {
+    @Test
+    public void testWriteAndCopy() throws IOException {
+        var source = Files.createTempDirectory("shakyboi").toFile();
+        var sourceFile = new File(source, "images/bunny.png");
+        sourceFile.getParentFile().mkdirs();
+        Files.writeString(sourceFile.toPath(), "bunny");
+
+        for (var hardLinks : new boolean[]{false, true}) {
+            var directory = new File(Files.createTempDirectory("shakyboi").toFile(), "classes");
+            try (var writer = new DirectoryWriter(directory, 4, hardLinks)) {
+                writer.addFile("empty/", new byte[0]);
+                for (int i = 0; i < 100; i++)
+                    writer.addFile("a/b/File" + i + ".class", ("file" + i).getBytes(StandardCharsets.UTF_8));
+                writer.copyFile("assets/bunny.png", sourceFile);
+                assertThrows(RuntimeException.class, () -> writer.addFile("a/b/File0.class", new byte[0]));
+                assertThrows(IllegalArgumentException.class, () -> writer.addFile("../outside.txt", new byte[0]));
+            }
+            assertTrue(new File(directory, "empty").isDirectory());
+            for (int i = 0; i < 100; i++)
+                assertEquals("file" + i, Files.readString(new File(directory, "a/b/File" + i + ".class").toPath()));
+            assertEquals("bunny", Files.readString(new File(directory, "assets/bunny.png").toPath()));
+            if (hardLinks) assertTrue(Files.isSameFile(sourceFile.toPath(), new File(directory, "assets/bunny.png").toPath()));
+            else assertFalse(Files.isSameFile(sourceFile.toPath(), new File(directory, "assets/bunny.png").toPath()));
+        }
+    }
+
+    @Test
+    public void testExternalMemory() throws IOException {
+        // More files than may be pending on one thread, with names stored in external memory.
+        var externalMemory = Files.createTempDirectory("shakyboi").toFile();
+        var directory = new File(Files.createTempDirectory("shakyboi").toFile(), "classes");
+        try (var writer = new DirectoryWriter(directory, 1, false, externalMemory)) {
+            for (int i = 0; i < 1000; i++)
+                writer.addFile("a/File" + i + ".class", ("file" + i).getBytes(StandardCharsets.UTF_8));
+            assertThrows(RuntimeException.class, () -> writer.addFile("a/File0.class", new byte[0]));
+        }
+        for (int i = 0; i < 1000; i++)
+            assertEquals("file" + i, Files.readString(new File(directory, "a/File" + i + ".class").toPath()));
+        assertEquals(0, externalMemory.listFiles().length);
+        externalMemory.delete();
+    }
+}
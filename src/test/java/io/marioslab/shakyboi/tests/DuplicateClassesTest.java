@@ -0,0 +1,73 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.DuplicateClasses;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.DirectoryLookup;
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.util.JarFileWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DuplicateClassesTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testDuplicates() throws IOException {
+        var lookup = new ClassLoaderLookup();
+        var first = File.createTempFile("shakyboi", ".jar");
+        var second = File.createTempFile("shakyboi", ".jar");
+        first.deleteOnExit();
+        second.deleteOnExit();
+        try (var writer = new JarFileWriter(first)) {
+            writer.addFile(PACKAGE + "App.class", lookup.findClass(PACKAGE + "App"));
+            writer.addFile(PACKAGE + "Bar.class", lookup.findClass(PACKAGE + "Bar"));
+            writer.addFile("module-info.class", lookup.findClass(PACKAGE + "Foo"));
+        }
+        try (var writer = new JarFileWriter(second)) {
+            writer.addFile(PACKAGE + "App.class", lookup.findClass(PACKAGE + "App"));
+            // A conflicting copy of Bar.
+            writer.addFile(PACKAGE + "Bar.class", lookup.findClass(PACKAGE + "Zap"));
+            writer.addFile(PACKAGE + "Foo.class", lookup.findClass(PACKAGE + "Foo"));
+            writer.addFile("module-info.class", lookup.findClass(PACKAGE + "Foo"));
+        }
+        // Classes in directories are compared by their content.
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        var foo = new File(directory, PACKAGE + "Foo.class");
+        foo.getParentFile().mkdirs();
+        Files.write(foo.toPath(), lookup.findClass(PACKAGE + "Foo"));
+
+        var firstLookup = new JarLookup(first);
+        var secondLookup = new JarLookup(second);
+        var directoryLookup = new DirectoryLookup(directory);
+        var duplicates = DuplicateClasses.scan(new CombinedLookup(firstLookup, new CombinedLookup(secondLookup, directoryLookup))).duplicates;
+
+        assertEquals(3, duplicates.size());
+        assertEquals(PACKAGE + "App", duplicates.get(0).name);
+        assertTrue(duplicates.get(0).identical);
+        assertEquals(List.of(firstLookup, secondLookup), duplicates.get(0).sources);
+        assertEquals(lookup.findClass(PACKAGE + "App").length, duplicates.get(0).shadowedBytes);
+        assertEquals(PACKAGE + "Bar", duplicates.get(1).name);
+        assertFalse(duplicates.get(1).identical);
+        assertEquals(PACKAGE + "Foo", duplicates.get(2).name);
+        assertTrue(duplicates.get(2).identical);
+        assertEquals(List.of(secondLookup, directoryLookup), duplicates.get(2).sources);
+    }
+
+    @Test
+    public void testNoDuplicates() throws IOException {
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        var app = new File(directory, PACKAGE + "App.class");
+        app.getParentFile().mkdirs();
+        Files.write(app.toPath(), new ClassLoaderLookup().findClass(PACKAGE + "App"));
+        var scan = DuplicateClasses.scan(new DirectoryLookup(directory));
+        assertTrue(scan.duplicates.isEmpty());
+        assertEquals(0, scan.getShadowedBytes());
+    }
+}
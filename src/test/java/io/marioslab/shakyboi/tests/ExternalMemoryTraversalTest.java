@@ -0,0 +1,107 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.ExternalMemoryTraversal;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import io.marioslab.shakyboi.util.MappedStringSet;
+import io.marioslab.shakyboi.util.SpillingQueue;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalMemoryTraversalTest {
+    @Test
+    public void testTraversal() throws IOException {
+        for (var rootClass : new String[]{"io/marioslab/shakyboi/tests/apps/simple/App", "io/marioslab/shakyboi/tests/apps/cycles/App"}) {
+            var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), rootClass);
+
+            // A batch size of 1 spills every queued class but the most recent one to disk.
+            var directory = Files.createTempDirectory("shakyboi").toFile();
+            var depths = new HashMap<String, Integer>();
+            try (var traversal = new ExternalMemoryTraversal(directory, 1)) {
+                traversal.traverse(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), (className, isAppClass, bytes, reachedFrom, depth, dependsOn) -> {
+                    assertNull(depths.put(className, depth), "Visited twice: " + className);
+                    assertEquals(graph.reachableClasses.get(className).isAppClass, isAppClass);
+                }, rootClass);
+                assertTrue(traversal.getSpilledClasses() > 0);
+                assertFalse(traversal.isReachable("io/marioslab/shakyboi/tests/apps/simple/Foo"));
+                for (var className : graph.reachableClasses.keySet())
+                    assertTrue(traversal.isReachable(className));
+            }
+            assertEquals(graph.reachableClasses.size(), depths.size());
+            for (var classNode : graph.reachableClasses.values())
+                assertEquals(classNode.depth, depths.get(classNode.name), classNode.name);
+            assertEquals(0, directory.listFiles().length);
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testMappedStringSet() throws IOException {
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        try (var set = new MappedStringSet(directory, 16)) {
+            // Grows the table multiple times.
+            for (int i = 0; i < 10000; i++)
+                assertTrue(set.add("class" + i, i % 3));
+            assertFalse(set.add("class0", 2));
+            assertEquals(10000, set.size());
+            for (int i = 0; i < 10000; i++)
+                assertEquals(i % 3, set.getFlags("class" + i));
+            assertFalse(set.contains("class10000"));
+            set.setFlags("class1", 7);
+            assertEquals(7, set.getFlags("class1"));
+
+            // Strings are iterated in the order they were added.
+            int i = 0;
+            for (var string : set)
+                assertEquals("class" + i++, string);
+            assertEquals(10000, i);
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testMappedStringSetIterationAcrossSegments() throws IOException {
+        // Long strings fill a 16 MB name segment, so names continue in the next segment.
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        var prefix = "a".repeat(1024 * 1024);
+        try (var set = new MappedStringSet(directory, 16)) {
+            assertFalse(set.iterator().hasNext());
+            for (int i = 0; i < 40; i++)
+                set.add(i % 2 == 0 ? prefix + i : "" + i, 0);
+            int i = 0;
+            for (var string : set) {
+                assertEquals(i % 2 == 0 ? prefix + i : "" + i, string);
+                i++;
+            }
+            assertEquals(40, i);
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testSpillingQueue() throws IOException {
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        try (var queue = new SpillingQueue(directory, 10)) {
+            int next = 0;
+            for (int i = 0; i < 100; i++) {
+                queue.add(new byte[]{(byte) i});
+                // Interleave reads with writes, so reads hit both the spill file and the in-memory batch.
+                if (i % 3 == 0) assertEquals(next++, queue.poll()[0]);
+            }
+            assertTrue(queue.getSpilledRecords() > 0);
+            assertEquals(100 - next, queue.size());
+            byte[] record;
+            while ((record = queue.poll()) != null)
+                assertEquals(next++, record[0]);
+            assertEquals(100, next);
+        }
+        directory.delete();
+    }
+}
@@ -0,0 +1,218 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.lookup.JarLookup;
+import io.marioslab.shakyboi.util.JarFileWriter;
+import io.marioslab.shakyboi.util.ZipCentralDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JarFileWriterTest {
+    static byte[] data(int index) {
+        var random = new Random(index);
+        // Compressible, but not trivially so.
+        var data = new StringBuilder();
+        int length = random.nextInt(16 * 1024);
+        while (data.length() < length)
+            data.append("token").append(random.nextInt(100)).append(' ');
+        return data.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testParallelWriter() throws IOException {
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        try (var writer = new JarFileWriter(jar, Deflater.BEST_SPEED, 4)) {
+            writer.addFile("dir/", new byte[0]);
+            for (int i = 0; i < 2000; i++)
+                writer.addFile("dir/File" + i + ".class", data(i));
+            assertThrows(RuntimeException.class, () -> writer.addFile("dir/File0.class", new byte[1]));
+        }
+
+        // Central directory, read by JarFile.
+        try (var jarFile = new JarFile(jar)) {
+            assertEquals(2001, jarFile.size());
+            for (int i = 0; i < 2000; i++)
+                assertArrayEquals(data(i), jarFile.getInputStream(jarFile.getEntry("dir/File" + i + ".class")).readAllBytes());
+        }
+
+        // Local file headers, in the order the files were added.
+        try (var in = new ZipInputStream(new FileInputStream(jar))) {
+            assertEquals("dir/", in.getNextEntry().getName());
+            for (int i = 0; i < 2000; i++) {
+                assertEquals("dir/File" + i + ".class", in.getNextEntry().getName());
+                assertArrayEquals(data(i), in.readAllBytes());
+            }
+            assertNull(in.getNextEntry());
+        }
+    }
+
+    @Test
+    public void testConcurrentAddFile() throws Exception {
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        try (var writer = new JarFileWriter(jar, Deflater.DEFAULT_COMPRESSION, 2)) {
+            var threads = new ArrayList<Thread>();
+            for (int t = 0; t < 4; t++) {
+                int first = t * 500;
+                threads.add(new Thread(() -> {
+                    for (int i = first; i < first + 500; i++)
+                        writer.addFile("File" + i + ".class", data(i));
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (var thread : threads)
+                thread.join();
+        }
+        try (var jarFile = new JarFile(jar)) {
+            assertEquals(2000, jarFile.size());
+            for (int i = 0; i < 2000; i++)
+                assertArrayEquals(data(i), jarFile.getInputStream(jarFile.getEntry("File" + i + ".class")).readAllBytes());
+        }
+    }
+
+    @Test
+    public void testDeterministicOutput() throws IOException {
+        var jars = new File[2];
+        for (int j = 0; j < 2; j++) {
+            jars[j] = File.createTempFile("shakyboi", ".jar");
+            jars[j].deleteOnExit();
+            try (var writer = new JarFileWriter(jars[j], Deflater.DEFAULT_COMPRESSION, j == 0 ? 1 : 8)) {
+                for (int i = 0; i < 500; i++)
+                    writer.addFile("File" + i + ".class", data(i));
+            }
+        }
+        // The entries and their compressed bytes don't depend on the number of threads. Only the modification times could differ.
+        try (var first = new JarFile(jars[0]); var second = new JarFile(jars[1])) {
+            var firstEntries = Collections.list(first.entries());
+            var secondEntries = Collections.list(second.entries());
+            assertEquals(firstEntries.size(), secondEntries.size());
+            for (int i = 0; i < firstEntries.size(); i++) {
+                assertEquals(firstEntries.get(i).getName(), secondEntries.get(i).getName());
+                assertEquals(firstEntries.get(i).getCrc(), secondEntries.get(i).getCrc());
+                assertEquals(firstEntries.get(i).getCompressedSize(), secondEntries.get(i).getCompressedSize());
+            }
+        }
+        assertEquals(jars[0].length(), jars[1].length());
+    }
+
+    @Test
+    public void testExternalMemory() throws IOException {
+        // Names and central directory records spilled to external memory result in the same file.
+        var jars = new File[2];
+        var directory = Files.createTempDirectory("shakyboi").toFile();
+        for (int j = 0; j < 2; j++) {
+            jars[j] = File.createTempFile("shakyboi", ".jar");
+            jars[j].deleteOnExit();
+            try (var writer = new JarFileWriter(jars[j], Deflater.DEFAULT_COMPRESSION, 4, false, j == 0 ? null : directory)) {
+                writer.setModificationTime(LocalDateTime.of(1980, 1, 1, 0, 0));
+                for (int i = 0; i < 5000; i++)
+                    writer.addFile("File" + i + ".class", i % 10 == 0 ? data(i) : new byte[0]);
+                assertThrows(RuntimeException.class, () -> writer.addFile("File0.class", data(0)));
+            }
+        }
+        assertArrayEquals(Files.readAllBytes(jars[0].toPath()), Files.readAllBytes(jars[1].toPath()));
+        assertEquals(0, directory.listFiles().length);
+        directory.delete();
+    }
+
+    @Test
+    public void testZip64() throws IOException {
+        // More than 65535 entries require zip64 end of central directory records.
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        try (var writer = new JarFileWriter(jar)) {
+            for (int i = 0; i < 70000; i++)
+                writer.addFile("File" + i + ".class", i % 1000 == 0 ? data(i) : new byte[0]);
+        }
+        try (var jarFile = new JarFile(jar)) {
+            assertEquals(70000, jarFile.size());
+            assertNotNull(new JarLookup(jar).getEntry("File69999.class"));
+            assertArrayEquals(data(69000), jarFile.getInputStream(jarFile.getEntry("File69000.class")).readAllBytes());
+        }
+    }
+
+    @Test
+    public void testCopyFile() throws IOException {
+        // Written by JarOutputStream, with data descriptors following deflated entries, and a stored entry.
+        var source = File.createTempFile("shakyboi", ".jar");
+        source.deleteOnExit();
+        try (var out = new JarOutputStream(new FileOutputStream(source))) {
+            for (int i = 0; i < 100; i++) {
+                out.putNextEntry(new ZipEntry("File" + i + ".class"));
+                out.write(data(i));
+                out.closeEntry();
+            }
+            var stored = new ZipEntry("stored.txt");
+            var storedData = data(100);
+            var crc = new CRC32();
+            crc.update(storedData);
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(storedData.length);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(storedData);
+            out.closeEntry();
+        }
+
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        var lookup = new JarLookup(source);
+        try (var writer = new JarFileWriter(jar)) {
+            writer.addFile("new.txt", data(101));
+            for (int i = 0; i < 100; i += 2)
+                writer.copyFile("File" + i + ".class", lookup.getChannel(), lookup.getEntry("File" + i + ".class"));
+            writer.copyFile("renamed.txt", lookup.getChannel(), lookup.getEntry("stored.txt"));
+        }
+        try (var jarFile = new JarFile(jar)) {
+            assertEquals(52, jarFile.size());
+            assertEquals(ZipEntry.STORED, jarFile.getEntry("renamed.txt").getMethod());
+            assertArrayEquals(data(100), jarFile.getInputStream(jarFile.getEntry("renamed.txt")).readAllBytes());
+            assertArrayEquals(data(101), jarFile.getInputStream(jarFile.getEntry("new.txt")).readAllBytes());
+            for (int i = 0; i < 100; i += 2)
+                assertArrayEquals(data(i), jarFile.getInputStream(jarFile.getEntry("File" + i + ".class")).readAllBytes());
+        }
+        // The copied compressed data is identical to the source's.
+        assertEquals(lookup.getEntry("File0.class").compressedSize, new JarLookup(jar).getEntry("File0.class").compressedSize);
+    }
+
+    @Test
+    public void testStoredAligned() throws IOException {
+        var jar = File.createTempFile("shakyboi", ".jar");
+        jar.deleteOnExit();
+        try (var writer = new JarFileWriter(jar, Deflater.DEFAULT_COMPRESSION, 4, true)) {
+            writer.addFile("dir/", new byte[0]);
+            for (int i = 0; i < 200; i++)
+                writer.addFile("dir/File" + i + ".class", data(i));
+        }
+        var lookup = new JarLookup(jar);
+        try (var jarFile = new JarFile(jar)) {
+            assertEquals(201, jarFile.size());
+            for (int i = 0; i < 200; i++) {
+                var name = "dir/File" + i + ".class";
+                assertEquals(ZipEntry.STORED, jarFile.getEntry(name).getMethod());
+                assertArrayEquals(data(i), jarFile.getInputStream(jarFile.getEntry(name)).readAllBytes());
+                var entry = lookup.getEntry(name);
+                if (entry.compressedSize > 0)
+                    assertEquals(0, ZipCentralDirectory.getDataOffset(lookup.getChannel(), entry) % JarFileWriter.PAGE_SIZE);
+            }
+        }
+    }
+}
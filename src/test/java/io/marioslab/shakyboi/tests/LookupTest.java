@@ -93,7 +93,13 @@ public class LookupTest {
         assertNull(classLookup.findResource("does/not/Exist.txt"));
         var files = new HashSet<String>(classLookup.list());
         assertEquals(classFilesInDir, files);
+        var entry = classLookup.getEntry("io/marioslab/shakyboi/tests/apps/simple/App.class");
+        assertEquals(classLookup.getZipEntry("io/marioslab/shakyboi/tests/apps/simple/App.class").getCrc(), entry.crc & 0xffffffffL);
+        assertNull(classLookup.getEntry("does/not/Exist.class"));
 
+        // A closed lookup releases the .jar file and its channel.
+        classLookup.close();
+        assertThrows(RuntimeException.class, () -> classLookup.findClass("io/marioslab/shakyboi/tests/apps/simple/App"));
         jarFile.delete();
     }
 
@@ -108,6 +114,21 @@ public class LookupTest {
         assertTrue(files.size() > 20000);
     }
 
+    @Test
+    public void testJrtImageModuleLookup() {
+        var classLookup = new JrtImageLookup();
+        assertEquals("java.base", classLookup.findModule("java/lang/Object"));
+        assertEquals("java.logging", classLookup.findModule("java/util/logging/Logger"));
+        assertEquals("java.sql", classLookup.findModule("java/sql/Connection"));
+        assertNull(classLookup.findModule("java/lang/DoesNotExist"));
+        assertNull(classLookup.findModule("io/marioslab/shakyboi/tests/apps/simple/App"));
+
+        var combinedLookup = new CombinedLookup(new JarLookup(jarFile), classLookup);
+        assertEquals("java.sql", combinedLookup.findModule("java/sql/Connection"));
+        assertNull(combinedLookup.findModule("io/marioslab/shakyboi/tests/apps/simple/App"));
+        assertNull(new JarLookup(jarFile).findModule("io/marioslab/shakyboi/tests/apps/simple/App"));
+    }
+
     @Test
     public void testCombinedClassLookup() {
         var classLookup = new CombinedLookup(new JarLookup(jarFile), new JrtImageLookup());
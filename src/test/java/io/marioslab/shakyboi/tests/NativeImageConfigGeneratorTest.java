@@ -0,0 +1,44 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.NativeImageConfigGenerator;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativeImageConfigGeneratorTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/nativeimage/";
+
+    @Test
+    public void testBuildTimeInitializedClasses() throws IOException {
+        var graph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        var classes = NativeImageConfigGenerator.getBuildTimeInitializedClasses(graph.reachableClasses.values(), clazz -> clazz.classFile);
+        // Clock calls System.nanoTime() in its static initializer, which ClockSub inherits.
+        assertTrue(classes.contains(PACKAGE + "App"));
+        assertTrue(classes.contains(PACKAGE + "Constants"));
+        assertFalse(classes.contains(PACKAGE + "Clock"));
+        assertFalse(classes.contains(PACKAGE + "ClockSub"));
+        assertFalse(classes.stream().anyMatch(c -> c.startsWith("java/")));
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        var directory = new File(Files.createTempDirectory("shakyboi").toFile(), "native-image");
+        NativeImageConfigGenerator.write(directory, List.of(PACKAGE + "App"), List.of("assets/", "assets/\"bunny\".png"), List.of(PACKAGE + "Constants", PACKAGE + "App"));
+        var reflectConfig = Files.readString(new File(directory, "reflect-config.json").toPath());
+        assertTrue(reflectConfig.contains("\"name\": \"io.marioslab.shakyboi.tests.apps.nativeimage.App\""));
+        var resourceConfig = Files.readString(new File(directory, "resource-config.json").toPath());
+        assertTrue(resourceConfig.contains("{ \"pattern\": \"\\\\Qassets/\\\"bunny\\\".png\\\\E\" }"));
+        assertFalse(resourceConfig.contains("\\\\Qassets/\\\\E"));
+        var properties = Files.readString(new File(directory, "native-image.properties").toPath());
+        assertTrue(properties.contains("Args = --initialize-at-build-time=io.marioslab.shakyboi.tests.apps.nativeimage.App,io.marioslab.shakyboi.tests.apps.nativeimage.Constants\n"));
+    }
+}
@@ -0,0 +1,91 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.classfile.ClassFile;
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.classfile.ClassFileWriter;
+import io.marioslab.shakyboi.graph.ClassDependencyGraph;
+import io.marioslab.shakyboi.graph.ClassDependencyGraphGenerator;
+import io.marioslab.shakyboi.graph.RapidTypeAnalysis;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RapidTypeAnalysisTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/rta/";
+
+    static Set<String> getAppClassNames(ClassDependencyGraph graph) {
+        return graph.reachableClasses.values().stream().filter(c -> c.isAppClass).map(c -> c.classFile.getName()).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testRapidTypeAnalysis() throws Exception {
+        var defaultGraph = ClassDependencyGraphGenerator.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        assertTrue(getAppClassNames(defaultGraph).containsAll(Set.of(PACKAGE + "Square", PACKAGE + "Unused")));
+
+        var graph = RapidTypeAnalysis.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), PACKAGE + "App");
+        assertEquals(Set.of(PACKAGE + "App", PACKAGE + "Shape", PACKAGE + "Circle", PACKAGE + "Helper"), getAppClassNames(graph));
+
+        // Unreachable methods are removed, methods called by bootstrap code are kept.
+        var circle = graph.reachableClasses.get(PACKAGE + "Circle");
+        assertNotNull(circle.modifiedData);
+        var circleMethods = ClassFileReader.readClassFile("Circle", circle.modifiedData).methods.stream().map(m -> m.getName()).collect(Collectors.toSet());
+        assertEquals(Set.of("<init>", "area", "toString"), circleMethods);
+        assertNull(graph.reachableClasses.get(PACKAGE + "App").modifiedData);
+
+        // The kept classes must load, verify and run without the removed classes.
+        runShakenApp(graph, PACKAGE + "App");
+    }
+
+    @Test
+    public void testOverriddenSuperClassMethod() throws Exception {
+        // App calls Base.name() on a Sub instance. Base.name() is never dispatched to, but the call resolves against it.
+        var overridesPackage = "io/marioslab/shakyboi/tests/apps/overrides/";
+        var graph = RapidTypeAnalysis.generate(new ClassLoaderLookup(), new JrtImageLookup(), new ArrayList<>(), overridesPackage + "App");
+        assertEquals(Set.of(overridesPackage + "App", overridesPackage + "Base", overridesPackage + "Sub"), getAppClassNames(graph));
+        var base = graph.reachableClasses.get(overridesPackage + "Base");
+        var bytes = base.modifiedData != null ? base.modifiedData : base.classFile.originalData;
+        var baseMethods = ClassFileReader.readClassFile("Base", bytes).methods.stream().map(m -> m.getName()).collect(Collectors.toSet());
+        assertTrue(baseMethods.contains("name"));
+        runShakenApp(graph, overridesPackage + "App");
+    }
+
+    /**
+     * Loads the app classes of the graph, using their modified data if any, runs the main class and initializes all classes.
+     */
+    static void runShakenApp(ClassDependencyGraph graph, String mainClassName) throws Exception {
+        var classLoader = new ClassLoader(ClassLoader.getPlatformClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                var classNode = graph.reachableClasses.get(name.replace('.', '/'));
+                if (classNode == null || !classNode.isAppClass) throw new ClassNotFoundException(name);
+                var bytes = classNode.modifiedData != null ? classNode.modifiedData : classNode.classFile.originalData;
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        var app = classLoader.loadClass(mainClassName.replace('/', '.'));
+        app.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+        for (var className : getAppClassNames(graph))
+            Class.forName(className.replace('/', '.'), true, classLoader);
+    }
+
+    @Test
+    public void testClassFileRoundTrip() throws IOException {
+        var bytes = new ClassLoaderLookup().findClass(PACKAGE + "App");
+        var classFile = ClassFileReader.readClassFile("App", bytes);
+        assertArrayEquals(bytes, ClassFileWriter.writeClassFile(classFile));
+
+        // Code, StackMapTable and BootstrapMethods attributes are only decoded on request.
+        assertTrue(classFile.methods.stream().flatMap(m -> m.attributes.stream()).allMatch(a -> a.getClass() == ClassFile.AttributeInfo.class));
+        assertTrue(classFile.getBootstrapMethodsAttribute().bootstrapMethods.size() > 0);
+        var main = classFile.methods.stream().filter(m -> m.getName().equals("main")).findFirst().get();
+        assertTrue(main.getCodeAttribute().code.length > 0);
+    }
+}
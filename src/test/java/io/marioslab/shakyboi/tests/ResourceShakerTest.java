@@ -0,0 +1,51 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.classfile.ClassFileReader;
+import io.marioslab.shakyboi.graph.ResourceShaker;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.util.Pattern;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ResourceShakerTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testReferences() {
+        var resources = List.of("META-INF/", "META-INF/MANIFEST.MF", "META-INF/services/java.sql.Driver",
+                "assets/", "assets/bunny.png", "assets/bunny.png.bak", "assets/bunnyhop.png",
+                "i18n/", "i18n/Messages.properties", "i18n/Messages_de.properties", "i18n/MessagesOld.properties",
+                "sounds/", "sounds/jump.wav", "sounds/music/", "sounds/music/theme.ogg",
+                "shaders/default.vert", "unused.txt");
+        var shaker = new ResourceShaker(resources);
+        shaker.addReference("assets/bunny.png");
+        shaker.addReference("i18n/Messages");
+        shaker.addReference("sounds/");
+        shaker.addReference("shaders");
+        assertEquals(List.of("META-INF/", "META-INF/MANIFEST.MF", "META-INF/services/java.sql.Driver",
+                "assets/", "assets/bunny.png", "assets/bunny.png.bak",
+                "i18n/", "i18n/Messages.properties", "i18n/Messages_de.properties",
+                "sounds/", "sounds/jump.wav", "sounds/music/", "sounds/music/theme.ogg",
+                "shaders/default.vert"), shaker.getKeptResources(List.of()));
+    }
+
+    @Test
+    public void testKeepPatterns() {
+        var resources = List.of("assets/", "assets/bunny.png", "assets/ui/skin.json", "unused.txt");
+        var shaker = new ResourceShaker(resources);
+        assertEquals(List.of("assets/", "assets/ui/skin.json"), shaker.getKeptResources(List.of(new Pattern("**/*.json"))));
+    }
+
+    @Test
+    public void testClassFileReferences() throws IOException {
+        // Bar prints "I'm a bar.", which is resolved relative to Bar's package and with '.' replaced by '/'.
+        var resources = List.of(PACKAGE + "I'm a bar.", "I'm a bar/", "I'm a bar/x.txt", "I'm a foo.");
+        var shaker = new ResourceShaker(resources);
+        shaker.addReferences(ClassFileReader.readClassFile(PACKAGE + "Bar", new ClassLoaderLookup().findClass(PACKAGE + "Bar")));
+        assertEquals(List.of(PACKAGE + "I'm a bar.", "I'm a bar/", "I'm a bar/x.txt"), shaker.getKeptResources(List.of()));
+    }
+}
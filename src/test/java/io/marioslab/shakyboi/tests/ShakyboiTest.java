@@ -0,0 +1,164 @@
+package io.marioslab.shakyboi.tests;
+
+import io.marioslab.shakyboi.Shakyboi;
+import io.marioslab.shakyboi.lookup.ClassLoaderLookup;
+import io.marioslab.shakyboi.lookup.CombinedLookup;
+import io.marioslab.shakyboi.lookup.DirectoryLookup;
+import io.marioslab.shakyboi.lookup.JrtImageLookup;
+import io.marioslab.shakyboi.util.Pattern;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShakyboiTest {
+    static final String PACKAGE = "io/marioslab/shakyboi/tests/apps/simple/";
+
+    @Test
+    public void testPipelinedShake() throws IOException {
+        // App directory with the classes of the simple app and a resource.
+        var appDirectory = createAppDirectory("app", List.of("App", "Bar", "Foo", "Zap", "Zip", "Zop"), "assets/bunny.txt");
+
+        var output = File.createTempFile("shakyboi", ".jar");
+        var jsonReport = File.createTempFile("shakyboi", ".json");
+        output.deleteOnExit();
+        jsonReport.deleteOnExit();
+        var settings = new Shakyboi.Settings(new DirectoryLookup(appDirectory), new JrtImageLookup(), List.of(new Pattern(PACKAGE + "App.class")), output, null, jsonReport);
+        var stats = Shakyboi.shake(settings);
+
+        try (var jarFile = new JarFile(output)) {
+            var names = new ArrayList<String>();
+            jarFile.entries().asIterator().forEachRemaining(entry -> names.add(entry.getName()));
+            // Resources are written while the graph is generated, before the classes.
+            assertEquals("bunny", new String(jarFile.getInputStream(jarFile.getEntry("assets/bunny.txt")).readAllBytes()));
+            assertTrue(names.indexOf("assets/bunny.txt") < names.indexOf(PACKAGE + "App.class"));
+            assertFalse(names.contains(PACKAGE + "Foo.class"));
+        }
+        assertTrue(jsonReport.length() > 0);
+        assertEquals(4, stats.reachableClasses);
+        assertTrue(stats.timeWriteResources > 0);
+        assertTrue(stats.timeWriteResourcesOverlap <= stats.timeWriteResources);
+        assertTrue(stats.timeWriteReportOverlap <= stats.timeWriteReport);
+        assertTrue(stats.timeTotal >= stats.timeClassDependencyGraph);
+    }
+
+    @Test
+    public void testOutputPerApp() throws IOException {
+        var appDirectory = createAppDirectory("app", List.of("App"), "assets/bunny.txt");
+        var libDirectory = createAppDirectory("lib", List.of("Bar", "Foo", "Zap", "Zip", "Zop"), "lib.txt");
+        var appLookup = new CombinedLookup(new DirectoryLookup(appDirectory), new DirectoryLookup(libDirectory));
+
+        var outputs = new ArrayList<File>();
+        for (int i = 0; i < 2; i++) {
+            var output = Files.createTempDirectory("shakyboi").toFile();
+            var settings = new Shakyboi.Settings(appLookup, new JrtImageLookup(), List.of(new Pattern(PACKAGE + "App.class")), output, null, null);
+            settings.outputPerApp = true;
+            Shakyboi.shake(settings);
+            outputs.add(output);
+        }
+        for (var name : List.of("app.jar", "lib.jar"))
+            assertArrayEquals(Files.readAllBytes(new File(outputs.get(0), name).toPath()), Files.readAllBytes(new File(outputs.get(1), name).toPath()));
+
+        try (var app = new JarFile(new File(outputs.get(0), "app.jar")); var lib = new JarFile(new File(outputs.get(0), "lib.jar"))) {
+            assertNotNull(app.getEntry("assets/bunny.txt"));
+            assertNotNull(app.getEntry(PACKAGE + "App.class"));
+            assertNull(app.getEntry(PACKAGE + "Bar.class"));
+            assertNotNull(lib.getEntry("lib.txt"));
+            assertNotNull(lib.getEntry(PACKAGE + "Bar.class"));
+            assertNull(lib.getEntry(PACKAGE + "Foo.class"));
+            assertNull(lib.getEntry(PACKAGE + "App.class"));
+        }
+    }
+
+    @Test
+    public void testExternalMemoryShake() throws IOException {
+        var appDirectory = createAppDirectory("app", List.of("App", "Bar", "Foo"), "assets/bunny.txt");
+        var libDirectory = createAppDirectory("lib", List.of("Bar", "Zap", "Zip", "Zop"), "assets/bunny.txt");
+        var output = File.createTempFile("shakyboi", ".jar");
+        var jsonReport = File.createTempFile("shakyboi", ".json");
+        var externalMemory = Files.createTempDirectory("shakyboi").toFile();
+        output.deleteOnExit();
+        jsonReport.deleteOnExit();
+        var settings = new Shakyboi.Settings(new CombinedLookup(new DirectoryLookup(appDirectory), new DirectoryLookup(libDirectory)), new JrtImageLookup(), List.of(new Pattern(PACKAGE + "App.class")), output, null, jsonReport);
+        settings.externalMemory = externalMemory;
+        settings.externalMemoryBatchSize = 1;
+        var stats = Shakyboi.shake(settings);
+
+        // Files contained in both sources are only counted and written once.
+        assertEquals(6, stats.totalClasses);
+        assertEquals(4, stats.reachableClasses);
+        assertEquals(List.of("java.base"), stats.requiredModules);
+        try (var jarFile = new JarFile(output)) {
+            assertEquals(5, jarFile.size());
+            assertNotNull(jarFile.getEntry("assets/bunny.txt"));
+            assertNull(jarFile.getEntry(PACKAGE + "Foo.class"));
+        }
+        var json = Files.readString(jsonReport.toPath());
+        // Removed classes are reported in class path order.
+        var packageName = PACKAGE.replace('/', '.');
+        assertTrue(json.contains("\"removedClasses\": [\n\"" + packageName + "Foo\",\n\"" + packageName + "Zip\"\n]"));
+        assertEquals(0, externalMemory.listFiles().length);
+
+        // Class bundles are built on the heap.
+        settings.bundleOutput = true;
+        assertThrows(IOException.class, () -> Shakyboi.shake(settings));
+        externalMemory.delete();
+    }
+
+    @Test
+    public void testRequiredModules() throws IOException {
+        var modules = File.createTempFile("shakyboi", ".txt");
+        modules.deleteOnExit();
+        var appDirectory = createAppDirectory("app", List.of("App", "Bar", "Zap", "Zop"), "assets/bunny.txt");
+        var settings = new Shakyboi.Settings(new DirectoryLookup(appDirectory), new JrtImageLookup(), List.of(new Pattern(PACKAGE + "App.class")), null, null, null);
+        settings.jlinkModules = modules;
+        var stats = Shakyboi.shake(settings);
+        assertEquals(List.of("java.base"), stats.requiredModules);
+        assertEquals("java.base\n", Files.readString(modules.toPath()));
+
+        var warnings = new ArrayList<String>();
+        assertEquals(List.of("java.base", "java.logging", "java.sql"), Shakyboi.getRequiredModules(new JrtImageLookup(), List.of("java/sql/Connection", "java/util/logging/Logger"), warnings));
+        assertTrue(warnings.isEmpty());
+        assertTrue(Shakyboi.getRequiredModules(new ClassLoaderLookup(), List.of("java/lang/Object"), warnings).isEmpty());
+        assertEquals(1, warnings.size());
+    }
+
+    @Test
+    public void testRootSetNames() throws IOException {
+        assertTrue(Shakyboi.isValidRootSetName("billing-v2.0_x"));
+        for (var name : List.of("", "../billing", "a/b", "a\\b", "bill\"ing", "bill ing"))
+            assertFalse(Shakyboi.isValidRootSetName(name), name);
+        assertThrows(IllegalArgumentException.class, () -> Shakyboi.getRootSetOutput(new File("app.jar"), "../billing"));
+
+        // Invalid names are rejected before any output is written.
+        var appDirectory = createAppDirectory("app", List.of("App", "Bar", "Zap", "Zop"), "assets/bunny.txt");
+        var output = new File(Files.createTempDirectory("shakyboi").toFile(), "app.jar");
+        var settings = new Shakyboi.Settings(new DirectoryLookup(appDirectory), new JrtImageLookup(), List.of(), output, null, null);
+        settings.rootSets.put("../billing", List.of(new Pattern(PACKAGE + "App.class")));
+        assertThrows(IOException.class, () -> Shakyboi.shake(settings));
+        assertEquals(0, output.getParentFile().listFiles().length);
+    }
+
+    /**
+     * Creates a directory with the given classes of the simple app and a resource.
+     */
+    private static File createAppDirectory(String name, List<String> classNames, String resourceName) throws IOException {
+        var directory = new File(Files.createTempDirectory("shakyboi").toFile(), name);
+        var classLoaderLookup = new ClassLoaderLookup();
+        for (var className : classNames) {
+            var file = new File(directory, PACKAGE + className + ".class");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), classLoaderLookup.findClass(PACKAGE + className));
+        }
+        var resource = new File(directory, resourceName);
+        resource.getParentFile().mkdirs();
+        Files.writeString(resource.toPath(), "bunny");
+        return directory;
+    }
+}
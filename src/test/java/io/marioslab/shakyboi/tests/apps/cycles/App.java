@@ -0,0 +1,8 @@
+package io.marioslab.shakyboi.tests.apps.cycles;
+
+public class App {
+    public static void main(String[] argv) {
+        Parent parent = Factory.create();
+        parent.getChild().doChild();
+    }
+}
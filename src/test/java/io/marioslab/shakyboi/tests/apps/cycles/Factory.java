@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.cycles;
+
+public class Factory {
+    public static Parent create() {
+        return new Parent();
+    }
+}
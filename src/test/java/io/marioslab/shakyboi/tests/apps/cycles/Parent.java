@@ -0,0 +1,19 @@
+package io.marioslab.shakyboi.tests.apps.cycles;
+
+public class Parent {
+    private final Child child = new Child();
+
+    public Child getChild() {
+        return child;
+    }
+
+    public Parent copy() {
+        return Factory.create();
+    }
+
+    public class Child {
+        public void doChild() {
+            System.out.println("I'm a child of " + Parent.this);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package io.marioslab.shakyboi.tests.apps.methodhandles;
+
+public class App {
+    public static void main(String[] argv) {
+        // Target is only referenced by the method handle passed to the bootstrap method of the invokedynamic instruction.
+        Runnable runnable = Target::run;
+        runnable.run();
+    }
+}
@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.methodhandles;
+
+public class Target {
+    public static void run() {
+        System.out.println("I'm a target.");
+    }
+}
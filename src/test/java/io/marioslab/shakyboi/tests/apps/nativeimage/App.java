@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.nativeimage;
+
+public class App {
+    public static void main(String[] argv) {
+        System.out.println(Constants.NAMES[0] + Constants.PRIMES[0] + Clock.START + ClockSub.NAME);
+    }
+}
@@ -0,0 +1,5 @@
+package io.marioslab.shakyboi.tests.apps.nativeimage;
+
+public class Clock {
+    static final long START = System.nanoTime();
+}
@@ -0,0 +1,5 @@
+package io.marioslab.shakyboi.tests.apps.nativeimage;
+
+public class ClockSub extends Clock {
+    static String NAME = "sub";
+}
@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.nativeimage;
+
+public class Constants {
+    static final String[] NAMES = {"foo", "bar"};
+    static final int[] PRIMES = {2, 3, 5, 7};
+    static long max = Long.MAX_VALUE;
+}
@@ -0,0 +1,8 @@
+package io.marioslab.shakyboi.tests.apps.overrides;
+
+public class App {
+    public static void main(String[] argv) {
+        Base base = new Sub();
+        System.out.println(base.name());
+    }
+}
@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.overrides;
+
+public class Base {
+    public String name() {
+        return "Base";
+    }
+}
@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.overrides;
+
+public class Sub extends Base {
+    public String name() {
+        return "Sub";
+    }
+}
@@ -0,0 +1,11 @@
+package io.marioslab.shakyboi.tests.apps.rta;
+
+public class App {
+    public static void main(String[] argv) {
+        Shape shape = new Circle(2);
+        System.out.println(shape.area());
+        System.out.println(shape);
+        Runnable runnable = () -> System.out.println(new Helper().help());
+        runnable.run();
+    }
+}
@@ -0,0 +1,21 @@
+package io.marioslab.shakyboi.tests.apps.rta;
+
+public class Circle implements Shape {
+    private final float radius;
+
+    public Circle(float radius) {
+        this.radius = radius;
+    }
+
+    public float area() {
+        return (float) Math.PI * radius * radius;
+    }
+
+    public Square boundingBox() {
+        return new Square(radius * 2);
+    }
+
+    public String toString() {
+        return "Circle " + radius;
+    }
+}
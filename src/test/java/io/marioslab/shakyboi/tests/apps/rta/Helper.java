@@ -0,0 +1,7 @@
+package io.marioslab.shakyboi.tests.apps.rta;
+
+public class Helper {
+    public String help() {
+        return "I'm a helper.";
+    }
+}
@@ -0,0 +1,13 @@
+package io.marioslab.shakyboi.tests.apps.rta;
+
+public interface Shape {
+    float area();
+
+    static Shape createSquare(float side) {
+        return new Square(side);
+    }
+
+    static void print(Unused unused) {
+        System.out.println(unused);
+    }
+}
@@ -0,0 +1,13 @@
+package io.marioslab.shakyboi.tests.apps.rta;
+
+public class Square implements Shape {
+    private final float side;
+
+    public Square(float side) {
+        this.side = side;
+    }
+
+    public float area() {
+        return side * side;
+    }
+}
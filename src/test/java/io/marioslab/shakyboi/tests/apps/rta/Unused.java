@@ -0,0 +1,4 @@
+package io.marioslab.shakyboi.tests.apps.rta;
+
+public class Unused {
+}
@@ -0,0 +1,59 @@
+package io.marioslab.shakyboi.tests.benchmarks;
+
+import io.marioslab.shakyboi.runtime.BundleClassLoader;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+
+/**
+ * Measures the time it takes a fresh JVM to load all classes of a <code>.jar</code> file or class bundle, i.e. the class loading
+ * part of an app's startup. Classes are loaded, but not initialized. Run once per file in a new JVM, e.g. to compare deflated and
+ * stored output of Shakyboi, or a class bundle loaded by a {@link BundleClassLoader}:
+ *
+ * <code>
+ * java -cp target/classes:target/test-classes io.marioslab.shakyboi.tests.benchmarks.ClassLoadingBenchmark app-shaky.jar
+ * </code>
+ */
+public class ClassLoadingBenchmark {
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: ClassLoadingBenchmark <jar-file|bundle-file>");
+            System.exit(-1);
+        }
+        var file = new File(args[0]);
+        long start = System.nanoTime();
+        int[] loadedAndFailed;
+        if (file.getName().endsWith(".jar")) {
+            try (var jarFile = new JarFile(file); var classLoader = new URLClassLoader(new URL[]{file.toURI().toURL()}, null)) {
+                var names = new ArrayList<String>();
+                jarFile.entries().asIterator().forEachRemaining(entry -> names.add(entry.getName()));
+                loadedAndFailed = loadClasses(names, classLoader);
+            }
+        } else {
+            var classLoader = new BundleClassLoader(file, null);
+            loadedAndFailed = loadClasses(classLoader.list(), classLoader);
+        }
+        int loaded = loadedAndFailed[0], failed = loadedAndFailed[1];
+        var took = (System.nanoTime() - start) / 1e6;
+        System.out.println(file.getName() + ": loaded " + loaded + " classes (" + failed + " failed) in " + took + " ms");
+    }
+
+    private static int[] loadClasses(List<String> names, ClassLoader classLoader) {
+        int loaded = 0, failed = 0;
+        for (var name : names) {
+            if (!name.endsWith(".class") || name.startsWith("META-INF/") || name.endsWith("module-info.class")) continue;
+            try {
+                Class.forName(name.substring(0, name.length() - ".class".length()).replace('/', '.'), false, classLoader);
+                loaded++;
+            } catch (Throwable t) {
+                // Classes depending on classes that aren't on the class path, e.g. optional dependencies.
+                failed++;
+            }
+        }
+        return new int[]{loaded, failed};
+    }
+}
@@ -22,6 +22,30 @@ java -jar ../target/shakyboi.jar --app paxbritannica.jar \
     --root de.swagner.paxbritannica.desktop.DesktopLauncher \
     --output paxbritannica-shaky.jar
 
+# Compare the heap usage of the default and low-memory mode
+echo "Heap usage, default mode:"
+java -XX:+UseSerialGC -jar ../target/shakyboi.jar --app paxbritannica.jar \
+    --root de.swagner.paxbritannica.desktop.DesktopLauncher \
+    --output paxbritannica-shaky.jar 2> /dev/null | grep "heap usage"
+echo "Heap usage, low-memory mode:"
+java -XX:+UseSerialGC -jar ../target/shakyboi.jar --app paxbritannica.jar \
+    --root de.swagner.paxbritannica.desktop.DesktopLauncher \
+    --output paxbritannica-shaky.jar --low-memory 2> /dev/null | grep "heap usage"
+
+# Compare the class loading time of deflated and stored, page-aligned output, and of a class bundle
+java -jar ../target/shakyboi.jar --app paxbritannica.jar \
+    --root de.swagner.paxbritannica.desktop.DesktopLauncher \
+    --output paxbritannica-shaky-stored.jar --stored > /dev/null 2>&1
+java -jar ../target/shakyboi.jar --app paxbritannica.jar \
+    --root de.swagner.paxbritannica.desktop.DesktopLauncher \
+    --output paxbritannica-shaky.bundle --bundle > /dev/null 2>&1
+ls -l paxbritannica-shaky.jar paxbritannica-shaky-stored.jar paxbritannica-shaky.bundle
+for i in 1 2 3; do
+  java -cp ../target/shakyboi.jar:../target/test-classes io.marioslab.shakyboi.tests.benchmarks.ClassLoadingBenchmark paxbritannica-shaky.jar
+  java -cp ../target/shakyboi.jar:../target/test-classes io.marioslab.shakyboi.tests.benchmarks.ClassLoadingBenchmark paxbritannica-shaky-stored.jar
+  java -cp ../target/shakyboi.jar:../target/test-classes io.marioslab.shakyboi.tests.benchmarks.ClassLoadingBenchmark paxbritannica-shaky.bundle
+done
+
 # Execute proguard on the apps
 cat > proguard.conf << EOF
 -injars       paxbritannica.jar